@@ -0,0 +1,210 @@
+package org.example.backend.client;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Results of the read-only AI endpoints, with stale-while-revalidate.
+ *
+ * An entry younger than its endpoint's TTL is served as is. An older one is
+ * still served for up to {@code stale-seconds} more while a background thread
+ * fetches a new one, at most one fetch per key; after that it is gone and the
+ * caller waits for the AI service. Concurrent misses on the same key share one
+ * call. Keys are built by the caller from normalized requests.
+ *
+ * Entries carry the generation of their endpoint when their load started;
+ * invalidating an endpoint bumps it. A refresh that started before does not
+ * put its result back, and an entry that still got in is dropped when read.
+ */
+@Component
+@Slf4j
+public class AiResultCache {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Endpoint {
+        PREDICT(CacheConfig.AI_PREDICT),
+        EXPLAIN(CacheConfig.AI_EXPLAIN),
+        WAREHOUSE_STATE(CacheConfig.AI_WAREHOUSE_STATE),
+        MODEL_INFO(CacheConfig.AI_MODEL_INFO);
+
+        private final String cacheName;
+    }
+
+    private record CachedResult(Object value, long loadedAtMs, long generation) {
+    }
+
+    /** Distinct product ids in ascending order; the date in ISO form when it parses. */
+    public record PredictKey(List<Integer> productIds, String date) {
+    }
+
+    public record ExplainKey(int productId, String date) {
+    }
+
+    /** Key of the endpoints without parameters. */
+    public static final String NO_PARAMETERS = "";
+
+    private final Map<Endpoint, Cache> caches = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Long> ttlMs = new EnumMap<>(Endpoint.class);
+    /** Bumped by every invalidation of the endpoint. */
+    private final Map<Endpoint, AtomicLong> generations = new EnumMap<>(Endpoint.class);
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher;
+    private final AtomicReference<Object> modelVersion = new AtomicReference<>();
+
+    public AiResultCache(CacheManager cacheManager,
+            @Value("${cache.ai.predict-ttl-seconds:300}") long predictTtl,
+            @Value("${cache.ai.explain-ttl-seconds:600}") long explainTtl,
+            @Value("${cache.ai.warehouse-state-ttl-seconds:10}") long warehouseStateTtl,
+            @Value("${cache.ai.model-info-ttl-seconds:3600}") long modelInfoTtl,
+            @Value("${cache.ai.refresh-threads:2}") int refreshThreads) {
+        for (Endpoint endpoint : Endpoint.values()) {
+            caches.put(endpoint, Objects.requireNonNull(cacheManager.getCache(endpoint.getCacheName())));
+            generations.put(endpoint, new AtomicLong());
+        }
+        ttlMs.put(Endpoint.PREDICT, Duration.ofSeconds(predictTtl).toMillis());
+        ttlMs.put(Endpoint.EXPLAIN, Duration.ofSeconds(explainTtl).toMillis());
+        ttlMs.put(Endpoint.WAREHOUSE_STATE, Duration.ofSeconds(warehouseStateTtl).toMillis());
+        ttlMs.put(Endpoint.MODEL_INFO, Duration.ofSeconds(modelInfoTtl).toMillis());
+
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = Executors.newFixedThreadPool(Math.max(1, refreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "ai-cache-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Cached result for the key, calling {@code loader} on a miss; exceptions
+     * of the loader reach the caller unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Endpoint endpoint, Object key, Supplier<T> loader) {
+        Cache cache = caches.get(endpoint);
+        AtomicLong generation = generations.get(endpoint);
+        long started = generation.get();
+        CachedResult cached;
+        try {
+            cached = cache.get(key, () -> new CachedResult(loader.get(), System.currentTimeMillis(), started));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (cached.generation() != generation.get()) {
+            // Loaded before an invalidation: answers this call, is not kept
+            cache.evict(key);
+        } else if (System.currentTimeMillis() - cached.loadedAtMs() >= ttlMs.get(endpoint)) {
+            refreshInBackground(endpoint, key, loader);
+        }
+        return (T) cached.value();
+    }
+
+    /**
+     * Predictions and explanations belong to the model that produced them:
+     * when model-info reports a new model_version they are dropped, along with
+     * the cached model-info.
+     */
+    public void recordModelInfo(Map<String, Object> modelInfo) {
+        Object version = modelInfo != null ? modelInfo.get("model_version") : null;
+        Object previous = modelVersion.getAndSet(version);
+        if (previous != null && !previous.equals(version)) {
+            log.info("AI model changed from {} to {}", previous, version);
+            invalidate(Endpoint.PREDICT);
+            invalidate(Endpoint.EXPLAIN);
+            invalidate(Endpoint.MODEL_INFO);
+        }
+    }
+
+    public void invalidate(Endpoint endpoint) {
+        generations.get(endpoint).incrementAndGet();
+        caches.get(endpoint).clear();
+        log.info("AI result cache {} invalidated", endpoint);
+    }
+
+    public void invalidateAll() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            invalidate(endpoint);
+        }
+    }
+
+    public static PredictKey predictKey(List<Integer> productIds, String date) {
+        return new PredictKey(productIds.stream().filter(Objects::nonNull).distinct().sorted().toList(),
+                normalizeDate(date));
+    }
+
+    public static ExplainKey explainKey(int productId, String date) {
+        return new ExplainKey(productId, normalizeDate(date));
+    }
+
+    private static String normalizeDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.trim()).toString();
+        } catch (DateTimeParseException e) {
+            // Left for the AI service to reject
+            return date.trim();
+        }
+    }
+
+    private void refreshInBackground(Endpoint endpoint, Object key, Supplier<?> loader) {
+        Object refreshKey = Map.entry(endpoint, key);
+        if (!refreshing.add(refreshKey)) {
+            return;
+        }
+        AtomicLong generation = generations.get(endpoint);
+        long started = generation.get();
+        try {
+            refresher.execute(() -> {
+                try {
+                    Object value = loader.get();
+                    if (generation.get() == started) {
+                        caches.get(endpoint).put(key, new CachedResult(value, System.currentTimeMillis(), started));
+                    } else {
+                        log.debug("AI {} refresh discarded: the endpoint was invalidated meanwhile", endpoint);
+                    }
+                } catch (Exception e) {
+                    // The stale entry stays until it expires; the next read tries again
+                    log.warn("AI {} refresh failed: {}", endpoint, e.getMessage());
+                } finally {
+                    refreshing.remove(refreshKey);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(refreshKey);
+            log.warn("AI {} refresh not scheduled: {}", endpoint, e.getMessage());
+        }
+    }
+}
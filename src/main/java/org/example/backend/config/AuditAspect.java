@@ -60,10 +60,14 @@ public class AuditAspect {
                 return;
 
             Object[] args = joinPoint.getArgs();
-            // args: username, ExecuteLineRequest
+            // args: username, ExecuteLineRequest, idempotency key
             Object request = args[1];
             // Use reflection-safe approach
             Map<String, Object> resultMap = (Map<String, Object>) result;
+            if (Boolean.TRUE.equals(resultMap.get("replayed"))) {
+                // Retries do not move stock again; the original execution is already audited
+                return;
+            }
 
             auditService.log(user, "OPERATION_LINE_EXECUTED", "TransactionLine", null,
                     null, "lineNumber=" + resultMap.get("lineNumber") + ", status=" + resultMap.get("status"));
@@ -107,6 +111,49 @@ public class AuditAspect {
         auditStockMovement(joinPoint, "STOCK_ADJUSTMENT");
     }
 
+    @AfterReturning(pointcut = "execution(* org.example.backend.service.impl.StockLedgerServiceImpl.recordTransfer(..))", returning = "result")
+    public void auditStockTransfer(JoinPoint joinPoint, Object result) {
+        try {
+            User user = getCurrentUser();
+            if (user == null)
+                return;
+
+            Object[] args = joinPoint.getArgs();
+            // args: Product, Location source, Location destination, int quantity, Transaction,
+            // TransactionLine, User
+            org.example.backend.entity.Product product = (org.example.backend.entity.Product) args[0];
+            org.example.backend.entity.Location source = (org.example.backend.entity.Location) args[1];
+            org.example.backend.entity.Location destination = (org.example.backend.entity.Location) args[2];
+            int quantity = (int) args[3];
+
+            auditService.log(user, "STOCK_TRANSFER", "StockLedger", product.getId(),
+                    null, "product=" + product.getSku() + ", from=" + source.getCode()
+                            + ", to=" + destination.getCode() + ", qty=" + quantity);
+        } catch (Exception e) {
+            log.warn("Failed to create audit log for stock transfer: {}", e.getMessage());
+        }
+    }
+
+    @AfterReturning(pointcut = "execution(* org.example.backend.service.impl.StockLedgerServiceImpl.recordMovements(..))", returning = "result")
+    public void auditStockBatch(JoinPoint joinPoint, Object result) {
+        try {
+            User user = getCurrentUser();
+            if (user == null)
+                return;
+
+            java.util.List<?> entries = (java.util.List<?>) result;
+            if (entries.isEmpty())
+                return;
+            org.example.backend.entity.StockLedger first = (org.example.backend.entity.StockLedger) entries.get(0);
+
+            // One audit entry per batch rather than one REQUIRES_NEW commit per movement
+            auditService.log(user, "STOCK_BATCH", "Transaction", first.getTransaction().getId(),
+                    null, "movements=" + entries.size());
+        } catch (Exception e) {
+            log.warn("Failed to create audit log for stock batch: {}", e.getMessage());
+        }
+    }
+
     private void auditStockMovement(JoinPoint joinPoint, String action) {
         try {
             User user = getCurrentUser();
@@ -1,4 +1,104 @@
 package org.example.backend.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caffeine caches. Every cache is declared here with its own size and expiry;
+ * unknown cache names are rejected rather than created on the fly.
+ */
+@Configuration
+@EnableCaching
 public class CacheConfig {
+
+    /** Product id -> stock per location. Evicted by ledger writes of the product. */
+    public static final String PRODUCT_STOCK = "inventory.productStock";
+    /** Location id -> products stored there. Evicted by ledger writes at the location. */
+    public static final String LOCATION_CONTENTS = "inventory.locationContents";
+    /** SKU or barcode -> product id. */
+    public static final String SKU_INDEX = "inventory.skuIndex";
+    /** Location code -> location id. */
+    public static final String LOCATION_CODES = "inventory.locationCodes";
+    /** Report spec hash -> report result. Expires only; reports are allowed to be that stale. */
+    public static final String REPORT_RESULTS = "reports.results";
+    /** Product id -> fitted local demand model. Expires so that new demand history is picked up. */
+    public static final String DEMAND_MODELS = "forecast.demandModels";
+    /** AI service results by normalized request, see AiResultCache; kept for TTL plus the stale window. */
+    public static final String AI_PREDICT = "ai.predict";
+    public static final String AI_EXPLAIN = "ai.explain";
+    public static final String AI_WAREHOUSE_STATE = "ai.warehouseState";
+    public static final String AI_MODEL_INFO = "ai.modelInfo";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${cache.inventory.max-size:50000}") long inventoryMaxSize,
+            @Value("${cache.inventory.expire-after-write-minutes:10}") long inventoryExpiry,
+            @Value("${cache.lookup.max-size:100000}") long lookupMaxSize,
+            @Value("${cache.lookup.expire-after-write-minutes:60}") long lookupExpiry,
+            @Value("${cache.reports.max-size:200}") long reportsMaxSize,
+            @Value("${cache.reports.expire-after-write-minutes:10}") long reportsExpiry,
+            @Value("${cache.forecast-models.max-size:100000}") long forecastModelsMaxSize,
+            @Value("${cache.forecast-models.expire-after-write-minutes:60}") long forecastModelsExpiry,
+            @Value("${cache.ai.max-size:1000}") long aiMaxSize,
+            @Value("${cache.ai.stale-seconds:300}") long aiStale,
+            @Value("${cache.ai.predict-ttl-seconds:300}") long aiPredictTtl,
+            @Value("${cache.ai.explain-ttl-seconds:600}") long aiExplainTtl,
+            @Value("${cache.ai.warehouse-state-ttl-seconds:10}") long aiWarehouseStateTtl,
+            @Value("${cache.ai.model-info-ttl-seconds:3600}") long aiModelInfoTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCT_STOCK, Caffeine.newBuilder()
+                .maximumSize(inventoryMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(inventoryExpiry))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(LOCATION_CONTENTS, Caffeine.newBuilder()
+                .maximumSize(inventoryMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(inventoryExpiry))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(SKU_INDEX, Caffeine.newBuilder()
+                .maximumSize(lookupMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(lookupExpiry))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(LOCATION_CODES, Caffeine.newBuilder()
+                .maximumSize(lookupMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(lookupExpiry))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(REPORT_RESULTS, Caffeine.newBuilder()
+                .maximumSize(reportsMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(reportsExpiry))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(DEMAND_MODELS, Caffeine.newBuilder()
+                .maximumSize(forecastModelsMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(forecastModelsExpiry))
+                .recordStats()
+                .build());
+        registerAiCache(cacheManager, AI_PREDICT, aiMaxSize, aiPredictTtl + aiStale);
+        registerAiCache(cacheManager, AI_EXPLAIN, aiMaxSize, aiExplainTtl + aiStale);
+        registerAiCache(cacheManager, AI_WAREHOUSE_STATE, 1, aiWarehouseStateTtl + aiStale);
+        registerAiCache(cacheManager, AI_MODEL_INFO, 1, aiModelInfoTtl + aiStale);
+        // Only the caches registered above exist
+        cacheManager.setCacheNames(List.of());
+        return cacheManager;
+    }
+
+    private static void registerAiCache(CaffeineCacheManager cacheManager, String name, long maxSize,
+            long expirySeconds) {
+        cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(expirySeconds))
+                .recordStats()
+                .build());
+    }
 }
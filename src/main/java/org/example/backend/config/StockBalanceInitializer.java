@@ -0,0 +1,31 @@
+package org.example.backend.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.repository.StockBalanceRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.service.StockLedgerService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the stock_balance projection on startup when the ledger already has
+ * entries but the projection table is empty (first deployment of the table).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockBalanceInitializer implements CommandLineRunner {
+
+    private final StockBalanceRepository stockBalanceRepository;
+    private final StockLedgerRepository stockLedgerRepository;
+    private final StockLedgerService stockLedgerService;
+
+    @Override
+    public void run(String... args) {
+        if (stockBalanceRepository.count() == 0 && stockLedgerRepository.count() > 0) {
+            log.info("Stock balance projection is empty — building it from the ledger...");
+            stockLedgerService.rebuildBalances();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.backend.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.enums.MovementType;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.service.ledger.LedgerAggregate;
+import org.example.backend.service.ledger.LedgerColumnStore;
+import org.example.backend.service.ledger.LedgerQuery;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Ad-hoc questions over the ledger, answered from the in-memory column store
+ * without querying the database.
+ */
+@RestController
+@RequestMapping("/admin/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AdminAnalyticsController {
+
+    private static final int MAX_GROUPS = 10000;
+
+    private final LedgerColumnStore ledgerColumnStore;
+
+    /**
+     * Movements and quantity per group, e.g. OUT quantity per category per
+     * hour: {@code ?movementType=OUT&groupBy=category,hour&startDate=...}.
+     * Dates are inclusive; lists are comma-separated.
+     */
+    @GetMapping("/ledger")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> queryLedger(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Set<MovementType> movementType,
+            @RequestParam(required = false) Set<UUID> productId,
+            @RequestParam(required = false) Set<UUID> locationId,
+            @RequestParam(required = false) Set<UUID> userId,
+            @RequestParam(required = false) Set<String> category,
+            @RequestParam(required = false) Set<UUID> warehouseId,
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit < 0 || limit > MAX_GROUPS) {
+            throw new InvalidOperationException("limit must be between 0 and " + MAX_GROUPS);
+        }
+        List<LedgerQuery.Dimension> dimensions = groupBy != null
+                ? groupBy.stream().map(AdminAnalyticsController::parseDimension).toList()
+                : List.of();
+        LedgerQuery query = new LedgerQuery(
+                startDate != null ? startDate.atStartOfDay() : null,
+                endDate != null ? endDate.plusDays(1).atStartOfDay() : null,
+                movementType, productId, locationId, userId, category, warehouseId,
+                dimensions, limit > 0 ? limit : MAX_GROUPS);
+
+        long start = System.nanoTime();
+        int rows = ledgerColumnStore.size();
+        List<LedgerAggregate> groups = ledgerColumnStore.query(query);
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        List<String> names = dimensions.stream().map(d -> toCamelCase(d.name())).toList();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("groupBy", names);
+        response.put("groups", groups.stream().map(group -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                map.put(names.get(i), group.key().get(i));
+                if (group.key().get(i) instanceof UUID) {
+                    map.put(names.get(i) + "Label", group.labels().get(i));
+                }
+            }
+            map.put("movements", group.movements());
+            map.put("quantity", group.quantity());
+            return map;
+        }).toList());
+        response.put("rowsScanned", rows);
+        response.put("elapsedMs", Math.round(elapsedMs * 100) / 100.0);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Ledger analytics query completed"));
+    }
+
+    @GetMapping("/ledger/status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLedgerStoreStatus() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("ready", ledgerColumnStore.isReady());
+        response.put("rows", ledgerColumnStore.size());
+        response.put("retentionDays", ledgerColumnStore.getRetentionDays());
+        response.put("columnMegabytes", Math.round(ledgerColumnStore.getColumnBytes() / 1048576.0 * 10) / 10.0);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Ledger column store status retrieved"));
+    }
+
+    private static LedgerQuery.Dimension parseDimension(String value) {
+        String name = value.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        try {
+            return LedgerQuery.Dimension.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported groupBy: " + value + ". Expected one of "
+                    + Arrays.stream(LedgerQuery.Dimension.values()).map(d -> toCamelCase(d.name())).toList());
+        }
+    }
+
+    private static String toCamelCase(String name) {
+        StringBuilder out = new StringBuilder();
+        for (String part : name.toLowerCase().split("_")) {
+            out.append(out.isEmpty() ? part : Character.toUpperCase(part.charAt(0)) + part.substring(1));
+        }
+        return out.toString();
+    }
+}
@@ -1,12 +1,17 @@
 package org.example.backend.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.MovementBucket;
+import org.example.backend.dto.projection.TaskBucket;
 import org.example.backend.dto.response.ApiResponse;
 import org.example.backend.entity.AuditLog;
 import org.example.backend.enums.ChariotStatus;
 import org.example.backend.enums.Role;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
 import org.example.backend.enums.TransactionStatus;
 import org.example.backend.repository.*;
+import org.example.backend.service.ReportRollupService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,6 +28,8 @@ import java.util.*;
 @RequiredArgsConstructor
 public class AdminDashboardController {
 
+    private static final int TREND_DAYS = 7;
+
     private final ProductRepository productRepository;
     private final LocationRepository locationRepository;
     private final UserRepository userRepository;
@@ -31,6 +38,7 @@ public class AdminDashboardController {
     private final TaskDiscrepancyRepository taskDiscrepancyRepository;
     private final AiDecisionLogRepository aiDecisionLogRepository;
     private final AuditLogRepository auditLogRepository;
+    private final ReportRollupService reportRollupService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAdminDashboard() {
@@ -52,11 +60,51 @@ public class AdminDashboardController {
         operations.put("tasksPending", transactionRepository.countByStatus(TransactionStatus.PENDING));
 
         LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        operations.put("tasksCompletedToday",
-                transactionRepository.countByStatusAndCompletedAtAfter(TransactionStatus.COMPLETED, startOfDay));
+        LocalDateTime now = LocalDateTime.now();
+        operations.put("tasksCompletedToday", reportRollupService
+                .taskBuckets(RollupGranularity.DAY, RollupDimension.ALL, null, startOfDay, now)
+                .map(buckets -> buckets.stream().mapToLong(TaskBucket::tasksCompleted).sum())
+                .orElseGet(() -> transactionRepository.countByStatusAndCompletedAtAfter(
+                        TransactionStatus.COMPLETED, startOfDay)));
         operations.put("unresolvedDiscrepancies", taskDiscrepancyRepository.countByResolvedAtIsNull());
         response.put("operations", operations);
 
+        // Trends (last 7 days, from the rollups; left out until they cover the week)
+        LocalDate firstDay = LocalDate.now().minusDays(TREND_DAYS - 1);
+        Optional<List<MovementBucket>> movementBuckets = reportRollupService.movementBuckets(
+                RollupGranularity.DAY, RollupDimension.ALL, null, firstDay.atStartOfDay(), now);
+        Optional<List<TaskBucket>> taskBuckets = reportRollupService.taskBuckets(
+                RollupGranularity.DAY, RollupDimension.ALL, null, firstDay.atStartOfDay(), now);
+        if (movementBuckets.isPresent() && taskBuckets.isPresent()) {
+            Map<LocalDate, Map<String, Object>> days = new LinkedHashMap<>();
+            for (int i = 0; i < TREND_DAYS; i++) {
+                Map<String, Object> day = new LinkedHashMap<>();
+                day.put("date", firstDay.plusDays(i));
+                day.put("unitsIn", 0L);
+                day.put("unitsOut", 0L);
+                day.put("tasksCompleted", 0L);
+                days.put(firstDay.plusDays(i), day);
+            }
+            for (MovementBucket bucket : movementBuckets.get()) {
+                String key = switch (bucket.movementType()) {
+                    case IN -> "unitsIn";
+                    case OUT -> "unitsOut";
+                    case ADJUSTMENT -> null;
+                };
+                Map<String, Object> day = days.get(bucket.bucketStart().toLocalDate());
+                if (key != null && day != null) {
+                    day.merge(key, bucket.quantity(), (a, b) -> (Long) a + (Long) b);
+                }
+            }
+            for (TaskBucket bucket : taskBuckets.get()) {
+                Map<String, Object> day = days.get(bucket.bucketStart().toLocalDate());
+                if (day != null) {
+                    day.merge("tasksCompleted", bucket.tasksCompleted(), (a, b) -> (Long) a + (Long) b);
+                }
+            }
+            response.put("trends", days.values());
+        }
+
         // AI Metrics
         Map<String, Object> aiMetrics = new LinkedHashMap<>();
         long totalAiDecisions = aiDecisionLogRepository.count();
@@ -2,8 +2,10 @@ package org.example.backend.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.ProductLocationQuantity;
 import org.example.backend.dto.request.StockAdjustmentRequest;
 import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.dto.response.LocationRollupResponse;
 import org.example.backend.entity.Location;
 import org.example.backend.entity.Product;
 import org.example.backend.entity.StockLedger;
@@ -12,19 +14,36 @@ import org.example.backend.entity.User;
 import org.example.backend.enums.MovementType;
 import org.example.backend.enums.TransactionStatus;
 import org.example.backend.enums.TransactionType;
+import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.exception.ResourceNotFoundException;
 import org.example.backend.repository.LocationRepository;
 import org.example.backend.repository.ProductRepository;
 import org.example.backend.repository.StockLedgerRepository;
 import org.example.backend.repository.TransactionRepository;
 import org.example.backend.repository.UserRepository;
-import org.springframework.data.domain.PageRequest;
+import org.example.backend.service.InventoryExportService;
+import org.example.backend.service.LocationAnalyticsService;
+import org.example.backend.service.ReportService;
+import org.example.backend.service.StockCheckpointService;
+import org.example.backend.service.StockIntegrityService;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.example.backend.service.StockLedgerService;
+import org.example.backend.service.StockReservationService;
+import org.example.backend.service.ledger.IntegrityRun;
+import org.example.backend.service.ledger.StockAlert;
+import org.example.backend.service.ledger.StockAlertEngine;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -40,6 +59,15 @@ public class AdminInventoryController {
     private final StockLedgerRepository stockLedgerRepository;
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final StockLedgerService stockLedgerService;
+    private final StockCheckpointService stockCheckpointService;
+    private final StockLedgerArchiveService stockLedgerArchiveService;
+    private final StockIntegrityService stockIntegrityService;
+    private final StockReservationService stockReservationService;
+    private final StockAlertEngine stockAlertEngine;
+    private final InventoryExportService inventoryExportService;
+    private final LocationAnalyticsService locationAnalyticsService;
+    private final ReportService reportService;
 
     @GetMapping("/summary")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getInventorySummary(
@@ -48,86 +76,103 @@ public class AdminInventoryController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size) {
 
-        var products = productRepository.findWithFilters(category, true, null, PageRequest.of(page, size));
-        int lowStockCount = 0;
+        Map<String, Object> response = reportService.inventorySummary(category, Boolean.TRUE.equals(lowStockOnly),
+                page, size);
 
-        List<Map<String, Object>> content = new ArrayList<>();
-        for (Product product : products.getContent()) {
-            List<StockLedger> ledgers = stockLedgerRepository.findByProduct_Id(product.getId());
+        return ResponseEntity.ok(ApiResponse.success(response, "Inventory summary retrieved"));
+    }
 
-            // Calculate total stock by summing running balances per location
-            Map<UUID, Integer> stockByLocation = new LinkedHashMap<>();
-            for (StockLedger ledger : ledgers) {
-                stockByLocation.merge(ledger.getLocation().getId(), ledger.getQuantity() *
-                        (ledger.getMovementType() == MovementType.OUT ? -1 : 1), Integer::sum);
-            }
+    /**
+     * Current alert set held in memory by the alert engine; until the engine
+     * has loaded, the same alerts read from the database with a null
+     * enteredAt.
+     */
+    @GetMapping("/alerts")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getStockAlerts() {
+        List<Map<String, Object>> alerts = stockAlertEngine.getActiveAlerts().stream()
+                .map(this::toAlertMap)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(alerts, "Stock alerts retrieved"));
+    }
 
-            int totalStock = stockByLocation.values().stream().mapToInt(Integer::intValue).sum();
-            boolean isLowStock = product.getMinStock() != null && totalStock < product.getMinStock();
-            if (isLowStock)
-                lowStockCount++;
+    @GetMapping("/alerts/history")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getExitedStockAlerts() {
+        List<Map<String, Object>> alerts = stockAlertEngine.getExitedAlerts().stream()
+                .map(this::toAlertMap)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(alerts, "Exited stock alerts retrieved"));
+    }
 
-            if (Boolean.TRUE.equals(lowStockOnly) && !isLowStock)
-                continue;
+    private Map<String, Object> toAlertMap(StockAlert alert) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("productId", alert.productId());
+        map.put("sku", alert.sku());
+        map.put("name", alert.name());
+        map.put("level", alert.level().name());
+        map.put("currentStock", alert.currentStock());
+        map.put("minStock", alert.minStock());
+        map.put("stockSecurite", alert.stockSecurite());
+        map.put("deficit", alert.deficit());
+        map.put("enteredAt", alert.enteredAt());
+        map.put("exitedAt", alert.exitedAt());
+        return map;
+    }
 
-            Map<String, Object> item = new LinkedHashMap<>();
-            item.put("productId", product.getId());
-            item.put("sku", product.getSku());
-            item.put("name", product.getName());
-            item.put("category", product.getCategory());
-            item.put("price", product.getPrice());
-            item.put("unitOfMeasure", product.getUnitOfMeasure());
-            item.put("totalStock", totalStock);
-            item.put("minStock", product.getMinStock());
-            item.put("maxStock", product.getMaxStock());
-            item.put("stockAlert", isLowStock);
-
-            List<Map<String, Object>> stockLocations = stockByLocation.entrySet().stream()
-                    .filter(e -> e.getValue() > 0)
-                    .map(e -> {
-                        Location loc = locationRepository.findById(e.getKey()).orElse(null);
-                        Map<String, Object> locMap = new LinkedHashMap<>();
-                        locMap.put("locationCode", loc != null ? loc.getCode() : e.getKey().toString());
-                        locMap.put("quantity", e.getValue());
-                        return locMap;
-                    }).collect(Collectors.toList());
-            item.put("stockLocations", stockLocations);
-            content.add(item);
-        }
+    /**
+     * Full stock snapshot for the ERP, streamed in keyset pages as CSV or
+     * NDJSON. Compressed by the server when the client accepts gzip.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInventory(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "none") String breakdown) {
+        InventoryExportService.Format exportFormat = parseOption(InventoryExportService.Format.class, format,
+                "format");
+        InventoryExportService.Breakdown exportBreakdown = parseOption(InventoryExportService.Breakdown.class,
+                breakdown, "breakdown");
+
+        boolean csv = exportFormat == InventoryExportService.Format.CSV;
+        String filename = "inventory-" + LocalDate.now() + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody body = out -> inventoryExportService.export(exportFormat, exportBreakdown, out);
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
 
-        Map<String, Object> response = new LinkedHashMap<>();
-        response.put("content", content);
-        response.put("totalProducts", products.getTotalElements());
-        response.put("lowStockCount", lowStockCount);
+    /**
+     * Stock and ledger activity rolled up by block, aisle or level of the
+     * location codes. Activity covers the last {@code days} days unless
+     * {@code from}/{@code to} are given.
+     */
+    @GetMapping("/rollup")
+    public ResponseEntity<ApiResponse<LocationRollupResponse>> getLocationRollup(
+            @RequestParam(defaultValue = "aisle") String by,
+            @RequestParam(required = false) UUID warehouseId,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocationAnalyticsService.Grouping grouping = parseOption(LocationAnalyticsService.Grouping.class, by, "by");
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(days);
+        if (!start.isBefore(end)) {
+            throw new InvalidOperationException("from must be before to");
+        }
 
-        return ResponseEntity.ok(ApiResponse.success(response, "Inventory summary retrieved"));
+        return ResponseEntity.ok(ApiResponse.success(
+                locationAnalyticsService.rollUp(grouping, warehouseId, start, end),
+                "Location roll-up retrieved"));
     }
 
-    @GetMapping("/alerts")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getStockAlerts() {
-        List<Product> products = productRepository.findAll().stream()
-                .filter(p -> p.getActive() && p.getMinStock() != null)
-                .toList();
-
-        List<Map<String, Object>> alerts = new ArrayList<>();
-        for (Product product : products) {
-            List<StockLedger> ledgers = stockLedgerRepository.findByProduct_Id(product.getId());
-            int totalStock = ledgers.stream()
-                    .mapToInt(l -> l.getMovementType() == MovementType.OUT ? -l.getQuantity() : l.getQuantity()).sum();
-
-            if (totalStock < product.getMinStock()) {
-                Map<String, Object> alert = new LinkedHashMap<>();
-                alert.put("productId", product.getId());
-                alert.put("sku", product.getSku());
-                alert.put("name", product.getName());
-                alert.put("currentStock", totalStock);
-                alert.put("minStock", product.getMinStock());
-                alert.put("deficit", product.getMinStock() - totalStock);
-                alerts.add(alert);
-            }
+    private static <E extends Enum<E>> E parseOption(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported " + name + ": " + value + ". Expected one of "
+                    + Arrays.toString(type.getEnumConstants()).toLowerCase());
         }
-
-        return ResponseEntity.ok(ApiResponse.success(alerts, "Stock alerts retrieved"));
     }
 
     @GetMapping("/product/{productId}")
@@ -228,6 +273,11 @@ public class AdminInventoryController {
         User admin = userRepository.findByUsername(authentication.getName())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
+        int adjustment = request.getAdjustmentQuantity();
+        if (adjustment < 0) {
+            stockLedgerService.validateStockAvailability(product.getId(), location.getId(), -adjustment);
+        }
+
         // Create adjustment transaction
         Transaction transaction = Transaction.builder()
                 .type(TransactionType.TRANSFER)
@@ -239,32 +289,177 @@ public class AdminInventoryController {
                 .build();
         transaction = transactionRepository.save(transaction);
 
-        // Determine movement type
-        MovementType movementType = request.getAdjustmentQuantity() >= 0 ? MovementType.IN : MovementType.ADJUSTMENT;
-        int qty = Math.abs(request.getAdjustmentQuantity());
-
-        // Calculate new balance
-        Long currentBalance = stockLedgerRepository.calculateBalance(request.getProductId(), request.getLocationId());
-        int newBalance = (int) (currentBalance + request.getAdjustmentQuantity());
-
-        StockLedger ledger = StockLedger.builder()
-                .product(product)
-                .location(location)
-                .transaction(transaction)
-                .movementType(movementType)
-                .quantity(qty)
-                .runningBalance(Math.max(0, newBalance))
-                .performedBy(admin)
-                .performedAt(LocalDateTime.now())
-                .build();
-        stockLedgerRepository.save(ledger);
+        // Record through the ledger service so the balance projection stays in sync
+        StockLedger ledger = adjustment >= 0
+                ? stockLedgerService.recordStockIn(product, location, adjustment, transaction, null, admin)
+                : stockLedgerService.recordAdjustment(product, location, adjustment, transaction, null, admin);
 
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("transactionId", transaction.getId());
-        response.put("newBalance", Math.max(0, newBalance));
+        response.put("newBalance", ledger.getRunningBalance());
         response.put("message", "Stock adjusted successfully");
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success(response, "Stock adjusted successfully"));
     }
+
+    @GetMapping("/ledger-balance")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLedgerBalance(
+            @RequestParam UUID productId,
+            @RequestParam UUID locationId) {
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", productId);
+        response.put("locationId", locationId);
+        response.put("ledgerBalance", stockCheckpointService.calculateBalance(productId, locationId));
+        response.put("projectedBalance", stockLedgerService.getCurrentBalance(productId, locationId));
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Ledger balance retrieved"));
+    }
+
+    @GetMapping("/as-of")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStockAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime timestamp,
+            @RequestParam(required = false) UUID productId,
+            @RequestParam(required = false) UUID locationId,
+            @RequestParam(required = false) UUID warehouseId) {
+
+        List<ProductLocationQuantity> balances = stockLedgerService.asOf(timestamp, productId, locationId, warehouseId);
+
+        Set<UUID> productIds = balances.stream().map(ProductLocationQuantity::productId).collect(Collectors.toSet());
+        Set<UUID> locationIds = balances.stream().map(ProductLocationQuantity::locationId).collect(Collectors.toSet());
+        Map<UUID, String> skus = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Product::getSku));
+        Map<UUID, String> codes = locationRepository.findAllById(locationIds).stream()
+                .collect(Collectors.toMap(Location::getId, Location::getCode));
+
+        List<Map<String, Object>> content = new ArrayList<>();
+        long total = 0;
+        for (ProductLocationQuantity balance : balances) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", balance.productId());
+            item.put("sku", skus.get(balance.productId()));
+            item.put("locationId", balance.locationId());
+            item.put("locationCode", codes.get(balance.locationId()));
+            item.put("quantity", balance.quantity());
+            content.add(item);
+            total += balance.quantity();
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", timestamp);
+        response.put("productId", productId);
+        response.put("locationId", locationId);
+        response.put("warehouseId", warehouseId);
+        response.put("totalQuantity", total);
+        response.put("balances", content);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock as of " + timestamp + " retrieved"));
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAvailability(
+            @RequestParam UUID productId,
+            @RequestParam UUID locationId) {
+        StockReservationService.Availability availability = stockReservationService.getAvailability(productId,
+                locationId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", productId);
+        response.put("locationId", locationId);
+        response.put("onHand", availability.onHand());
+        response.put("reserved", availability.reserved());
+        response.put("available", availability.available());
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock availability retrieved"));
+    }
+
+    @PostMapping("/checkpoints/run")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> runCheckpoint() {
+        int windows = stockCheckpointService.runCheckpoint();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("windowsCommitted", windows);
+        response.put("watermark", stockCheckpointService.getLastRun().map(r -> r.getWatermark()).orElse(null));
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock checkpoint completed"));
+    }
+
+    @GetMapping("/checkpoints/status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCheckpointStatus() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        stockCheckpointService.getLastRun().ifPresent(run -> {
+            response.put("watermark", run.getWatermark());
+            response.put("previousWatermark", run.getPreviousWatermark());
+            response.put("pairsUpdated", run.getPairsUpdated());
+            response.put("durationMs", run.getDurationMs());
+            response.put("committedAt", run.getCreatedAt());
+        });
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock checkpoint status retrieved"));
+    }
+
+    @PostMapping("/archive/run")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> runLedgerArchive() {
+        int archived = stockLedgerArchiveService.archiveColdPartitions();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("partitionsArchived", archived);
+        response.put("archivedUntil", stockLedgerArchiveService.getArchivedUntil().orElse(null));
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock ledger archival completed"));
+    }
+
+    @GetMapping("/archive")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLedgerArchive() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("archivedUntil", stockLedgerArchiveService.getArchivedUntil().orElse(null));
+        response.put("entries", stockLedgerArchiveService.getManifest());
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Stock ledger archive manifest retrieved"));
+    }
+
+    @PostMapping("/integrity/verify")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> startIntegrityVerification(
+            @RequestParam(defaultValue = "false") boolean rebuildProjection) {
+        IntegrityRun run = stockIntegrityService.startVerification(rebuildProjection);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(toIntegrityResponse(run), "Ledger integrity verification started"));
+    }
+
+    @GetMapping("/integrity/status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getIntegrityStatus() {
+        Map<String, Object> response = stockIntegrityService.getLastRun()
+                .map(this::toIntegrityResponse)
+                .orElseGet(LinkedHashMap::new);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Ledger integrity status retrieved"));
+    }
+
+    private Map<String, Object> toIntegrityResponse(IntegrityRun run) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        for (IntegrityRun.IssueType type : IntegrityRun.IssueType.values()) {
+            counts.put(type.name(), run.getIssueCount(type));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("runId", run.getId());
+        response.put("status", run.getStatus().name());
+        response.put("startedAt", run.getStartedAt());
+        response.put("finishedAt", run.getFinishedAt());
+        response.put("elapsedSeconds", run.getElapsed().toSeconds());
+        response.put("productsTotal", run.getProductsTotal());
+        response.put("productsVerified", run.getProductsVerified().get());
+        response.put("progress", Math.round(run.getProgress() * 1000) / 10.0);
+        response.put("chainsVerified", run.getChainsVerified().get());
+        response.put("rowsScanned", run.getRowsScanned().get());
+        response.put("rowsPerSecond", Math.round(run.getRowsPerSecond()));
+        response.put("issueCounts", counts);
+        response.put("issues", run.getIssues());
+        response.put("rebuildProjection", run.isRebuildProjection());
+        response.put("pairsRebuilt", run.getPairsRebuilt());
+        response.put("error", run.getError());
+        return response;
+    }
 }
@@ -1,26 +1,25 @@
 package org.example.backend.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.MovementBucket;
+import org.example.backend.dto.projection.TaskBucket;
 import org.example.backend.dto.response.ApiResponse;
-import org.example.backend.entity.StockLedger;
-import org.example.backend.entity.Transaction;
-import org.example.backend.entity.User;
-import org.example.backend.enums.MovementType;
-import org.example.backend.enums.Role;
-import org.example.backend.enums.TransactionStatus;
-import org.example.backend.repository.StockLedgerRepository;
-import org.example.backend.repository.TaskDiscrepancyRepository;
-import org.example.backend.repository.TransactionRepository;
-import org.example.backend.repository.UserRepository;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.service.DemandHistoryService;
+import org.example.backend.service.ReportRollupService;
+import org.example.backend.service.ReportService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/admin/reports")
@@ -28,96 +27,198 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AdminReportsController {
 
-    private final StockLedgerRepository stockLedgerRepository;
-    private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
-    private final TaskDiscrepancyRepository taskDiscrepancyRepository;
+    private static final Comparator<List<Object>> TREND_ORDER = Comparator
+            .comparing((List<Object> key) -> (LocalDateTime) key.get(0))
+            .thenComparing(key -> (String) key.get(1));
 
+    private final ReportService reportService;
+    private final ReportRollupService reportRollupService;
+    private final DemandHistoryService demandHistoryService;
+
+    /**
+     * Movement totals for the period, optionally grouped, and one keyset page
+     * of the movements (newest first). Pass {@code nextCursor} back as
+     * {@code cursor} for the following page.
+     */
     @GetMapping("/stock-movements")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getStockMovementReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam(required = false) UUID productId) {
-
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-
-        List<StockLedger> movements = stockLedgerRepository.findMovementsByDateRange(productId, start, end);
+            @RequestParam(required = false) UUID productId,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
 
-        int totalIn = 0;
-        int totalOut = 0;
-        for (StockLedger ledger : movements) {
-            if (ledger.getMovementType() == MovementType.IN) {
-                totalIn += ledger.getQuantity();
-            } else if (ledger.getMovementType() == MovementType.OUT) {
-                totalOut += ledger.getQuantity();
-            }
-        }
-
-        List<Map<String, Object>> movementList = movements.stream().map(m -> {
-            Map<String, Object> map = new LinkedHashMap<>();
-            map.put("id", m.getId());
-            map.put("productSku", m.getProduct().getSku());
-            map.put("productName", m.getProduct().getName());
-            map.put("locationCode", m.getLocation().getCode());
-            map.put("movementType", m.getMovementType().name());
-            map.put("quantity", m.getQuantity());
-            map.put("performedBy", m.getPerformedBy().getFullName());
-            map.put("performedAt", m.getPerformedAt());
-            return map;
-        }).collect(Collectors.toList());
-
-        Map<String, Object> response = new LinkedHashMap<>();
-        response.put("period", startDate + " to " + endDate);
-        response.put("movements", movementList);
-        response.put("summary", Map.of(
-                "totalIn", totalIn,
-                "totalOut", totalOut,
-                "netChange", totalIn - totalOut));
+        Map<String, Object> response = reportService.stockMovementReport(startDate, endDate, productId, groupBy,
+                cursor, limit);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Stock movement report generated"));
     }
 
+    /**
+     * Per-employee task and discrepancy counts for the period. Large periods
+     * are better run as a report job (POST /reports/jobs).
+     */
     @GetMapping("/user-productivity")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getUserProductivityReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) UUID userId) {
 
-        List<User> employees;
-        if (userId != null) {
-            employees = userRepository.findById(userId).map(List::of).orElse(List.of());
-        } else {
-            employees = userRepository.findByRole(Role.EMPLOYEE);
+        Map<String, Object> response = reportService.userProductivityReport(startDate, endDate, userId);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "User productivity report generated"));
+    }
+
+    /**
+     * Movement trend of everything or of one product, location, warehouse or
+     * employee, per day or hour, read from the rollups.
+     */
+    @GetMapping("/trends/movements")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMovementTrend(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "all") String dimension,
+            @RequestParam(required = false) UUID id,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        RollupDimension rollupDimension = parseOption(RollupDimension.class, dimension, "dimension");
+        RollupGranularity rollupGranularity = parseOption(RollupGranularity.class, granularity, "granularity");
+        List<MovementBucket> buckets = reportRollupService.movementBuckets(rollupGranularity, rollupDimension, id,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())
+                .orElseThrow(() -> notRolledUp(startDate));
+
+        // Key: bucket start and movement type; value: movements, quantity
+        Map<List<Object>, long[]> points = new TreeMap<>(TREND_ORDER);
+        for (MovementBucket bucket : buckets) {
+            long[] point = points.computeIfAbsent(
+                    List.of(trendBucket(rollupGranularity, bucket.bucketStart()), bucket.movementType().name()),
+                    key -> new long[2]);
+            point[0] += bucket.movements();
+            point[1] += bucket.quantity();
         }
 
-        List<Map<String, Object>> userStats = employees.stream().map(user -> {
-            List<Transaction> tasks = transactionRepository.findByAssignedTo_Id(user.getId());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("period", startDate + " to " + endDate);
+        response.put("dimension", rollupDimension.name());
+        response.put("granularity", rollupGranularity.name());
+        response.put("points", points.entrySet().stream().map(e -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bucket", e.getKey().get(0));
+            map.put("movementType", e.getKey().get(1));
+            map.put("movements", e.getValue()[0]);
+            map.put("quantity", e.getValue()[1]);
+            return map;
+        }).toList());
 
-            long completed = tasks.stream()
-                    .filter(t -> t.getStatus() == TransactionStatus.COMPLETED)
-                    .filter(t -> t.getCompletedAt() != null &&
-                            !t.getCompletedAt().toLocalDate().isBefore(startDate) &&
-                            !t.getCompletedAt().toLocalDate().isAfter(endDate))
-                    .count();
+        return ResponseEntity.ok(ApiResponse.success(response, "Movement trend retrieved"));
+    }
 
-            long discrepancies = taskDiscrepancyRepository.findByResolvedAtIsNull().stream()
-                    .filter(d -> d.getReportedBy() != null && d.getReportedBy().getId().equals(user.getId()))
-                    .count();
+    /**
+     * Completed-task trend of everyone or of one employee, per day or hour, read
+     * from the rollups.
+     */
+    @GetMapping("/trends/tasks")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getTaskTrend(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        RollupGranularity rollupGranularity = parseOption(RollupGranularity.class, granularity, "granularity");
+        List<TaskBucket> buckets = reportRollupService.taskBuckets(rollupGranularity,
+                userId != null ? RollupDimension.EMPLOYEE : RollupDimension.ALL, userId,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())
+                .orElseThrow(() -> notRolledUp(startDate));
+
+        // Key: bucket start and task type; value: completed, timed, seconds
+        Map<List<Object>, long[]> points = new TreeMap<>(TREND_ORDER);
+        for (TaskBucket bucket : buckets) {
+            long[] point = points.computeIfAbsent(
+                    List.of(trendBucket(rollupGranularity, bucket.bucketStart()), bucket.taskType().name()),
+                    key -> new long[3]);
+            point[0] += bucket.tasksCompleted();
+            point[1] += bucket.timedTasks();
+            point[2] += bucket.totalSeconds();
+        }
 
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("period", startDate + " to " + endDate);
+        response.put("userId", userId);
+        response.put("granularity", rollupGranularity.name());
+        response.put("points", points.entrySet().stream().map(e -> {
             Map<String, Object> map = new LinkedHashMap<>();
-            map.put("userId", user.getId());
-            map.put("fullName", user.getFullName());
-            map.put("username", user.getUsername());
-            map.put("tasksCompleted", completed);
-            map.put("discrepanciesReported", discrepancies);
+            map.put("bucket", e.getKey().get(0));
+            map.put("taskType", e.getKey().get(1));
+            map.put("tasksCompleted", e.getValue()[0]);
+            map.put("averageTaskMinutes", e.getValue()[1] > 0
+                    ? Math.round((double) e.getValue()[2] / e.getValue()[1] / 6.0) / 10.0
+                    : null);
             return map;
-        }).collect(Collectors.toList());
+        }).toList());
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Task trend retrieved"));
+    }
 
+    @GetMapping("/rollups")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getRollupStatus() {
         Map<String, Object> response = new LinkedHashMap<>();
-        response.put("period", startDate + " to " + endDate);
-        response.put("users", userStats);
+        response.put("rebuilding", reportRollupService.isRebuilding());
+        response.put("rollups", reportRollupService.getStatus());
+        return ResponseEntity.ok(ApiResponse.success(response, "Rollup status retrieved"));
+    }
 
-        return ResponseEntity.ok(ApiResponse.success(response, "User productivity report generated"));
+    /**
+     * Recompute the rollups from {@code from} (backfill); runs in the
+     * background, see GET /rollups.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        reportRollupService.startRebuild(from);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(Map.of("from", from), "Rollup rebuild started"));
+    }
+
+    @GetMapping("/demand-history")
+    public ResponseEntity<ApiResponse<DemandHistoryService.BuildStatus>> getDemandHistoryStatus() {
+        return ResponseEntity.ok(ApiResponse.success(demandHistoryService.getStatus(),
+                "Demand history status retrieved"));
+    }
+
+    @PostMapping("/demand-history/run")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> refreshDemandHistory() {
+        int windows = demandHistoryService.refresh();
+        return ResponseEntity.ok(ApiResponse.success(Map.of("windows", windows), "Demand history refreshed"));
+    }
+
+    /**
+     * Rebuild the demand history from {@code from}, including archived
+     * months; runs in the background, see GET /demand-history.
+     */
+    @PostMapping("/demand-history/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backfillDemandHistory(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        demandHistoryService.startBackfill(from);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(Map.of("from", from), "Demand history backfill started"));
+    }
+
+    private static LocalDateTime trendBucket(RollupGranularity granularity, LocalDateTime bucketStart) {
+        return granularity == RollupGranularity.DAY ? bucketStart.truncatedTo(ChronoUnit.DAYS) : bucketStart;
+    }
+
+    private static InvalidOperationException notRolledUp(LocalDate startDate) {
+        return new InvalidOperationException("Rollups do not cover " + startDate
+                + "; rebuild them from that date (POST /admin/reports/rollups/rebuild)");
+    }
+
+    private static <E extends Enum<E>> E parseOption(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported " + name + ": " + value + ". Expected one of "
+                    + Arrays.toString(type.getEnumConstants()).toLowerCase());
+        }
     }
 }
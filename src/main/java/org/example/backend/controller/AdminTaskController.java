@@ -5,15 +5,14 @@ import lombok.RequiredArgsConstructor;
 import org.example.backend.dto.request.AdminCreateTaskRequest;
 import org.example.backend.dto.request.UpdateTaskRequest;
 import org.example.backend.dto.response.ApiResponse;
-import org.example.backend.entity.Chariot;
-import org.example.backend.entity.Product;
 import org.example.backend.entity.Transaction;
-import org.example.backend.entity.TransactionLine;
 import org.example.backend.entity.User;
 import org.example.backend.enums.TransactionStatus;
 import org.example.backend.enums.TransactionType;
 import org.example.backend.exception.ResourceNotFoundException;
 import org.example.backend.repository.*;
+import org.example.backend.service.AdminTaskService;
+import org.example.backend.service.StockReservationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
@@ -32,11 +31,9 @@ import java.util.*;
 public class AdminTaskController {
 
     private final TransactionRepository transactionRepository;
-    private final TransactionLineRepository transactionLineRepository;
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
-    private final LocationRepository locationRepository;
-    private final ChariotRepository chariotRepository;
+    private final AdminTaskService adminTaskService;
+    private final StockReservationService stockReservationService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAllTasks(
@@ -65,60 +62,7 @@ public class AdminTaskController {
             @Valid @RequestBody AdminCreateTaskRequest request,
             Authentication authentication) {
 
-        User creator = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        Transaction transaction = Transaction.builder()
-                .type(request.getType())
-                .reference(generateReference(request.getType()))
-                .status(TransactionStatus.PENDING)
-                .priority(request.getPriority())
-                .createdBy(creator)
-                .notes(request.getNotes())
-                .build();
-
-        if (request.getAssignedToId() != null) {
-            User assignee = userRepository.findById(request.getAssignedToId())
-                    .orElseThrow(
-                            () -> new ResourceNotFoundException("Assignee not found: " + request.getAssignedToId()));
-            transaction.setAssignedTo(assignee);
-            transaction.setAssignedAt(LocalDateTime.now());
-        }
-
-        if (request.getChariotId() != null) {
-            Chariot chariot = chariotRepository.findById(request.getChariotId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Chariot not found: " + request.getChariotId()));
-            transaction.setChariot(chariot);
-        }
-
-        transaction = transactionRepository.save(transaction);
-
-        // Create transaction lines
-        if (request.getLines() != null) {
-            int lineNumber = 1;
-            for (AdminCreateTaskRequest.TaskLine line : request.getLines()) {
-                Product product = productRepository.findById(line.getProductId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + line.getProductId()));
-
-                TransactionLine tl = TransactionLine.builder()
-                        .transaction(transaction)
-                        .lineNumber(lineNumber++)
-                        .product(product)
-                        .quantity(line.getQuantity())
-                        .build();
-
-                if (line.getSourceLocationId() != null) {
-                    tl.setSourceLocation(locationRepository.findById(line.getSourceLocationId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Source location not found")));
-                }
-                if (line.getDestinationLocationId() != null) {
-                    tl.setDestinationLocation(locationRepository.findById(line.getDestinationLocationId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Destination location not found")));
-                }
-
-                transactionLineRepository.save(tl);
-            }
-        }
+        Transaction transaction = adminTaskService.createTask(request, authentication.getName());
 
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("id", transaction.getId());
@@ -157,6 +101,11 @@ public class AdminTaskController {
             transaction.setNotes(request.getNotes());
 
         transaction = transactionRepository.save(transaction);
+        if (request.getStatus() == TransactionStatus.CANCELLED
+                || request.getStatus() == TransactionStatus.COMPLETED
+                || request.getStatus() == TransactionStatus.FAILED) {
+            stockReservationService.releaseForTransaction(transaction.getId());
+        }
 
         return ResponseEntity.ok(ApiResponse.success(toTaskMap(transaction), "Task updated successfully"));
     }
@@ -168,6 +117,7 @@ public class AdminTaskController {
 
         transaction.setStatus(TransactionStatus.CANCELLED);
         transactionRepository.save(transaction);
+        stockReservationService.releaseForTransaction(taskId);
 
         return ResponseEntity.ok(ApiResponse.success(
                 Map.of("message", "Task cancelled successfully"), "Task cancelled successfully"));
@@ -194,15 +144,4 @@ public class AdminTaskController {
         map.put("completedAt", t.getCompletedAt());
         return map;
     }
-
-    private String generateReference(TransactionType type) {
-        String prefix = switch (type) {
-            case RECEIPT -> "RCV";
-            case TRANSFER -> "TRF";
-            case PICKING -> "PCK";
-            case DELIVERY -> "DLV";
-            default -> throw new IllegalArgumentException("Unexpected value: " + type);
-        };
-        return prefix + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 }
@@ -6,6 +6,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.backend.dto.request.*;
 import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.enums.ForecastEngine;
+import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.service.AiIntegrationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -52,12 +54,28 @@ public class AiController {
     // ======================== FORECASTING ========================
 
     @PostMapping("/predict")
-    @Operation(summary = "Predict demand", description = "Predict demand for given products on a specific date using XGBoost + Prophet ensemble")
+    @Operation(summary = "Predict demand", description = "Predict demand for given products on a specific date using XGBoost + Prophet ensemble; "
+            + "engine=auto falls back to the local forecaster when the AI service is down or fails (5xx), engine=local uses it "
+            + "directly (empty product_ids: every active product); the message says when the local forecaster answered "
+            + "and how many ids matched no SKU (null predicted_demand)")
     @PreAuthorize("hasAuthority('operation:read')")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> predict(@RequestBody AiForecastRequest request) {
-        List<Map<String, Object>> predictions = aiIntegrationService.predictDemand(request);
-        return ResponseEntity.ok(ApiResponse.success(predictions,
-                "Demand predictions for " + request.getProductIds().size() + " products"));
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> predict(@RequestBody AiForecastRequest request,
+            @RequestParam(defaultValue = "auto") String engine) {
+        ForecastEngine forecastEngine = parseEngine(engine);
+        List<Map<String, Object>> predictions = aiIntegrationService.predictDemand(request, forecastEngine);
+        StringBuilder message = new StringBuilder("Demand predictions for " + predictions.size() + " products");
+        if (predictions.stream().anyMatch(prediction -> "local".equals(prediction.get("engine")))) {
+            if (forecastEngine == ForecastEngine.AUTO) {
+                message.append(" from the local forecaster: the AI service is unavailable");
+            }
+            long unknown = predictions.stream()
+                    .filter(prediction -> prediction.get("predicted_demand") == null)
+                    .count();
+            if (unknown > 0) {
+                message.append("; ").append(unknown).append(" product ids match no SKU and have no forecast");
+            }
+        }
+        return ResponseEntity.ok(ApiResponse.success(predictions, message.toString()));
     }
 
     @PostMapping("/generate-forecast")
@@ -137,4 +155,20 @@ public class AiController {
         Map<String, Object> result = aiIntegrationService.resetWarehouse();
         return ResponseEntity.ok(ApiResponse.success(result, "AI warehouse state reset"));
     }
+
+    @DeleteMapping("/cache")
+    @Operation(summary = "Clear AI result cache", description = "Drop cached predictions, explanations, warehouse state and model info, e.g. after a model deployment")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> invalidateCache() {
+        aiIntegrationService.invalidateCache();
+        return ResponseEntity.ok(ApiResponse.success("AI result cache cleared"));
+    }
+
+    private static ForecastEngine parseEngine(String engine) {
+        try {
+            return ForecastEngine.valueOf(engine.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported engine: " + engine + ". Expected one of auto, ai, local");
+        }
+    }
 }
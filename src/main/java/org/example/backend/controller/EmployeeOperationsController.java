@@ -8,6 +8,7 @@ import org.example.backend.dto.request.ReportIssueRequest;
 import org.example.backend.dto.request.StartOperationRequest;
 import org.example.backend.dto.response.ApiResponse;
 import org.example.backend.service.EmployeeWorkflowService;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -39,11 +40,18 @@ public class EmployeeOperationsController {
     @PreAuthorize("hasAuthority('operation:write')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> executeLine(
             @Valid @RequestBody ExecuteLineRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
 
-        return ResponseEntity.ok(ApiResponse.success(
-                employeeWorkflowService.executeOperationLine(authentication.getName(), request),
-                "Line executed successfully"));
+        Map<String, Object> result;
+        try {
+            result = employeeWorkflowService.executeOperationLine(authentication.getName(), request, idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry of the same line committed first; answer with its response
+            result = employeeWorkflowService.findExecutedLine(authentication.getName(), request, idempotencyKey)
+                    .orElseThrow(() -> e);
+        }
+        return ResponseEntity.ok(ApiResponse.success(result, "Line executed successfully"));
     }
 
     @PostMapping("/report-issue")
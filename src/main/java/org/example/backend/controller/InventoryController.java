@@ -1,6 +1,10 @@
 package org.example.backend.controller;
 
+import lombok.RequiredArgsConstructor;
 import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.dto.response.LocationContentsResponse;
+import org.example.backend.dto.response.StockResponse;
+import org.example.backend.service.InventoryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,57 +13,37 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/inventory")
+@RequiredArgsConstructor
 public class InventoryController {
 
+    private final InventoryService inventoryService;
+
     @GetMapping("/stock/product/{productId}")
     @PreAuthorize("hasAuthority('inventory:read')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getProductStock(@PathVariable String productId) {
-        int totalStock = Math.abs(productId.hashCode() % 300) + 50;
-        Map<String, Object> response = Map.of(
-                "productId", productId,
-                "productSku", "SKU-" + productId,
-                "productName", "Product " + productId,
-                "totalStock", totalStock,
-                "unitOfMeasure", "pcs",
-                "locations", List.of(
-                        Map.of("locationCode", "B07-N1-A3", "quantity", totalStock / 2),
-                        Map.of("locationCode", "B07-N2-C7", "quantity", totalStock - (totalStock / 2))));
-
+    public ResponseEntity<ApiResponse<StockResponse>> getProductStock(@PathVariable UUID productId) {
+        StockResponse response = inventoryService.getProductStock(productId);
         return ResponseEntity.ok(ApiResponse.success(response, "Product stock retrieved"));
     }
 
     @GetMapping("/stock/search")
     @PreAuthorize("hasAuthority('inventory:read')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> searchStockBySku(@RequestParam String sku) {
-        int totalStock = Math.abs(sku.hashCode() % 250) + 30;
-        Map<String, Object> response = Map.of(
-                "productSku", sku,
-                "productName", "Product for " + sku,
-                "totalStock", totalStock,
-                "unitOfMeasure", "pcs",
-                "locations", List.of(
-                        Map.of("locationCode", "B07-N1-A5", "quantity", totalStock / 2),
-                        Map.of("locationCode", "B07-N2-B2", "quantity", totalStock - (totalStock / 2))));
-
+    public ResponseEntity<ApiResponse<StockResponse>> searchStockBySku(@RequestParam String sku) {
+        StockResponse response = inventoryService.getProductStockBySku(sku);
         return ResponseEntity.ok(ApiResponse.success(response, "Stock search completed"));
     }
 
+    /**
+     * Accepts the location id or its code as scanned on the rack label.
+     */
     @GetMapping("/location/{locationId}")
     @PreAuthorize("hasAuthority('inventory:read')")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getLocationContents(@PathVariable String locationId) {
-        Map<String, Object> response = Map.of(
-                "locationId", locationId,
-                "locationCode", "LOC-" + locationId,
-                "products", List.of(
-                        Map.of("productSku", "MIXER-001", "quantity", 100),
-                        Map.of("productSku", "VALVE-045", "quantity", 45)),
-                "capacityStatus", "NORMAL");
-
+    public ResponseEntity<ApiResponse<LocationContentsResponse>> getLocationContents(
+            @PathVariable String locationId) {
+        LocationContentsResponse response = inventoryService.getLocationContents(locationId);
         return ResponseEntity.ok(ApiResponse.success(response, "Location inventory retrieved"));
     }
 }
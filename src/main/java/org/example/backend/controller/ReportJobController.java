@@ -0,0 +1,126 @@
+package org.example.backend.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.request.ReportJobRequest;
+import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.service.ReportJobService;
+import org.example.backend.service.report.ReportJob;
+import org.example.backend.service.report.ReportSpec;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports computed in the background: submit a spec, then poll the job or
+ * subscribe to its events, and download the result once it has completed.
+ */
+@RestController
+@RequestMapping("/reports/jobs")
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+@RequiredArgsConstructor
+public class ReportJobController {
+
+    private static final long EVENTS_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final ReportJobService reportJobService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> submitReportJob(
+            @Valid @RequestBody ReportJobRequest request, Authentication authentication) {
+        ReportJob job = reportJobService.submit(ReportSpec.of(request.getType(), request.getParameters()),
+                request.getPriority(), authentication.getName());
+
+        return ResponseEntity.status(job.isDone() ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(toJobResponse(job), "Report job submitted"));
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getReportJobs() {
+        List<Map<String, Object>> response = reportJobService.getJobs().stream()
+                .map(this::toJobResponse)
+                .toList();
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Report jobs retrieved"));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getReportJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(ApiResponse.success(toJobResponse(reportJobService.getJob(jobId)),
+                "Report job retrieved"));
+    }
+
+    /**
+     * Server-sent events: the current status at once, then the final one when
+     * the job finishes.
+     */
+    @GetMapping("/{jobId}/events")
+    public SseEmitter subscribeToReportJob(@PathVariable UUID jobId) {
+        ReportJob job = reportJobService.getJob(jobId);
+        SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MS);
+        try {
+            emitter.send(SseEmitter.event().name("status").data(toJobResponse(job)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        // Not on the worker that completed the job: a slow client must not hold it
+        job.getCompletion().whenCompleteAsync((done, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(toJobResponse(done)));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getReportJobResult(@PathVariable UUID jobId) {
+        ReportJob job = reportJobService.getJob(jobId);
+        if (job.getStatus() != ReportJob.Status.COMPLETED) {
+            throw new InvalidOperationException("Report job " + jobId + " is " + job.getStatus()
+                    + (job.getError() != null ? ": " + job.getError() : ""));
+        }
+
+        return ResponseEntity.ok(ApiResponse.success(job.getResult(), "Report retrieved"));
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> cancelReportJob(@PathVariable UUID jobId,
+            Authentication authentication) {
+        ReportJob job = reportJobService.cancel(jobId, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success(toJobResponse(job),
+                job.getStatus() == ReportJob.Status.CANCELLED ? "Report job cancelled"
+                        : "Detached from the report job; it goes on for its other submitters"));
+    }
+
+    private Map<String, Object> toJobResponse(ReportJob job) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jobId", job.getId());
+        response.put("type", job.getSpec().type());
+        response.put("parameters", job.getSpec().parameters());
+        response.put("priority", job.getPriority());
+        response.put("status", job.getStatus().name());
+        response.put("cached", job.isCached());
+        response.put("requestedBy", job.getRequestedBy());
+        response.put("submitters", job.getSubmitters());
+        response.put("submittedAt", job.getSubmittedAt());
+        response.put("startedAt", job.getStartedAt());
+        response.put("finishedAt", job.getFinishedAt());
+        response.put("error", job.getError());
+        return response;
+    }
+}
@@ -2,6 +2,7 @@ package org.example.backend.controller;
 
 import jakarta.validation.constraints.NotBlank;
 import org.example.backend.dto.response.ApiResponse;
+import org.example.backend.util.LocationCodeParser;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,7 +24,7 @@ public class ScanController {
         String entityType;
         if (barcodeData.startsWith("CH-")) {
             entityType = "CHARIOT";
-        } else if (barcodeData.contains("-") && barcodeData.startsWith("B")) {
+        } else if (LocationCodeParser.isValid(barcodeData)) {
             entityType = "LOCATION";
         } else {
             entityType = "PRODUCT";
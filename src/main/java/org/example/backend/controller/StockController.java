@@ -1,16 +1,27 @@
 package org.example.backend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.LedgerRow;
+import org.example.backend.dto.projection.LedgerSummary;
 import org.example.backend.dto.response.ApiResponse;
 import org.example.backend.entity.StockLedger;
 import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,20 +33,24 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class StockController {
 
+    private static final int LEDGER_PAGE_SIZE = 1000;
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Lowest UUID in database order, so a cursor at LEDGER_START includes every row at that instant
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
     private final StockLedgerRepository stockLedgerRepository;
+    private final StockLedgerArchiveService archiveService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/summary")
     @PreAuthorize("hasAuthority('inventory:read')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getStockSummary() {
-        List<StockLedger> all = stockLedgerRepository.findAll();
-        long totalEntries = all.size();
-        long totalProducts = all.stream().map(s -> s.getProduct().getId()).distinct().count();
-        long totalLocations = all.stream().map(s -> s.getLocation().getId()).distinct().count();
+        LedgerSummary ledger = stockLedgerRepository.summarize();
 
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalEntries", totalEntries);
-        summary.put("totalProducts", totalProducts);
-        summary.put("totalLocations", totalLocations);
+        summary.put("totalEntries", ledger.totalEntries());
+        summary.put("totalProducts", ledger.totalProducts());
+        summary.put("totalLocations", ledger.totalLocations());
 
         return ResponseEntity.ok(ApiResponse.success(summary, "Stock summary retrieved"));
     }
@@ -58,13 +73,80 @@ public class StockController {
         return ResponseEntity.ok(ApiResponse.success(result, "Stock by location retrieved"));
     }
 
+    /**
+     * Streams the ledger in the usual response envelope, reading it in keyset
+     * pages of {@value #LEDGER_PAGE_SIZE} rows, so memory stays flat whatever the
+     * size of the ledger and no connection is held between pages.
+     *
+     * Only the entries still in the database are streamed: when the range
+     * reaches into archived months, the message says so and
+     * {@code archivedUntil} gives the end of the archive, where the data
+     * starts.
+     */
     @GetMapping("/ledger")
     @PreAuthorize("hasAuthority('inventory:read')")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getStockLedger() {
-        List<Map<String, Object>> result = stockLedgerRepository.findAll().stream()
-                .map(this::toMap)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(result, "Stock ledger retrieved"));
+    public ResponseEntity<StreamingResponseBody> getStockLedger(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime start = from != null ? from : LEDGER_START;
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime archivedUntil = archiveService.getArchivedUntil()
+                .filter(until -> until.isAfter(start))
+                .orElse(null);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeStringField("message", archivedUntil == null ? "Stock ledger retrieved"
+                        : "Stock ledger retrieved from " + archivedUntil
+                                + ": earlier entries are archived and not included");
+                if (archivedUntil != null) {
+                    json.writeObjectField("archivedUntil", archivedUntil);
+                }
+                json.writeArrayFieldStart("data");
+
+                LocalDateTime afterAt = start;
+                UUID afterId = FIRST_ID;
+                List<LedgerRow> page;
+                do {
+                    page = stockLedgerRepository.findRowsAfter(afterAt, afterId, end, Limit.of(LEDGER_PAGE_SIZE));
+                    for (LedgerRow row : page) {
+                        json.writeObject(toMap(row));
+                    }
+                    json.flush();
+                    if (!page.isEmpty()) {
+                        LedgerRow last = page.get(page.size() - 1);
+                        afterAt = last.performedAt();
+                        afterId = last.id();
+                    }
+                } while (page.size() == LEDGER_PAGE_SIZE);
+
+                json.writeEndArray();
+                json.writeObjectField("timestamp", LocalDateTime.now());
+                json.writeNullField("errorCode");
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private Map<String, Object> toMap(LedgerRow row) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", row.id());
+        map.put("movementType", row.movementType());
+        map.put("quantity", row.quantity());
+        map.put("runningBalance", row.runningBalance());
+        map.put("performedAt", row.performedAt());
+        map.put("product", Map.of(
+                "id", row.productId(),
+                "sku", row.productSku(),
+                "name", row.productName()));
+        map.put("location", Map.of(
+                "id", row.locationId(),
+                "code", row.locationCode()));
+        map.put("transactionId", row.transactionId());
+        return map;
     }
 
     private Map<String, Object> toMap(StockLedger s) {
@@ -0,0 +1,16 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.DemandSource;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One historique_demande row; a null source is an import.
+ */
+public record DemandObservation(
+        UUID productId,
+        LocalDate day,
+        Integer quantity,
+        DemandSource source) {
+}
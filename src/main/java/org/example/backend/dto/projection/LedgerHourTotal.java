@@ -0,0 +1,22 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Ledger movements of one hour at the finest grain the rollups are built
+ * from: product, location (and its warehouse), movement type and employee.
+ */
+public record LedgerHourTotal(
+        LocalDate day,
+        Integer hour,
+        UUID productId,
+        UUID locationId,
+        UUID warehouseId,
+        MovementType movementType,
+        UUID performedById,
+        Long movements,
+        Long quantity) {
+}
@@ -0,0 +1,24 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat read of a stock_ledger row with the product and location columns it is
+ * displayed with, so listing the ledger never loads the entity graph.
+ */
+public record LedgerRow(
+        UUID id,
+        MovementType movementType,
+        Integer quantity,
+        Integer runningBalance,
+        LocalDateTime performedAt,
+        UUID productId,
+        String productSku,
+        String productName,
+        UUID locationId,
+        String locationCode,
+        UUID transactionId) {
+}
@@ -0,0 +1,7 @@
+package org.example.backend.dto.projection;
+
+/**
+ * Size of the stock ledger: entries and distinct products and locations.
+ */
+public record LedgerSummary(Long totalEntries, Long totalProducts, Long totalLocations) {
+}
@@ -0,0 +1,10 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Ledger activity of one location over a period: number of movements and
+ * units received and shipped.
+ */
+public record LocationActivity(UUID locationId, Long movements, Long unitsIn, Long unitsOut) {
+}
@@ -0,0 +1,11 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * On-hand quantity of one product at a location, with the product columns a
+ * location listing needs.
+ */
+public record LocationProductQuantity(UUID productId, String sku, String name, Double volumePcs,
+        Integer quantity) {
+}
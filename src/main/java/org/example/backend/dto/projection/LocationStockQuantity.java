@@ -0,0 +1,9 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * On-hand quantity of a product at one location, with the location code.
+ */
+public record LocationStockQuantity(UUID productId, UUID locationId, String locationCode, Integer quantity) {
+}
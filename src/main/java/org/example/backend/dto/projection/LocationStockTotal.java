@@ -0,0 +1,9 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Stock held in one location: units and number of products with stock.
+ */
+public record LocationStockTotal(UUID locationId, String locationCode, Long quantity, Long products) {
+}
@@ -0,0 +1,19 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One movement rollup row: an hour or a day starting at {@code bucketStart}.
+ */
+public record MovementBucket(
+        RollupGranularity granularity,
+        LocalDateTime bucketStart,
+        UUID dimensionId,
+        MovementType movementType,
+        Long movements,
+        Long quantity) {
+}
@@ -0,0 +1,13 @@
+package org.example.backend.dto.projection;
+
+/**
+ * Ledger movements of one report group (a product SKU, a location code or a
+ * day): count and units received and shipped. {@code label} is the product
+ * name or the warehouse code, when the group has one.
+ */
+public record MovementGroupTotal(String group, String label, Long movements, Long unitsIn, Long unitsOut) {
+
+    public MovementGroupTotal(String group, Long movements, Long unitsIn, Long unitsOut) {
+        this(group, null, movements, unitsIn, unitsOut);
+    }
+}
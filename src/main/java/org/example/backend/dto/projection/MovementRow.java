@@ -0,0 +1,20 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A stock movement as listed in the movement report.
+ */
+public record MovementRow(
+        UUID id,
+        MovementType movementType,
+        Integer quantity,
+        LocalDateTime performedAt,
+        String productSku,
+        String productName,
+        String locationCode,
+        String performedBy) {
+}
@@ -0,0 +1,9 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.MovementType;
+
+/**
+ * Number of ledger movements of one type and their summed quantity.
+ */
+public record MovementTypeTotal(MovementType movementType, Long movements, Long quantity) {
+}
@@ -0,0 +1,13 @@
+package org.example.backend.dto.projection;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Units of a product that left the warehouse for customer orders on one day.
+ */
+public record ProductDayDemand(
+        UUID productId,
+        LocalDate day,
+        Long quantity) {
+}
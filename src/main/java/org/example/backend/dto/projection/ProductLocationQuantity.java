@@ -0,0 +1,10 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Aggregated quantity for a (product, location) pair, used by set-based
+ * ledger and balance queries.
+ */
+public record ProductLocationQuantity(UUID productId, UUID locationId, Long quantity) {
+}
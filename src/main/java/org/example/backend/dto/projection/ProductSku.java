@@ -0,0 +1,8 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+public record ProductSku(
+        UUID productId,
+        String sku) {
+}
@@ -0,0 +1,23 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * A product with its on-hand quantity summed over all locations, read from the
+ * stock_balance projection in the same query.
+ */
+public record ProductStockTotal(
+        UUID productId,
+        String sku,
+        String name,
+        String category,
+        Double price,
+        String unitOfMeasure,
+        Integer minStock,
+        Integer maxStock,
+        Long totalStock) {
+
+    public boolean isLowStock() {
+        return minStock != null && totalStock < minStock;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.RollupGranularity;
+import org.example.backend.enums.TransactionType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One task rollup row: an hour or a day starting at {@code bucketStart}.
+ */
+public record TaskBucket(
+        RollupGranularity granularity,
+        LocalDateTime bucketStart,
+        UUID dimensionId,
+        TransactionType taskType,
+        Long tasksCompleted,
+        Long timedTasks,
+        Long totalSeconds) {
+}
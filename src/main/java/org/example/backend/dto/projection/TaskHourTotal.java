@@ -0,0 +1,20 @@
+package org.example.backend.dto.projection;
+
+import org.example.backend.enums.TransactionType;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Tasks completed in one hour by one assignee (null when unassigned), per
+ * task type, with the summed duration of those that have a start time.
+ */
+public record TaskHourTotal(
+        LocalDate day,
+        Integer hour,
+        UUID assigneeId,
+        TransactionType taskType,
+        Long tasksCompleted,
+        Long timedTasks,
+        Long totalSeconds) {
+}
@@ -0,0 +1,10 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Discrepancies reported by a user: reported in a period, and still open
+ * whenever they were reported.
+ */
+public record UserDiscrepancyCount(UUID userId, Long reportedInPeriod, Long open) {
+}
@@ -0,0 +1,9 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Operation lines executed by a user in a period.
+ */
+public record UserLineCount(UUID userId, Long linesExecuted) {
+}
@@ -0,0 +1,10 @@
+package org.example.backend.dto.projection;
+
+import java.util.UUID;
+
+/**
+ * Tasks an employee completed in a period and their average duration from
+ * start to completion, in seconds (null when none was started).
+ */
+public record UserTaskStats(UUID userId, Long tasksCompleted, Double averageTaskSeconds) {
+}
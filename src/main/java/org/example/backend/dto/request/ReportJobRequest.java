@@ -0,0 +1,28 @@
+package org.example.backend.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.backend.enums.ReportPriority;
+import org.example.backend.enums.ReportType;
+
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobRequest {
+
+    @NotNull(message = "Report type is required")
+    private ReportType type;
+
+    private ReportPriority priority;
+
+    /**
+     * Query parameters of the report's endpoint, e.g. startDate and endDate.
+     */
+    private Map<String, String> parameters;
+}
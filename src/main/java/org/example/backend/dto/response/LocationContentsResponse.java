@@ -0,0 +1,34 @@
+package org.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationContentsResponse {
+
+    private UUID locationId;
+    private String locationCode;
+    private String zone;
+    private String type;
+    private List<ProductQuantity> products;
+    private String capacityStatus;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ProductQuantity {
+        private UUID productId;
+        private String productSku;
+        private String productName;
+        private int quantity;
+    }
+}
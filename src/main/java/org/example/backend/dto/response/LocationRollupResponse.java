@@ -0,0 +1,41 @@
+package org.example.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationRollupResponse {
+
+    private String groupBy;
+    private LocalDateTime activityFrom;
+    private LocalDateTime activityTo;
+    private List<Group> groups;
+    /** Locations whose code does not follow the B07-N1-A3 pattern. */
+    private List<String> unparsedLocations;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Group {
+        private String group;
+        private int block;
+        private String aisle;
+        private Integer level;
+        private int locations;
+        private int occupiedLocations;
+        private long quantity;
+        private long productSlots;
+        private long movements;
+        private long unitsIn;
+        private long unitsOut;
+    }
+}
@@ -1,4 +1,33 @@
 package org.example.backend.dto.response;
 
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class StockResponse {
+
+    private UUID productId;
+    private String productSku;
+    private String productName;
+    private String unitOfMeasure;
+    private long totalStock;
+    private List<LocationQuantity> locations;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LocationQuantity {
+        private UUID locationId;
+        private String locationCode;
+        private int quantity;
+    }
 }
@@ -2,6 +2,8 @@ package org.example.backend.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -15,14 +17,20 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.example.backend.enums.DemandSource;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Daily demand of a product. A day can have an imported row and a row built
+ * from the ledger; readers prefer the ledger one.
+ */
 @Entity
 @Table(name = "historique_demande", indexes = {
-        @Index(name = "idx_demand_product_date", columnList = "id_produit, date")
+        @Index(name = "idx_demand_product_date", columnList = "id_produit, date"),
+        @Index(name = "idx_demand_source_date", columnList = "source, date")
 })
 @Getter
 @Setter
@@ -45,6 +53,10 @@ public class DemandHistory {
     @Column(name = "quantite_demande", nullable = false)
     private Integer quantityDemanded;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private DemandSource source;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,34 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Commit marker of a write-behind ledger batch. It is inserted in the caller's
+ * transaction, so it exists exactly when the movements in the WAL record of the
+ * same id were committed, and is deleted in the group commit that writes them
+ * to stock_ledger. Markers left at startup are the batches to replay.
+ */
+@Entity
+@Table(name = "ledger_wal_batch")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerWalBatch {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
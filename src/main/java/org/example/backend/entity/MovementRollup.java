@@ -0,0 +1,38 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Stock ledger movements aggregated per hour or day, per movement type, for
+ * one product, location, warehouse or employee, or for everything. Written
+ * by the rollup job only.
+ */
+@Entity
+@Table(name = "movement_rollup", indexes = {
+        @Index(name = "idx_movement_rollup_dimension", columnList = "dimension, dimension_id, granularity, bucket_start")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovementRollup {
+
+    @EmbeddedId
+    private MovementRollupId id;
+
+    @Column(nullable = false)
+    private Long movements;
+
+    @Column(nullable = false)
+    private Long quantity;
+}
@@ -0,0 +1,45 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class MovementRollupId implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RollupDimension dimension;
+
+    @Column(nullable = false)
+    private UUID dimensionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MovementType movementType;
+}
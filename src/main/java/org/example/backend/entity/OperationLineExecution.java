@@ -0,0 +1,67 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Completion record of an executed operation line, written in the same
+ * transaction as its stock movement. A line executes at most once; retries
+ * are answered with the stored response.
+ */
+@Entity
+@Table(name = "operation_line_execution", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_line_execution_key", columnNames = { "idempotency_key" }),
+        @UniqueConstraint(name = "uk_line_execution_line", columnNames = { "transaction_id", "line_number" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperationLineExecution {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 200)
+    private String idempotencyKey;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_id", nullable = false)
+    private Transaction transaction;
+
+    @Column(name = "line_number", nullable = false)
+    private Integer lineNumber;
+
+    @Column(nullable = false, length = 100)
+    private String username;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseJson;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
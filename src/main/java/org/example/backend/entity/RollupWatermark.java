@@ -0,0 +1,40 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Range a rollup table is complete for: every hour in [coveredFrom,
+ * watermark) has been aggregated from the source rows.
+ */
+@Entity
+@Table(name = "rollup_watermark")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime coveredFrom;
+
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,76 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Check;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Materialized current balance of a product at a location.
+ * Maintained by {@link org.example.backend.service.StockLedgerService} in the
+ * same transaction as every ledger insert, and used as the row lock for
+ * ledger writes.
+ */
+@Entity
+@Table(name = "stock_balance", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_balance_product_location", columnNames = { "product_id", "location_id" })
+}, indexes = {
+        @Index(name = "idx_stock_balance_location", columnList = "location_id")
+})
+@Check(constraints = "quantity >= 0")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id", nullable = false)
+    private Location location;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "last_movement_at")
+    private LocalDateTime lastMovementAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
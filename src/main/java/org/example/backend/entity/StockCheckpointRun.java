@@ -0,0 +1,58 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One committed window of the checkpoint job. The highest watermark is where
+ * the next run resumes.
+ */
+@Entity
+@Table(name = "stock_checkpoint_run")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCheckpointRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private LocalDateTime previousWatermark;
+
+    @Column(nullable = false, unique = true)
+    private LocalDateTime watermark;
+
+    @Column(nullable = false)
+    private Integer pairsUpdated;
+
+    @Column(nullable = false)
+    private Long durationMs;
+
+    /** Ledger entries performed in (previousWatermark, watermark] when the window was checkpointed. */
+    private Long ledgerEntries;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
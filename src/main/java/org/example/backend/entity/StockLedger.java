@@ -26,7 +26,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "stock_ledger", indexes = {
-        @Index(name = "idx_stock_ledger_product_location", columnList = "product_id, location_id, performed_at")
+        @Index(name = "idx_stock_ledger_product_location", columnList = "product_id, location_id, performed_at"),
+        @Index(name = "idx_stock_ledger_performed_at", columnList = "performed_at")
 })
 @Check(constraints = "running_balance >= 0")
 @Getter
@@ -0,0 +1,41 @@
+package org.example.backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Completed tasks aggregated per hour or day and task type, for one employee
+ * or for everyone. {@code totalSeconds} sums the startedAt to completedAt
+ * duration of the {@code timedTasks} that have a start time.
+ */
+@Entity
+@Table(name = "task_rollup", indexes = {
+        @Index(name = "idx_task_rollup_dimension", columnList = "dimension, dimension_id, granularity, bucket_start")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskRollup {
+
+    @EmbeddedId
+    private TaskRollupId id;
+
+    @Column(nullable = false)
+    private Long tasksCompleted;
+
+    @Column(nullable = false)
+    private Long timedTasks;
+
+    @Column(nullable = false)
+    private Long totalSeconds;
+}
@@ -0,0 +1,11 @@
+package org.example.backend.enums;
+
+/**
+ * Origin of a historique_demande row.
+ */
+public enum DemandSource {
+    /** Loaded by a manual import; rows that predate the column have no source and count as imports. */
+    IMPORT,
+    /** Built from DELIVERY and PICKING ledger movements by the demand history job. */
+    LEDGER
+}
@@ -0,0 +1,13 @@
+package org.example.backend.enums;
+
+/**
+ * Which forecaster answers /ai/predict.
+ */
+public enum ForecastEngine {
+    /** The AI service, or the local forecaster when the AI service cannot be reached or fails. */
+    AUTO,
+    /** The AI service only. */
+    AI,
+    /** The local forecaster over historique_demande only. */
+    LOCAL
+}
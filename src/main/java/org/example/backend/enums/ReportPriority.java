@@ -0,0 +1,11 @@
+package org.example.backend.enums;
+
+/**
+ * Order in which queued report jobs are started; first come first served
+ * within a priority.
+ */
+public enum ReportPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,23 @@
+package org.example.backend.enums;
+
+import java.util.Set;
+
+/**
+ * Reports that can be run as report jobs, with the parameters each accepts
+ * (the query parameters of its endpoint).
+ */
+public enum ReportType {
+    STOCK_MOVEMENTS(Set.of("startDate", "endDate", "productId", "groupBy", "cursor", "limit")),
+    USER_PRODUCTIVITY(Set.of("startDate", "endDate", "userId")),
+    INVENTORY_SUMMARY(Set.of("category", "lowStockOnly", "page", "size"));
+
+    private final Set<String> parameters;
+
+    ReportType(Set<String> parameters) {
+        this.parameters = parameters;
+    }
+
+    public Set<String> getParameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.backend.enums;
+
+public enum ReservationStatus {
+    ACTIVE,
+    CONSUMED,
+    RELEASED
+}
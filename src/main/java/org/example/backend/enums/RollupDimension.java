@@ -0,0 +1,13 @@
+package org.example.backend.enums;
+
+/**
+ * What a rollup row is aggregated by. ALL rows carry the nil UUID as their
+ * dimension id.
+ */
+public enum RollupDimension {
+    ALL,
+    PRODUCT,
+    LOCATION,
+    WAREHOUSE,
+    EMPLOYEE
+}
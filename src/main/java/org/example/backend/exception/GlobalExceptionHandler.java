@@ -68,6 +68,16 @@ public class GlobalExceptionHandler {
                                 .body(ApiResponse.error(ex.getMessage(), "INSUFFICIENT_STOCK"));
         }
 
+        @ExceptionHandler(StockLockTimeoutException.class)
+        public ResponseEntity<ApiResponse<Void>> handleStockLockTimeout(
+                        StockLockTimeoutException ex, WebRequest request) {
+
+                log.error("Stock lock timeout: {}", ex.getMessage());
+
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                                .body(ApiResponse.error("Stock is busy. Please retry.", "STOCK_LOCK_TIMEOUT"));
+        }
+
         @ExceptionHandler(org.springframework.orm.ObjectOptimisticLockingFailureException.class)
         public ResponseEntity<ApiResponse<Void>> handleOptimisticLock(
                         org.springframework.orm.ObjectOptimisticLockingFailureException ex, WebRequest request) {
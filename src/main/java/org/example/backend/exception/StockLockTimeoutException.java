@@ -0,0 +1,12 @@
+package org.example.backend.exception;
+
+public class StockLockTimeoutException extends RuntimeException {
+
+    public StockLockTimeoutException(String message) {
+        super(message);
+    }
+
+    public StockLockTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,10 +1,14 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.projection.DemandObservation;
 import org.example.backend.entity.DemandHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,4 +20,11 @@ public interface DemandHistoryRepository extends JpaRepository<DemandHistory, UU
     List<DemandHistory> findByDateBetween(LocalDate startDate, LocalDate endDate);
 
     List<DemandHistory> findByProduct_IdAndDateBetween(UUID productId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT new org.example.backend.dto.projection.DemandObservation(" +
+            "d.product.id, d.date, d.quantityDemanded, d.source) " +
+            "FROM DemandHistory d " +
+            "WHERE d.product.id IN :productIds AND d.date >= :from AND d.date <= :to")
+    List<DemandObservation> findObservations(@Param("productIds") Collection<UUID> productIds,
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
 }
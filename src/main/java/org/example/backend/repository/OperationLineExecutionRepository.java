@@ -0,0 +1,16 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.OperationLineExecution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface OperationLineExecutionRepository extends JpaRepository<OperationLineExecution, UUID> {
+
+    Optional<OperationLineExecution> findByIdempotencyKey(String idempotencyKey);
+
+    Optional<OperationLineExecution> findByTransaction_IdAndLineNumber(UUID transactionId, Integer lineNumber);
+}
@@ -1,5 +1,6 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.projection.ProductSku;
 import org.example.backend.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,4 +36,15 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
             @Param("active") Boolean active,
             @Param("search") String search,
             Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p ORDER BY p.id")
+    List<UUID> findAllIds();
+
+    @Query("SELECT new org.example.backend.dto.projection.ProductSku(p.id, p.sku) FROM Product p " +
+            "WHERE p.sku IN :skus")
+    List<ProductSku> findSkusBySkuIn(@Param("skus") Collection<String> skus);
+
+    @Query("SELECT new org.example.backend.dto.projection.ProductSku(p.id, p.sku) FROM Product p " +
+            "WHERE p.active = true ORDER BY p.sku")
+    List<ProductSku> findActiveSkus();
 }
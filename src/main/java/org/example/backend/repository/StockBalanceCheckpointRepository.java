@@ -0,0 +1,67 @@
+package org.example.backend.repository;
+
+import org.example.backend.dto.projection.ProductLocationQuantity;
+import org.example.backend.entity.StockBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockBalanceCheckpointRepository extends JpaRepository<StockBalanceCheckpoint, UUID> {
+
+        /**
+         * Latest checkpoint of a pair with a watermark at or before the given time.
+         */
+        @Query("SELECT c FROM StockBalanceCheckpoint c WHERE c.product.id = :productId " +
+                        "AND c.location.id = :locationId AND c.watermark <= :at " +
+                        "ORDER BY c.watermark DESC LIMIT 1")
+        Optional<StockBalanceCheckpoint> findLatest(
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId,
+                        @Param("at") LocalDateTime at);
+
+        /**
+         * Latest checkpointed balance of every pair of the given products.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "c.product.id, c.location.id, c.balance) " +
+                        "FROM StockBalanceCheckpoint c WHERE c.product.id IN :productIds " +
+                        "AND c.watermark = (SELECT MAX(c2.watermark) FROM StockBalanceCheckpoint c2 " +
+                        "WHERE c2.product = c.product AND c2.location = c.location)")
+        List<ProductLocationQuantity> findLatestBalances(@Param("productIds") Collection<UUID> productIds);
+
+        /**
+         * Latest checkpointed balance per pair at or before the watermark, filtered
+         * by product, location and/or warehouse (null means no filter).
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "c.product.id, c.location.id, c.balance) " +
+                        "FROM StockBalanceCheckpoint c WHERE c.watermark <= :watermark " +
+                        "AND (:productId IS NULL OR c.product.id = :productId) " +
+                        "AND (:locationId IS NULL OR c.location.id = :locationId) " +
+                        "AND (:warehouseId IS NULL OR c.location.warehouse.id = :warehouseId) " +
+                        "AND c.watermark = (SELECT MAX(c2.watermark) FROM StockBalanceCheckpoint c2 " +
+                        "WHERE c2.product = c.product AND c2.location = c.location " +
+                        "AND c2.watermark <= :watermark)")
+        List<ProductLocationQuantity> findBalancesAt(
+                        @Param("watermark") LocalDateTime watermark,
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId,
+                        @Param("warehouseId") UUID warehouseId);
+
+        /**
+         * Drop the checkpoints taken at or after the given watermark, so that
+         * their windows can be checkpointed again.
+         */
+        @Modifying
+        @Query("DELETE FROM StockBalanceCheckpoint c WHERE c.watermark >= :from")
+        int deleteFromWatermark(@Param("from") LocalDateTime from);
+}
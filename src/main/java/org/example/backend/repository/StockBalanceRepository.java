@@ -0,0 +1,100 @@
+package org.example.backend.repository;
+
+import org.example.backend.dto.projection.LocationProductQuantity;
+import org.example.backend.dto.projection.LocationStockQuantity;
+import org.example.backend.dto.projection.LocationStockTotal;
+import org.example.backend.dto.projection.ProductStockTotal;
+import org.example.backend.entity.StockBalance;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockBalanceRepository extends JpaRepository<StockBalance, UUID> {
+
+        /**
+         * Lock the balance row of a product at a location for a ledger write.
+         */
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT b FROM StockBalance b WHERE b.product.id = :productId AND b.location.id = :locationId")
+        Optional<StockBalance> findForUpdate(
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId);
+
+        /**
+         * Read the current quantity without lock.
+         */
+        @Query("SELECT b.quantity FROM StockBalance b WHERE b.product.id = :productId AND b.location.id = :locationId")
+        Optional<Integer> findQuantity(
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId);
+
+        /**
+         * Active products with their total on-hand quantity, optionally limited to
+         * the ones below their minimum stock. Products without any balance row
+         * count as 0.
+         */
+        @Query(value = "SELECT new org.example.backend.dto.projection.ProductStockTotal(" +
+                        "p.id, p.sku, p.name, p.category, p.price, p.unitOfMeasure, p.minStock, p.maxStock, " +
+                        "COALESCE((SELECT SUM(b.quantity) FROM StockBalance b WHERE b.product = p), 0L)) " +
+                        "FROM Product p WHERE p.active = true " +
+                        "AND (:category IS NULL OR p.category = :category) " +
+                        "AND (:lowStockOnly = false OR (p.minStock IS NOT NULL " +
+                        "AND COALESCE((SELECT SUM(b2.quantity) FROM StockBalance b2 WHERE b2.product = p), 0L) < p.minStock))",
+                        countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true " +
+                                        "AND (:category IS NULL OR p.category = :category) " +
+                                        "AND (:lowStockOnly = false OR (p.minStock IS NOT NULL " +
+                                        "AND COALESCE((SELECT SUM(b2.quantity) FROM StockBalance b2 WHERE b2.product = p), 0L) < p.minStock))")
+        Page<ProductStockTotal> findProductTotals(
+                        @Param("category") String category,
+                        @Param("lowStockOnly") boolean lowStockOnly,
+                        Pageable pageable);
+
+        /**
+         * Number of active products below their minimum stock, over the whole catalog.
+         */
+        @Query("SELECT COUNT(p) FROM Product p WHERE p.active = true " +
+                        "AND (:category IS NULL OR p.category = :category) " +
+                        "AND p.minStock IS NOT NULL " +
+                        "AND COALESCE((SELECT SUM(b.quantity) FROM StockBalance b WHERE b.product = p), 0L) < p.minStock")
+        long countLowStock(@Param("category") String category);
+
+        /**
+         * Non-empty locations of the given products.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.LocationStockQuantity(" +
+                        "b.product.id, l.id, l.code, b.quantity) " +
+                        "FROM StockBalance b JOIN b.location l " +
+                        "WHERE b.product.id IN :productIds AND b.quantity > 0 ORDER BY l.code")
+        List<LocationStockQuantity> findLocationStock(@Param("productIds") Collection<UUID> productIds);
+
+        /**
+         * Non-empty products stored at a location.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.LocationProductQuantity(" +
+                        "p.id, p.sku, p.name, p.volumePcs, b.quantity) " +
+                        "FROM StockBalance b JOIN b.product p " +
+                        "WHERE b.location.id = :locationId AND b.quantity > 0 ORDER BY p.sku")
+        List<LocationProductQuantity> findLocationContents(@Param("locationId") UUID locationId);
+
+        /**
+         * Every location with its stock, empty ones included, optionally limited
+         * to one warehouse.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.LocationStockTotal(" +
+                        "l.id, l.code, COALESCE(SUM(b.quantity), 0L), COUNT(b.id)) " +
+                        "FROM Location l LEFT JOIN StockBalance b ON b.location = l AND b.quantity > 0 " +
+                        "WHERE (:warehouseId IS NULL OR l.warehouse.id = :warehouseId) " +
+                        "GROUP BY l.id, l.code")
+        List<LocationStockTotal> findLocationTotals(@Param("warehouseId") UUID warehouseId);
+}
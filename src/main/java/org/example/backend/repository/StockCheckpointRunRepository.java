@@ -0,0 +1,27 @@
+package org.example.backend.repository;
+
+import org.example.backend.entity.StockCheckpointRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockCheckpointRunRepository extends JpaRepository<StockCheckpointRun, UUID> {
+
+    Optional<StockCheckpointRun> findTopByOrderByWatermarkDesc();
+
+    Optional<StockCheckpointRun> findTopByWatermarkLessThanEqualOrderByWatermarkDesc(LocalDateTime at);
+
+    List<StockCheckpointRun> findByWatermarkGreaterThanOrderByWatermarkAsc(LocalDateTime after);
+
+    @Modifying
+    @Query("DELETE FROM StockCheckpointRun r WHERE r.watermark >= :from")
+    int deleteFromWatermark(@Param("from") LocalDateTime from);
+}
@@ -1,14 +1,28 @@
 package org.example.backend.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.backend.dto.projection.LedgerHourTotal;
+import org.example.backend.dto.projection.LedgerRow;
+import org.example.backend.dto.projection.LocationActivity;
+import org.example.backend.dto.projection.MovementGroupTotal;
+import org.example.backend.dto.projection.MovementRow;
+import org.example.backend.dto.projection.MovementTypeTotal;
+import org.example.backend.dto.projection.LedgerSummary;
+import org.example.backend.dto.projection.ProductDayDemand;
+import org.example.backend.dto.projection.ProductLocationQuantity;
+import org.example.backend.dto.projection.UserLineCount;
 import org.example.backend.entity.StockLedger;
+import org.example.backend.enums.TransactionType;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import jakarta.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,11 +36,93 @@ public interface StockLedgerRepository extends JpaRepository<StockLedger, UUID>
 
         List<StockLedger> findByProduct_IdAndLocation_Id(UUID productId, UUID locationId);
 
+        /**
+         * Net quantity of a pair over the entries performed after the given time.
+         * Combined with the latest checkpoint, so only recent history is summed.
+         */
         @Query("SELECT COALESCE(SUM(CASE WHEN s.movementType = 'IN' THEN s.quantity " +
                         "WHEN s.movementType = 'OUT' THEN -s.quantity " +
                         "ELSE s.quantity END), 0) " +
-                        "FROM StockLedger s WHERE s.product.id = :productId AND s.location.id = :locationId")
-        Long calculateBalance(@Param("productId") UUID productId, @Param("locationId") UUID locationId);
+                        "FROM StockLedger s WHERE s.product.id = :productId AND s.location.id = :locationId " +
+                        "AND s.performedAt > :after")
+        Long calculateBalanceAfter(
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId,
+                        @Param("after") LocalDateTime after);
+
+        /**
+         * Net quantity per pair over the entries performed in (from, to].
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "s.product.id, s.location.id, " +
+                        "COALESCE(SUM(CASE WHEN s.movementType = 'IN' THEN s.quantity " +
+                        "WHEN s.movementType = 'OUT' THEN -s.quantity " +
+                        "ELSE s.quantity END), 0)) " +
+                        "FROM StockLedger s WHERE s.performedAt > :from AND s.performedAt <= :to " +
+                        "GROUP BY s.product.id, s.location.id")
+        List<ProductLocationQuantity> calculateBalanceDeltas(
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        /**
+         * Net quantity per pair over the entries performed in (from, to], filtered by
+         * product, location and/or warehouse (null means no filter).
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "s.product.id, s.location.id, " +
+                        "COALESCE(SUM(CASE WHEN s.movementType = 'IN' THEN s.quantity " +
+                        "WHEN s.movementType = 'OUT' THEN -s.quantity " +
+                        "ELSE s.quantity END), 0)) " +
+                        "FROM StockLedger s WHERE s.performedAt > :from AND s.performedAt <= :to " +
+                        "AND (:productId IS NULL OR s.product.id = :productId) " +
+                        "AND (:locationId IS NULL OR s.location.id = :locationId) " +
+                        "AND (:warehouseId IS NULL OR s.location.warehouse.id = :warehouseId) " +
+                        "GROUP BY s.product.id, s.location.id")
+        List<ProductLocationQuantity> calculateFilteredBalanceDeltas(
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to,
+                        @Param("productId") UUID productId,
+                        @Param("locationId") UUID locationId,
+                        @Param("warehouseId") UUID warehouseId);
+
+        /**
+         * Number of entries performed in (from, to].
+         */
+        @Query("SELECT COUNT(s) FROM StockLedger s WHERE s.performedAt > :from AND s.performedAt <= :to")
+        long countPerformedBetween(
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        /**
+         * Distinct transaction lines moved by each of the users in [from, to),
+         * whichever flow executed them. A transfer line has two entries and
+         * counts once.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.UserLineCount(" +
+                        "s.performedBy.id, COUNT(DISTINCT s.transactionLine.id)) " +
+                        "FROM StockLedger s WHERE s.performedBy.id IN :userIds " +
+                        "AND s.transactionLine IS NOT NULL " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY s.performedBy.id")
+        List<UserLineCount> countLinesByUser(
+                        @Param("userIds") Collection<UUID> userIds,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        @Query("SELECT MIN(s.performedAt) FROM StockLedger s")
+        Optional<LocalDateTime> findEarliestPerformedAt();
+
+        /**
+         * Net quantity per (product, location) pair over the whole ledger. Used to
+         * (re)build the stock_balance projection.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "s.product.id, s.location.id, " +
+                        "COALESCE(SUM(CASE WHEN s.movementType = 'IN' THEN s.quantity " +
+                        "WHEN s.movementType = 'OUT' THEN -s.quantity " +
+                        "ELSE s.quantity END), 0)) " +
+                        "FROM StockLedger s GROUP BY s.product.id, s.location.id")
+        List<ProductLocationQuantity> calculateAllBalances();
 
         @Query("SELECT s FROM StockLedger s WHERE " +
                         "(:productId IS NULL OR s.product.id = :productId) " +
@@ -40,18 +136,6 @@ public interface StockLedgerRepository extends JpaRepository<StockLedger, UUID>
         @Query("SELECT DISTINCT s.product.id FROM StockLedger s WHERE s.location.id = :locationId")
         List<UUID> findDistinctProductIdsByLocationId(@Param("locationId") UUID locationId);
 
-        /**
-         * Get the latest stock ledger entry for a product at a location (for running
-         * balance).
-         * Uses pessimistic write lock for concurrency safety.
-         */
-        @Lock(LockModeType.PESSIMISTIC_WRITE)
-        @Query("SELECT s FROM StockLedger s WHERE s.product.id = :productId AND s.location.id = :locationId " +
-                        "ORDER BY s.performedAt DESC, s.createdAt DESC LIMIT 1")
-        Optional<StockLedger> findLatestByProductAndLocationForUpdate(
-                        @Param("productId") UUID productId,
-                        @Param("locationId") UUID locationId);
-
         /**
          * Get the latest stock ledger entry without lock (for reads).
          */
@@ -65,4 +149,135 @@ public interface StockLedgerRepository extends JpaRepository<StockLedger, UUID>
          * Find all stock entries by transaction.
          */
         List<StockLedger> findByTransaction_Id(UUID transactionId);
+
+        /**
+         * Keyset page of the ledger in (performedAt, id) order: the rows after the
+         * given cursor, up to {@code to}. Every page is an index range scan, however
+         * deep into the ledger it is.
+         */
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+        @Query("SELECT new org.example.backend.dto.projection.LedgerRow(" +
+                        "s.id, s.movementType, s.quantity, s.runningBalance, s.performedAt, " +
+                        "p.id, p.sku, p.name, l.id, l.code, s.transaction.id) " +
+                        "FROM StockLedger s JOIN s.product p JOIN s.location l " +
+                        "WHERE (s.performedAt > :afterAt OR (s.performedAt = :afterAt AND s.id > :afterId)) " +
+                        "AND s.performedAt <= :to " +
+                        "ORDER BY s.performedAt, s.id")
+        List<LedgerRow> findRowsAfter(
+                        @Param("afterAt") LocalDateTime afterAt,
+                        @Param("afterId") UUID afterId,
+                        @Param("to") LocalDateTime to,
+                        Limit limit);
+
+        @Query("SELECT new org.example.backend.dto.projection.LedgerSummary(" +
+                        "COUNT(s), COUNT(DISTINCT s.product.id), COUNT(DISTINCT s.location.id)) " +
+                        "FROM StockLedger s")
+        LedgerSummary summarize();
+
+        /**
+         * Movements per location performed in [from, to).
+         */
+        @Query("SELECT new org.example.backend.dto.projection.LocationActivity(s.location.id, COUNT(s), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.IN THEN s.quantity ELSE 0 END), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.OUT THEN s.quantity ELSE 0 END)) " +
+                        "FROM StockLedger s WHERE s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY s.location.id")
+        List<LocationActivity> findLocationActivity(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+        /**
+         * Movement count and quantity per movement type performed in [from, to).
+         */
+        @Query("SELECT new org.example.backend.dto.projection.MovementTypeTotal(" +
+                        "s.movementType, COUNT(s), SUM(s.quantity)) " +
+                        "FROM StockLedger s WHERE (:productId IS NULL OR s.product.id = :productId) " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY s.movementType")
+        List<MovementTypeTotal> sumMovementsByType(
+                        @Param("productId") UUID productId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        @Query("SELECT new org.example.backend.dto.projection.MovementGroupTotal(p.sku, p.name, COUNT(s), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.IN THEN s.quantity ELSE 0 END), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.OUT THEN s.quantity ELSE 0 END)) " +
+                        "FROM StockLedger s JOIN s.product p WHERE (:productId IS NULL OR p.id = :productId) " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY p.id, p.sku, p.name ORDER BY p.sku")
+        List<MovementGroupTotal> sumMovementsByProduct(
+                        @Param("productId") UUID productId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        @Query("SELECT new org.example.backend.dto.projection.MovementGroupTotal(l.code, w.code, COUNT(s), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.IN THEN s.quantity ELSE 0 END), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.OUT THEN s.quantity ELSE 0 END)) " +
+                        "FROM StockLedger s JOIN s.location l JOIN l.warehouse w " +
+                        "WHERE (:productId IS NULL OR s.product.id = :productId) " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY l.id, l.code, w.code ORDER BY l.code")
+        List<MovementGroupTotal> sumMovementsByLocation(
+                        @Param("productId") UUID productId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        /**
+         * Totals per calendar day; the group is the ISO date.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.MovementGroupTotal(" +
+                        "CAST(CAST(s.performedAt AS LocalDate) AS String), COUNT(s), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.IN THEN s.quantity ELSE 0 END), " +
+                        "SUM(CASE WHEN s.movementType = org.example.backend.enums.MovementType.OUT THEN s.quantity ELSE 0 END)) " +
+                        "FROM StockLedger s WHERE (:productId IS NULL OR s.product.id = :productId) " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY CAST(s.performedAt AS LocalDate) ORDER BY CAST(s.performedAt AS LocalDate)")
+        List<MovementGroupTotal> sumMovementsByDay(
+                        @Param("productId") UUID productId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+
+        /**
+         * Keyset page of movements in [from, cursor), newest first: the rows
+         * before ({@code beforeAt}, {@code beforeId}) in (performedAt, id) order.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.MovementRow(" +
+                        "s.id, s.movementType, s.quantity, s.performedAt, p.sku, p.name, l.code, " +
+                        "CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))) " +
+                        "FROM StockLedger s JOIN s.product p JOIN s.location l JOIN s.performedBy u " +
+                        "WHERE (:productId IS NULL OR p.id = :productId) AND s.performedAt >= :from " +
+                        "AND (s.performedAt < :beforeAt OR (s.performedAt = :beforeAt AND s.id < :beforeId)) " +
+                        "ORDER BY s.performedAt DESC, s.id DESC")
+        List<MovementRow> findMovementRowsBefore(
+                        @Param("productId") UUID productId,
+                        @Param("from") LocalDateTime from,
+                        @Param("beforeAt") LocalDateTime beforeAt,
+                        @Param("beforeId") UUID beforeId,
+                        Limit limit);
+
+        /**
+         * Movements in [from, to) per hour, product, location, movement type and
+         * employee, for the rollup job.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.LedgerHourTotal(" +
+                        "CAST(s.performedAt AS LocalDate), EXTRACT(HOUR FROM s.performedAt), " +
+                        "s.product.id, l.id, l.warehouse.id, s.movementType, s.performedBy.id, " +
+                        "COUNT(s), SUM(s.quantity)) " +
+                        "FROM StockLedger s JOIN s.location l " +
+                        "WHERE s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY CAST(s.performedAt AS LocalDate), EXTRACT(HOUR FROM s.performedAt), " +
+                        "s.product.id, l.id, l.warehouse.id, s.movementType, s.performedBy.id")
+        List<LedgerHourTotal> sumMovementsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+        /**
+         * OUT quantity in [from, to) per product and day, counting only the
+         * movements of the given transaction types.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductDayDemand(" +
+                        "s.product.id, CAST(s.performedAt AS LocalDate), SUM(s.quantity)) " +
+                        "FROM StockLedger s " +
+                        "WHERE s.movementType = org.example.backend.enums.MovementType.OUT " +
+                        "AND s.transaction.type IN :types " +
+                        "AND s.performedAt >= :from AND s.performedAt < :to " +
+                        "GROUP BY s.product.id, CAST(s.performedAt AS LocalDate)")
+        List<ProductDayDemand> sumDemandByDay(@Param("types") Collection<TransactionType> types,
+                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,36 @@
+package org.example.backend.repository;
+
+import org.example.backend.dto.projection.ProductLocationQuantity;
+import org.example.backend.entity.StockReservation;
+import org.example.backend.enums.ReservationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID> {
+
+        @Query("SELECT r FROM StockReservation r JOIN FETCH r.product JOIN FETCH r.location " +
+                        "WHERE r.transaction.id = :transactionId AND r.status = :status")
+        List<StockReservation> findByTransactionIdAndStatus(
+                        @Param("transactionId") UUID transactionId,
+                        @Param("status") ReservationStatus status);
+
+        @Query("SELECT r FROM StockReservation r JOIN FETCH r.product JOIN FETCH r.location " +
+                        "WHERE r.transactionLine.id = :lineId AND r.status = 'ACTIVE'")
+        List<StockReservation> findActiveByLineId(
+                        @Param("lineId") UUID lineId);
+
+        /**
+         * Reserved quantity per pair over all ACTIVE reservations.
+         */
+        @Query("SELECT new org.example.backend.dto.projection.ProductLocationQuantity(" +
+                        "r.product.id, r.location.id, SUM(r.quantity)) " +
+                        "FROM StockReservation r WHERE r.status = 'ACTIVE' " +
+                        "GROUP BY r.product.id, r.location.id")
+        List<ProductLocationQuantity> sumActiveByPair();
+}
@@ -1,5 +1,6 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.projection.UserDiscrepancyCount;
 import org.example.backend.entity.TaskDiscrepancy;
 import org.example.backend.enums.IssueType;
 import org.springframework.data.domain.Page;
@@ -9,6 +10,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -27,4 +30,13 @@ public interface TaskDiscrepancyRepository extends JpaRepository<TaskDiscrepancy
             Pageable pageable);
 
     long countByResolvedAtIsNull();
-}
\ No newline at end of file
+
+    @Query("SELECT new org.example.backend.dto.projection.UserDiscrepancyCount(d.reportedBy.id, " +
+            "SUM(CASE WHEN d.reportedAt >= :from AND d.reportedAt < :to THEN 1L ELSE 0L END), " +
+            "SUM(CASE WHEN d.resolvedAt IS NULL THEN 1L ELSE 0L END)) " +
+            "FROM TaskDiscrepancy d WHERE d.reportedBy.id IN :userIds GROUP BY d.reportedBy.id")
+    List<UserDiscrepancyCount> countByReporter(
+            @Param("userIds") Collection<UUID> userIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+}
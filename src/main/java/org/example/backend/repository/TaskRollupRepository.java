@@ -0,0 +1,40 @@
+package org.example.backend.repository;
+
+import org.example.backend.dto.projection.TaskBucket;
+import org.example.backend.entity.TaskRollup;
+import org.example.backend.entity.TaskRollupId;
+import org.example.backend.enums.RollupDimension;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TaskRollupRepository extends JpaRepository<TaskRollup, TaskRollupId> {
+
+    /**
+     * Rows of one dimension (one id, or every id when null) covering [from, to):
+     * hours in [from, dayFrom), days in [dayFrom, dayTo) and hours in [dayTo, to).
+     */
+    @Query("SELECT new org.example.backend.dto.projection.TaskBucket(r.id.granularity, r.id.bucketStart, " +
+            "r.id.dimensionId, r.id.taskType, r.tasksCompleted, r.timedTasks, r.totalSeconds) " +
+            "FROM TaskRollup r WHERE r.id.dimension = :dimension " +
+            "AND (:dimensionId IS NULL OR r.id.dimensionId = :dimensionId) " +
+            "AND ((r.id.granularity = org.example.backend.enums.RollupGranularity.HOUR " +
+            "AND ((r.id.bucketStart >= :from AND r.id.bucketStart < :dayFrom) " +
+            "OR (r.id.bucketStart >= :dayTo AND r.id.bucketStart < :to))) " +
+            "OR (r.id.granularity = org.example.backend.enums.RollupGranularity.DAY " +
+            "AND r.id.bucketStart >= :dayFrom AND r.id.bucketStart < :dayTo)) " +
+            "ORDER BY r.id.bucketStart")
+    List<TaskBucket> findBuckets(
+            @Param("dimension") RollupDimension dimension,
+            @Param("dimensionId") UUID dimensionId,
+            @Param("from") LocalDateTime from,
+            @Param("dayFrom") LocalDateTime dayFrom,
+            @Param("dayTo") LocalDateTime dayTo,
+            @Param("to") LocalDateTime to);
+}
@@ -1,5 +1,7 @@
 package org.example.backend.repository;
 
+import org.example.backend.dto.projection.TaskHourTotal;
+import org.example.backend.dto.projection.UserTaskStats;
 import org.example.backend.entity.Transaction;
 import org.example.backend.enums.TransactionStatus;
 import org.example.backend.enums.TransactionType;
@@ -11,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,4 +48,32 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     long countByStatusAndCompletedAtAfter(
             @Param("status") TransactionStatus status,
             @Param("since") LocalDateTime since);
+
+    /**
+     * Completed tasks per assignee in [from, to), with their average
+     * startedAt to completedAt duration.
+     */
+    @Query("SELECT new org.example.backend.dto.projection.UserTaskStats(t.assignedTo.id, COUNT(t), " +
+            "AVG((t.completedAt - t.startedAt) BY SECOND)) " +
+            "FROM Transaction t WHERE t.assignedTo.id IN :userIds " +
+            "AND t.status = org.example.backend.enums.TransactionStatus.COMPLETED " +
+            "AND t.completedAt >= :from AND t.completedAt < :to " +
+            "GROUP BY t.assignedTo.id")
+    List<UserTaskStats> summarizeCompletedTasks(
+            @Param("userIds") Collection<UUID> userIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Tasks completed in [from, to) per hour, assignee and task type, for the
+     * rollup job.
+     */
+    @Query("SELECT new org.example.backend.dto.projection.TaskHourTotal(" +
+            "CAST(t.completedAt AS LocalDate), EXTRACT(HOUR FROM t.completedAt), a.id, t.type, " +
+            "COUNT(t), COUNT(t.startedAt), COALESCE(SUM((t.completedAt - t.startedAt) BY SECOND), 0L)) " +
+            "FROM Transaction t LEFT JOIN t.assignedTo a " +
+            "WHERE t.status = org.example.backend.enums.TransactionStatus.COMPLETED " +
+            "AND t.completedAt >= :from AND t.completedAt < :to " +
+            "GROUP BY CAST(t.completedAt AS LocalDate), EXTRACT(HOUR FROM t.completedAt), a.id, t.type")
+    List<TaskHourTotal> sumCompletedTasksByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,17 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.request.AdminCreateTaskRequest;
+import org.example.backend.entity.Transaction;
+
+/**
+ * Service for the tasks created by administrators.
+ */
+public interface AdminTaskService {
+
+    /**
+     * Create a task with its lines and, for PICKING and DELIVERY, reserve the
+     * stock of its lines, all in one transaction: if any step fails nothing is
+     * saved and the held quantities are given back.
+     */
+    Transaction createTask(AdminCreateTaskRequest request, String creatorUsername);
+}
@@ -1,6 +1,7 @@
 package org.example.backend.service;
 
 import org.example.backend.dto.request.*;
+import org.example.backend.enums.ForecastEngine;
 
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,13 @@ public interface AiIntegrationService {
     // Forecasting
     List<Map<String, Object>> predictDemand(AiForecastRequest request);
 
+    /**
+     * With {@link ForecastEngine#AUTO}, falls back to the local forecaster when
+     * the AI service cannot be reached or answers with a server error; a
+     * rejected request (4xx) is still an error.
+     */
+    List<Map<String, Object>> predictDemand(AiForecastRequest request, ForecastEngine engine);
+
     Map<String, Object> generateForecast(AiForecastGenerateRequest request);
 
     // Storage
@@ -41,4 +49,9 @@ public interface AiIntegrationService {
     Map<String, Object> getWarehouseState();
 
     Map<String, Object> resetWarehouse();
+
+    /**
+     * Drop every cached AI result, e.g. after deploying a new model.
+     */
+    void invalidateCache();
 }
@@ -0,0 +1,27 @@
+package org.example.backend.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Demand forecasts computed in the JVM from historique_demande, used when the
+ * AI service is unavailable or when asked for explicitly.
+ */
+public interface DemandForecastService {
+
+    /**
+     * Forecast in the shape of the AI service's /predict response, one entry
+     * per requested product in request order. An id that matches no SKU gets
+     * null figures and the model {@code UNKNOWN_PRODUCT}.
+     *
+     * @param productIds AI product ids, matched to product SKUs; null or empty
+     *                   for every active product
+     */
+    List<Map<String, Object>> forecast(List<Integer> productIds, LocalDate date);
+
+    /**
+     * Drop the fitted models so that the next forecasts refit them.
+     */
+    void evictModels();
+}
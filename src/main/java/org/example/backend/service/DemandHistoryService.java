@@ -0,0 +1,38 @@
+package org.example.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily per-product demand (historique_demande) built from the DELIVERY and
+ * PICKING OUT movements of the stock ledger, the input of the forecasts.
+ */
+public interface DemandHistoryService {
+
+    /**
+     * Range the ledger rows are complete for, and the progress of a backfill.
+     */
+    record BuildStatus(LocalDateTime coveredFrom, LocalDateTime watermark, boolean backfilling,
+            int shardsDone, int shardsTotal) {
+    }
+
+    /**
+     * Rebuild the demand of the days between the watermark and now minus the
+     * safety lag, in windows committed one by one.
+     *
+     * @return number of windows committed
+     */
+    int refresh();
+
+    /**
+     * Rebuild every day from {@code from} up to the watermark in the
+     * background, several date shards at a time; the incremental job resumes
+     * once it has finished.
+     *
+     * @throws org.example.backend.exception.InvalidOperationException if a
+     *         refresh or backfill is already running
+     */
+    void startBackfill(LocalDate from);
+
+    BuildStatus getStatus();
+}
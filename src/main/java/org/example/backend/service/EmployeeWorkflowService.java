@@ -6,6 +6,7 @@ import org.example.backend.dto.request.ExecuteLineRequest;
 import org.example.backend.dto.request.ReportIssueRequest;
 import org.example.backend.dto.request.StartOperationRequest;
 import org.example.backend.entity.Chariot;
+import org.example.backend.entity.OperationLineExecution;
 import org.example.backend.entity.Product;
 import org.example.backend.entity.ProductBarcode;
 import org.example.backend.entity.TaskDiscrepancy;
@@ -32,6 +33,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -50,6 +52,8 @@ public class EmployeeWorkflowService {
     private final TransferService transferService;
     private final PickingService pickingService;
     private final DeliveryService deliveryService;
+    private final StockReservationService stockReservationService;
+    private final OperationIdempotencyService operationIdempotencyService;
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getMyTasks(String username, String statusFilter) {
@@ -114,8 +118,23 @@ public class EmployeeWorkflowService {
         return response;
     }
 
-    public Map<String, Object> executeOperationLine(String username, ExecuteLineRequest request) {
+    /**
+     * Execute one line of an operation. Idempotent: a retry with the same
+     * Idempotency-Key, or of a line that was already executed, returns the
+     * original response without moving stock again. A key reused for another
+     * line is rejected.
+     */
+    public Map<String, Object> executeOperationLine(String username, ExecuteLineRequest request,
+            String idempotencyKey) {
         Transaction task = getAssignedTransaction(username, request.getTransactionId());
+        String key = operationIdempotencyService.resolveKey(username, idempotencyKey,
+                request.getTransactionId(), request.getLineNumber());
+        Optional<Map<String, Object>> replay = operationIdempotencyService.findCompleted(key, username,
+                request.getTransactionId(), request.getLineNumber());
+        if (replay.isPresent()) {
+            return asReplay(replay.get());
+        }
+
         if (task.getStatus() != TransactionStatus.IN_PROGRESS) {
             throw new org.example.backend.exception.InvalidOperationException("Transaction must be IN_PROGRESS");
         }
@@ -126,6 +145,10 @@ public class EmployeeWorkflowService {
 
         validateScannedBarcode(line, request.getProductBarcode());
 
+        // Claim the line first so a concurrent retry waits here instead of moving stock twice
+        OperationLineExecution execution = operationIdempotencyService.claim(key, task, line.getLineNumber(),
+                username);
+
         // Process actual stock movement based on transaction type
         User performer = getUserByUsername(username);
         processStockMovement(task, line, performer);
@@ -135,6 +158,28 @@ public class EmployeeWorkflowService {
         response.put("status", "COMPLETED");
         response.put("product", toProductPayload(line.getProduct()));
         response.put("message", "Line processed and stock updated successfully");
+        operationIdempotencyService.complete(execution, response);
+        return response;
+    }
+
+    /**
+     * Response of a line that was already executed, for a retry that lost the
+     * race against the original request.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> findExecutedLine(String username, ExecuteLineRequest request,
+            String idempotencyKey) {
+        getAssignedTransaction(username, request.getTransactionId());
+        String key = operationIdempotencyService.resolveKey(username, idempotencyKey,
+                request.getTransactionId(), request.getLineNumber());
+        return operationIdempotencyService.findCompleted(key, username, request.getTransactionId(),
+                request.getLineNumber())
+                .map(this::asReplay);
+    }
+
+    private Map<String, Object> asReplay(Map<String, Object> original) {
+        Map<String, Object> response = new HashMap<>(original);
+        response.put("replayed", true);
         return response;
     }
 
@@ -182,6 +227,7 @@ public class EmployeeWorkflowService {
         task.setCompletedAt(LocalDateTime.now());
         task.setNotes(request.getNotes());
         transactionRepository.save(task);
+        stockReservationService.releaseForTransaction(task.getId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("transactionId", task.getId());
@@ -0,0 +1,32 @@
+package org.example.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Full inventory snapshot export for downstream systems (ERP).
+ */
+public interface InventoryExportService {
+
+    enum Format {
+        CSV, NDJSON
+    }
+
+    enum Breakdown {
+        /** One row per product with its total quantity. */
+        NONE,
+        /** One row per product and warehouse. */
+        WAREHOUSE,
+        /** One row per product and location. */
+        LOCATION
+    }
+
+    /**
+     * Write the current stock to {@code out} page by page, without holding a
+     * database connection while writing. Memory use does not depend on the
+     * number of rows.
+     *
+     * @return number of rows written
+     */
+    long export(Format format, Breakdown breakdown, OutputStream out) throws IOException;
+}
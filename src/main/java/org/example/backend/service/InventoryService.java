@@ -1,4 +1,30 @@
 package org.example.backend.service;
 
+import org.example.backend.dto.response.LocationContentsResponse;
+import org.example.backend.dto.response.StockResponse;
+
+import java.util.UUID;
+
+/**
+ * Read-side inventory lookups for handhelds and screens. Results are cached and
+ * evicted by ledger writes, so repeated scans of the same product or location
+ * do not reach the database.
+ */
 public interface InventoryService {
+
+    /**
+     * Stock of a product per location.
+     */
+    StockResponse getProductStock(UUID productId);
+
+    /**
+     * Stock of the product with the given SKU, or with the given barcode when
+     * no SKU matches.
+     */
+    StockResponse getProductStockBySku(String sku);
+
+    /**
+     * Products stored at a location, given its id or its code.
+     */
+    LocationContentsResponse getLocationContents(String location);
 }
@@ -0,0 +1,34 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.response.LocationRollupResponse;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Aggregates over the rack hierarchy encoded in location codes, for heatmaps
+ * and replenishment planning.
+ */
+public interface LocationAnalyticsService {
+
+    enum Grouping {
+        BLOCK, AISLE, LEVEL
+    }
+
+    /**
+     * Stock and ledger activity rolled up by block, aisle (block + aisle) or
+     * level (block + aisle + level).
+     *
+     * @param warehouseId only locations of this warehouse, or all when null
+     * @param from        start of the activity period, inclusive
+     * @param to          end of the activity period, exclusive
+     */
+    LocationRollupResponse rollUp(Grouping grouping, UUID warehouseId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Parsed key of a location code (see
+     * {@link org.example.backend.util.LocationCodeParser}), cached per
+     * location until its code changes.
+     */
+    long codeKey(UUID locationId, String code);
+}
@@ -0,0 +1,53 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.OperationLineExecution;
+import org.example.backend.entity.Transaction;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Deduplication of operation line executions retried by handheld clients.
+ *
+ * A request is identified by the client's Idempotency-Key header when present,
+ * otherwise by (transactionId, lineNumber). Completed executions are served
+ * from a bounded in-memory cache backed by the operation_line_execution table.
+ * A stored execution stays bound to the user, transaction and line it was made
+ * for; callers check that the user is assigned the transaction first.
+ */
+public interface OperationIdempotencyService {
+
+    /**
+     * Key of a request: the client key scoped to the user, or the derived line
+     * key when the client sent none.
+     */
+    String resolveKey(String username, String clientKey, UUID transactionId, int lineNumber);
+
+    /**
+     * Response of an already executed request or line, if any.
+     *
+     * @throws org.example.backend.exception.DuplicateResourceException if the key
+     *                                                                  was used
+     *                                                                  for another
+     *                                                                  line, or
+     *                                                                  the line
+     *                                                                  was executed
+     *                                                                  by another
+     *                                                                  user
+     */
+    Optional<Map<String, Object>> findCompleted(String key, String username, UUID transactionId, int lineNumber);
+
+    /**
+     * Insert the execution record of a line before its stock movement. A
+     * concurrent duplicate blocks on the unique constraint and fails once the
+     * first one commits.
+     */
+    OperationLineExecution claim(String key, Transaction transaction, int lineNumber, String username);
+
+    /**
+     * Store the response of a claimed execution; it is cached once the
+     * transaction commits.
+     */
+    void complete(OperationLineExecution execution, Map<String, Object> response);
+}
@@ -0,0 +1,58 @@
+package org.example.backend.service;
+
+import org.example.backend.enums.ReportPriority;
+import org.example.backend.service.report.ReportJob;
+import org.example.backend.service.report.ReportSpec;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reports run in the background, off the request threads.
+ */
+public interface ReportJobService {
+
+    /**
+     * Queue a report. Answered at once from the result cache when the same
+     * spec ran recently, and attached to the queued or running job when one
+     * already computes it.
+     *
+     * @throws org.example.backend.exception.InvalidOperationException for
+     *                                                                  invalid
+     *                                                                  parameters
+     *                                                                  or when
+     *                                                                  the queue
+     *                                                                  is full
+     */
+    ReportJob submit(ReportSpec spec, ReportPriority priority, String requestedBy);
+
+    /**
+     * @throws org.example.backend.exception.ResourceNotFoundException if the
+     *                                                                   job is
+     *                                                                   unknown
+     *                                                                   or has
+     *                                                                   expired
+     */
+    ReportJob getJob(UUID jobId);
+
+    /**
+     * Jobs still queued or running, and the finished ones kept for download.
+     */
+    List<ReportJob> getJobs();
+
+    /**
+     * Cancel a queued or running job on behalf of a user. A job shared with
+     * other submitters is not cancelled: a submitter is only detached from it,
+     * anyone else is refused.
+     *
+     * @return the job, CANCELLED unless the caller was only detached
+     * @throws org.example.backend.exception.InvalidOperationException if it
+     *                                                                  has
+     *                                                                  already
+     *                                                                  finished
+     *                                                                  or is
+     *                                                                  shared
+     *                                                                  by others
+     */
+    ReportJob cancel(UUID jobId, String username);
+}
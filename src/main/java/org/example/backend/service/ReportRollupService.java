@@ -0,0 +1,59 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.projection.MovementBucket;
+import org.example.backend.dto.projection.TaskBucket;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Hourly and daily rollups of stock movements and completed tasks, per
+ * product, location, warehouse and employee. A watermark job aggregates each
+ * hour once it is complete; reports read the rollups and only aggregate the
+ * raw rows after the watermark.
+ */
+public interface ReportRollupService {
+
+    record RollupStatus(String name, LocalDateTime coveredFrom, LocalDateTime watermark) {
+    }
+
+    /**
+     * Aggregate every complete hour since the last run.
+     *
+     * @return number of windows aggregated
+     */
+    int refresh();
+
+    /**
+     * Recompute the rollups from the start of {@code from} up to the
+     * watermark, in the background (backfill, or repair after a correction).
+     */
+    void startRebuild(LocalDate from);
+
+    boolean isRebuilding();
+
+    List<RollupStatus> getStatus();
+
+    /**
+     * Movement buckets of one dimension value (or every value when
+     * {@code dimensionId} is null) exactly covering [from, to): with DAY
+     * granularity, days where possible and hours at the edges; with HOUR, hours
+     * only. Empty when the rollups do not reach back to {@code from} or
+     * {@code from} is not on the hour; callers then aggregate the ledger
+     * themselves.
+     */
+    Optional<List<MovementBucket>> movementBuckets(RollupGranularity granularity, RollupDimension dimension,
+            UUID dimensionId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Completed-task buckets, as {@link #movementBuckets}. Only the ALL and
+     * EMPLOYEE dimensions exist.
+     */
+    Optional<List<TaskBucket>> taskBuckets(RollupGranularity granularity, RollupDimension dimension,
+            UUID dimensionId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,33 @@
+package org.example.backend.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The admin reports, built as the response payloads of their endpoints. Served
+ * directly by the report endpoints and in the background by report jobs.
+ */
+public interface ReportService {
+
+    /**
+     * Movement totals for the period, optionally grouped, and one keyset page
+     * of the movements (newest first).
+     *
+     * @param groupBy product, location, movementType or day; null for no groups
+     * @param cursor  {@code nextCursor} of the previous page, null for the first
+     */
+    Map<String, Object> stockMovementReport(LocalDate startDate, LocalDate endDate, UUID productId,
+            String groupBy, String cursor, int limit);
+
+    /**
+     * Per-employee task and discrepancy counts for the period; every employee
+     * when {@code userId} is null.
+     */
+    Map<String, Object> userProductivityReport(LocalDate startDate, LocalDate endDate, UUID userId);
+
+    /**
+     * One page of products by SKU with their stock per location.
+     */
+    Map<String, Object> inventorySummary(String category, boolean lowStockOnly, int page, int size);
+}
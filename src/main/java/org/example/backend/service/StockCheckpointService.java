@@ -0,0 +1,33 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.StockCheckpointRun;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Periodic ledger balance checkpoints. Balances are computed from the latest
+ * checkpoint of a pair plus the ledger entries performed after its watermark,
+ * instead of summing the whole ledger history.
+ */
+public interface StockCheckpointService {
+
+    /**
+     * Advance the checkpoint watermark up to now minus the configured safety lag.
+     * Each window is committed on its own, so an interrupted run resumes from the
+     * last committed watermark.
+     *
+     * @return number of windows committed
+     */
+    int runCheckpoint();
+
+    /**
+     * Ledger balance of a product at a location (latest checkpoint + delta).
+     */
+    long calculateBalance(UUID productId, UUID locationId);
+
+    /**
+     * Last committed checkpoint window, if any.
+     */
+    Optional<StockCheckpointRun> getLastRun();
+}
@@ -0,0 +1,29 @@
+package org.example.backend.service;
+
+import org.example.backend.service.ledger.IntegrityRun;
+
+import java.util.Optional;
+
+/**
+ * Verification of the running_balance chains of the stock ledger.
+ */
+public interface StockIntegrityService {
+
+    /**
+     * Start replaying the whole ledger in the background, one product per task,
+     * checking every (product, location) chain and the stock_balance projection.
+     *
+     * @param rebuildProjection rebuild stock_balance from the ledger once the
+     *                          replay has finished
+     * @throws org.example.backend.exception.InvalidOperationException if a run
+     *                                                                  is
+     *                                                                  already in
+     *                                                                  progress
+     */
+    IntegrityRun startVerification(boolean rebuildProjection);
+
+    /**
+     * The run in progress, or the last finished one.
+     */
+    Optional<IntegrityRun> getLastRun();
+}
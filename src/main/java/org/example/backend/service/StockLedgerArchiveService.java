@@ -0,0 +1,41 @@
+package org.example.backend.service;
+
+import org.example.backend.service.ledger.ArchivedLedgerEntry;
+import org.example.backend.service.ledger.LedgerArchiveEntry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Archival of cold stock_ledger partitions to compressed files on local disk.
+ */
+public interface StockLedgerArchiveService {
+
+    /**
+     * Export every monthly partition older than the archive horizon (and already
+     * covered by a balance checkpoint) to a gzip CSV file, record it in the
+     * manifest, then detach and drop it.
+     *
+     * @return number of partitions archived
+     */
+    int archiveColdPartitions();
+
+    /**
+     * Manifest entries, oldest first.
+     */
+    List<LedgerArchiveEntry> getManifest();
+
+    /**
+     * End (exclusive) of the archived range, if anything has been archived.
+     * Ledger entries performed before it are no longer in the database.
+     */
+    Optional<LocalDateTime> getArchivedUntil();
+
+    /**
+     * Stream archived entries performed in [from, to] to the consumer, in file
+     * order. Only the files whose range overlaps the request are opened.
+     */
+    void scanArchived(LocalDateTime from, LocalDateTime to, Consumer<ArchivedLedgerEntry> consumer);
+}
@@ -1,8 +1,11 @@
 package org.example.backend.service;
 
+import org.example.backend.dto.projection.ProductLocationQuantity;
 import org.example.backend.entity.*;
 import org.example.backend.enums.MovementType;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -34,8 +37,38 @@ public interface StockLedgerService {
     StockLedger recordAdjustment(Product product, Location location, int quantity,
             Transaction transaction, TransactionLine transactionLine, User performedBy);
 
+    /**
+     * Move stock of a product from one location to another (OUT at the source,
+     * IN at the destination). Both balances are locked up front in a
+     * deterministic order, so opposite-direction moves cannot deadlock.
+     *
+     * @return the OUT entry followed by the IN entry
+     * @throws org.example.backend.exception.InsufficientStockException if the
+     *                                                                  source
+     *                                                                  balance
+     *                                                                  would go
+     *                                                                  negative
+     */
+    List<StockLedger> recordTransfer(Product product, Location source, Location destination, int quantity,
+            Transaction transaction, TransactionLine transactionLine, User performedBy);
+
+    /**
+     * Record a batch of movements atomically. Each affected balance is locked
+     * once, running balances are computed in memory in the order of the list and
+     * all ledger rows are inserted in a single JDBC batch.
+     *
+     * @return the created entries, in the order of the given movements
+     * @throws org.example.backend.exception.InsufficientStockException if any
+     *                                                                  balance
+     *                                                                  would go
+     *                                                                  negative
+     */
+    List<StockLedger> recordMovements(List<Movement> movements);
+
     /**
      * Get current stock balance for a product at a location.
+     * Served from the in-memory balance index once it is loaded, without a
+     * database round trip or lock; callers that go on to write still lock.
      */
     int getCurrentBalance(UUID productId, UUID locationId);
 
@@ -46,4 +79,48 @@ public interface StockLedgerService {
      *                                                                  insufficient
      */
     void validateStockAvailability(UUID productId, UUID locationId, int requiredQuantity);
+
+    /**
+     * Stock balances as of a point in time, per pair. Starts from the nearest
+     * checkpoint at or before the timestamp and replays only the ledger entries
+     * performed after it. Filters are optional; with none the answer is
+     * warehouse-wide. Pairs with a zero balance are omitted.
+     */
+    List<ProductLocationQuantity> asOf(LocalDateTime timestamp, UUID productId, UUID locationId, UUID warehouseId);
+
+    /**
+     * Movements performed in [startDate, endDate], newest first, optionally for
+     * one product. Ranges that have been archived out of the database are read
+     * back from the archive files.
+     */
+    List<StockLedger> findMovementsByDateRange(UUID productId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Rebuild the stock_balance projection from the full ledger (checkpoints
+     * plus recent entries once part of the ledger is archived). Ledger writers
+     * wait until the rebuilt projection is committed and loaded.
+     *
+     * @return number of product/location pairs written
+     */
+    int rebuildBalances();
+
+    /**
+     * A stock movement to record as part of a batch. Quantity is positive for IN
+     * and OUT, and signed for ADJUSTMENT.
+     */
+    record Movement(Product product, Location location, MovementType movementType, int quantity,
+            Transaction transaction, TransactionLine transactionLine, User performedBy) {
+
+        public static Movement in(Product product, Location location, int quantity,
+                Transaction transaction, TransactionLine transactionLine, User performedBy) {
+            return new Movement(product, location, MovementType.IN, quantity, transaction, transactionLine,
+                    performedBy);
+        }
+
+        public static Movement out(Product product, Location location, int quantity,
+                Transaction transaction, TransactionLine transactionLine, User performedBy) {
+            return new Movement(product, location, MovementType.OUT, quantity, transaction, transactionLine,
+                    performedBy);
+        }
+    }
 }
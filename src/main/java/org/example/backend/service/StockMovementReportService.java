@@ -0,0 +1,39 @@
+package org.example.backend.service;
+
+import org.example.backend.dto.projection.MovementGroupTotal;
+import org.example.backend.dto.projection.MovementRow;
+import org.example.backend.dto.projection.MovementTypeTotal;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stock movement report over a period [from, to), computed in the database:
+ * totals are grouped aggregates and the movement list is served in keyset
+ * pages, so neither depends on the number of movements in the period.
+ * Archived months are read from the archive files.
+ */
+public interface StockMovementReportService {
+
+    enum Grouping {
+        PRODUCT, LOCATION, MOVEMENT_TYPE, DAY
+    }
+
+    /**
+     * One page of movements, newest first, and the cursor of the next page
+     * (null on the last page).
+     */
+    record MovementPage(List<MovementRow> movements, String nextCursor) {
+    }
+
+    List<MovementTypeTotal> totalsByType(UUID productId, LocalDateTime from, LocalDateTime to);
+
+    List<MovementGroupTotal> totals(Grouping grouping, UUID productId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, or null for the
+     *               first page
+     */
+    MovementPage movements(UUID productId, LocalDateTime from, LocalDateTime to, String cursor, int limit);
+}
@@ -0,0 +1,71 @@
+package org.example.backend.service;
+
+import org.example.backend.entity.Transaction;
+import org.example.backend.entity.TransactionLine;
+import org.example.backend.service.ledger.ReservationHold;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reservations of stock for pending PICKING and DELIVERY tasks.
+ *
+ * Reserved quantities are kept in lock-free per-(product, location) counters,
+ * so available = on hand - reserved can be checked without touching the
+ * database. Reservations are persisted for recovery across restarts.
+ */
+public interface StockReservationService {
+
+    /**
+     * Reserve the quantities of the lines at their source locations, all or
+     * nothing. The lines do not need to be saved yet.
+     *
+     * @throws org.example.backend.exception.InsufficientStockException if any
+     *                                                                  pair does
+     *                                                                  not have
+     *                                                                  enough
+     *                                                                  available
+     *                                                                  stock
+     */
+    ReservationHold hold(List<TransactionLine> lines);
+
+    /**
+     * Persist the reservations of a hold once its task and lines are saved.
+     *
+     * @throws IllegalStateException if the lines do not add up to the held
+     *                               quantities
+     */
+    void confirm(ReservationHold hold, Transaction transaction, List<TransactionLine> lines);
+
+    /**
+     * Mark the reservation of a line as consumed by its stock movement. The
+     * counters are updated when the surrounding transaction commits.
+     */
+    void consume(TransactionLine line);
+
+    /**
+     * Release all remaining reservations of a task (cancelled, completed or
+     * failed).
+     */
+    int releaseForTransaction(UUID transactionId);
+
+    /**
+     * Hold the quantities of the lines at their source locations, as
+     * {@link #hold} does, until the surrounding transaction completes. For
+     * movements of stock that no task has reserved: two of them cannot both
+     * pass on the same unreserved units.
+     *
+     * @throws org.example.backend.exception.InsufficientStockException if any
+     *                                                                  pair does
+     *                                                                  not have
+     *                                                                  enough
+     *                                                                  unreserved
+     *                                                                  stock
+     */
+    void holdUntilCompletion(List<TransactionLine> lines);
+
+    Availability getAvailability(UUID productId, UUID locationId);
+
+    record Availability(long onHand, long reserved, long available) {
+    }
+}
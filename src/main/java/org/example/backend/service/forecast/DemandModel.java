@@ -0,0 +1,62 @@
+package org.example.backend.service.forecast;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Fitted parameters and final state of one product's demand model, enough to
+ * forecast any day after {@code lastDay} without refitting.
+ *
+ * @param length      days in the fitted series, the last one being lastDay
+ * @param seasonals   day-of-week offsets of Holt-Winters, indexed by series
+ *                    position modulo 7; empty for the other methods
+ * @param probability share of days with demand
+ */
+public record DemandModel(
+        UUID productId,
+        Method method,
+        LocalDate lastDay,
+        int length,
+        double level,
+        double trend,
+        double[] seasonals,
+        double alpha,
+        double beta,
+        double gamma,
+        double residualStd,
+        double probability) {
+
+    public enum Method {
+        /** No demand in the history. */
+        NONE,
+        /** Simple exponential smoothing, for short regular series. */
+        SES,
+        /** Additive Holt-Winters with a damped trend and a weekly season. */
+        HOLT_WINTERS,
+        /** Croston with the Syntetos-Boylan correction, for intermittent demand. */
+        SBA
+    }
+
+    /** Trend damping of Holt-Winters, so that a trend fades instead of running on for months. */
+    static final double DAMPING = 0.9;
+
+    /**
+     * Expected demand on {@code date}; days up to lastDay are forecast as the
+     * day after it.
+     */
+    public double forecast(LocalDate date) {
+        long horizon = Math.max(1, ChronoUnit.DAYS.between(lastDay, date));
+        double value = switch (method) {
+            case NONE -> 0;
+            case SES, SBA -> level;
+            case HOLT_WINTERS -> {
+                // Sum of DAMPING^k for k = 1..horizon
+                double damped = DAMPING * (1 - Math.pow(DAMPING, horizon)) / (1 - DAMPING);
+                int slot = (int) ((length - 1 + horizon) % seasonals.length);
+                yield level + damped * trend + seasonals[slot];
+            }
+        };
+        return Math.max(0, value);
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.backend.service.forecast;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Fits a {@link DemandModel} to a daily demand series.
+ *
+ * The method follows the Syntetos-Boylan classification: a series with an
+ * average interval between demands above 1.32 days is intermittent and gets
+ * Croston/SBA, others get Holt-Winters once they span four weeks, simple
+ * exponential smoothing before that. Smoothing constants are chosen on a grid
+ * by the squared one-step-ahead error over the series.
+ */
+public final class DemandModelFitter {
+
+    static final int SEASON = 7;
+    static final int MIN_SEASONAL_LENGTH = 4 * SEASON;
+    static final double INTERMITTENT_INTERVAL = 1.32;
+
+    private static final double[] SES_ALPHAS = grid(0.05, 0.95, 0.05);
+    private static final double[] HW_ALPHAS = grid(0.1, 0.9, 0.2);
+    private static final double[] HW_BETAS = { 0.01, 0.05, 0.1, 0.2 };
+    private static final double[] HW_GAMMAS = { 0.05, 0.1, 0.2, 0.3 };
+    private static final double[] SBA_ALPHAS = grid(0.05, 0.3, 0.05);
+
+    private DemandModelFitter() {
+    }
+
+    /**
+     * @param series daily demand, oldest first, the last value being lastDay
+     */
+    public static DemandModel fit(UUID productId, double[] series, LocalDate lastDay) {
+        int demandDays = 0;
+        for (double value : series) {
+            if (value > 0) {
+                demandDays++;
+            }
+        }
+        if (demandDays == 0) {
+            return new DemandModel(productId, DemandModel.Method.NONE, lastDay, series.length, 0, 0,
+                    new double[0], 0, 0, 0, 0, 0);
+        }
+        double probability = (double) demandDays / series.length;
+        if ((double) series.length / demandDays > INTERMITTENT_INTERVAL) {
+            return fitSba(productId, series, lastDay);
+        }
+        if (series.length >= MIN_SEASONAL_LENGTH) {
+            return fitHoltWinters(productId, series, lastDay, probability);
+        }
+        return fitSes(productId, series, lastDay, probability);
+    }
+
+    private static DemandModel fitSes(UUID productId, double[] y, LocalDate lastDay, double probability) {
+        DemandModel best = null;
+        double bestSse = Double.MAX_VALUE;
+        for (double alpha : SES_ALPHAS) {
+            double level = y[0];
+            double sse = 0;
+            for (int t = 1; t < y.length; t++) {
+                double error = y[t] - level;
+                sse += error * error;
+                level += alpha * error;
+            }
+            if (sse < bestSse) {
+                bestSse = sse;
+                best = new DemandModel(productId, DemandModel.Method.SES, lastDay, y.length, level, 0,
+                        new double[0], alpha, 0, 0, std(sse, y.length - 1), probability);
+            }
+        }
+        return best;
+    }
+
+    private static DemandModel fitHoltWinters(UUID productId, double[] y, LocalDate lastDay, double probability) {
+        // First week gives the level and the seasonal offsets, the second one the trend
+        double firstWeek = 0;
+        double secondWeek = 0;
+        for (int t = 0; t < SEASON; t++) {
+            firstWeek += y[t] / SEASON;
+            secondWeek += y[t + SEASON] / SEASON;
+        }
+        double[] initialSeasonals = new double[SEASON];
+        for (int t = 0; t < SEASON; t++) {
+            initialSeasonals[t] = y[t] - firstWeek;
+        }
+        double initialTrend = (secondWeek - firstWeek) / SEASON;
+
+        DemandModel best = null;
+        double bestSse = Double.MAX_VALUE;
+        for (double alpha : HW_ALPHAS) {
+            for (double beta : HW_BETAS) {
+                for (double gamma : HW_GAMMAS) {
+                    double level = firstWeek;
+                    double trend = initialTrend;
+                    double[] seasonals = initialSeasonals.clone();
+                    double sse = 0;
+                    for (int t = SEASON; t < y.length; t++) {
+                        int slot = t % SEASON;
+                        double error = y[t] - (level + DemandModel.DAMPING * trend + seasonals[slot]);
+                        sse += error * error;
+                        double previousLevel = level;
+                        level = alpha * (y[t] - seasonals[slot])
+                                + (1 - alpha) * (level + DemandModel.DAMPING * trend);
+                        trend = beta * (level - previousLevel) + (1 - beta) * DemandModel.DAMPING * trend;
+                        seasonals[slot] = gamma * (y[t] - level) + (1 - gamma) * seasonals[slot];
+                    }
+                    if (sse < bestSse) {
+                        bestSse = sse;
+                        best = new DemandModel(productId, DemandModel.Method.HOLT_WINTERS, lastDay, y.length,
+                                level, trend, seasonals, alpha, beta, gamma, std(sse, y.length - SEASON),
+                                probability);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Croston smooths the demand sizes and the intervals between demands
+     * separately and only updates them on days with demand; SBA scales the
+     * ratio by (1 - alpha / 2) to remove Croston's upward bias.
+     */
+    private static DemandModel fitSba(UUID productId, double[] y, LocalDate lastDay) {
+        int first = 0;
+        while (y[first] == 0) {
+            first++;
+        }
+        DemandModel best = null;
+        double bestSse = Double.MAX_VALUE;
+        for (double alpha : SBA_ALPHAS) {
+            double size = y[first];
+            double interval = first + 1;
+            int sinceDemand = 1;
+            double sse = 0;
+            for (int t = first + 1; t < y.length; t++) {
+                double error = y[t] - (1 - alpha / 2) * size / interval;
+                sse += error * error;
+                if (y[t] > 0) {
+                    size += alpha * (y[t] - size);
+                    interval += alpha * (sinceDemand - interval);
+                    sinceDemand = 1;
+                } else {
+                    sinceDemand++;
+                }
+            }
+            if (sse < bestSse) {
+                bestSse = sse;
+                best = new DemandModel(productId, DemandModel.Method.SBA, lastDay, y.length,
+                        (1 - alpha / 2) * size / interval, 0, new double[0], alpha, 0, 0,
+                        std(sse, y.length - first - 1), Math.min(1, 1 / interval));
+            }
+        }
+        return best;
+    }
+
+    private static double std(double sse, int count) {
+        return count > 0 ? Math.sqrt(sse / count) : 0;
+    }
+
+    private static double[] grid(double from, double to, double step) {
+        int count = (int) Math.round((to - from) / step) + 1;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.dto.request.AdminCreateTaskRequest;
+import org.example.backend.entity.Chariot;
+import org.example.backend.entity.Product;
+import org.example.backend.entity.Transaction;
+import org.example.backend.entity.TransactionLine;
+import org.example.backend.entity.User;
+import org.example.backend.enums.TransactionStatus;
+import org.example.backend.enums.TransactionType;
+import org.example.backend.exception.ResourceNotFoundException;
+import org.example.backend.repository.ChariotRepository;
+import org.example.backend.repository.LocationRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.TransactionLineRepository;
+import org.example.backend.repository.TransactionRepository;
+import org.example.backend.repository.UserRepository;
+import org.example.backend.service.AdminTaskService;
+import org.example.backend.service.StockReservationService;
+import org.example.backend.service.ledger.ReservationHold;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdminTaskServiceImpl implements AdminTaskService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionLineRepository transactionLineRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final LocationRepository locationRepository;
+    private final ChariotRepository chariotRepository;
+    private final StockReservationService stockReservationService;
+
+    @Override
+    @Transactional
+    public Transaction createTask(AdminCreateTaskRequest request, String creatorUsername) {
+        User creator = userRepository.findByUsername(creatorUsername)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        Transaction transaction = Transaction.builder()
+                .type(request.getType())
+                .reference(generateReference(request.getType()))
+                .status(TransactionStatus.PENDING)
+                .priority(request.getPriority())
+                .createdBy(creator)
+                .notes(request.getNotes())
+                .build();
+
+        if (request.getAssignedToId() != null) {
+            User assignee = userRepository.findById(request.getAssignedToId())
+                    .orElseThrow(
+                            () -> new ResourceNotFoundException("Assignee not found: " + request.getAssignedToId()));
+            transaction.setAssignedTo(assignee);
+            transaction.setAssignedAt(LocalDateTime.now());
+        }
+
+        if (request.getChariotId() != null) {
+            Chariot chariot = chariotRepository.findById(request.getChariotId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Chariot not found: " + request.getChariotId()));
+            transaction.setChariot(chariot);
+        }
+
+        // Resolve the lines before saving anything, so an impossible plan is rejected up front
+        List<TransactionLine> lines = new ArrayList<>();
+        if (request.getLines() != null) {
+            int lineNumber = 1;
+            for (AdminCreateTaskRequest.TaskLine line : request.getLines()) {
+                Product product = productRepository.findById(line.getProductId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + line.getProductId()));
+
+                TransactionLine tl = TransactionLine.builder()
+                        .lineNumber(lineNumber++)
+                        .product(product)
+                        .quantity(line.getQuantity())
+                        .build();
+
+                if (line.getSourceLocationId() != null) {
+                    tl.setSourceLocation(locationRepository.findById(line.getSourceLocationId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Source location not found")));
+                }
+                if (line.getDestinationLocationId() != null) {
+                    tl.setDestinationLocation(locationRepository.findById(line.getDestinationLocationId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Destination location not found")));
+                }
+                lines.add(tl);
+            }
+        }
+
+        boolean reserves = request.getType() == TransactionType.PICKING
+                || request.getType() == TransactionType.DELIVERY;
+        ReservationHold hold = reserves ? stockReservationService.hold(lines) : null;
+        if (hold != null) {
+            // Covers a failure at commit too, after this method has returned
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        hold.release();
+                    }
+                }
+            });
+        }
+
+        transaction = transactionRepository.save(transaction);
+        for (TransactionLine tl : lines) {
+            tl.setTransaction(transaction);
+        }
+        lines = transactionLineRepository.saveAll(lines);
+        if (hold != null) {
+            stockReservationService.confirm(hold, transaction, lines);
+        }
+
+        log.info("Task {} created by {} with {} lines", transaction.getReference(), creatorUsername, lines.size());
+        return transaction;
+    }
+
+    private String generateReference(TransactionType type) {
+        String prefix = switch (type) {
+            case RECEIPT -> "RCV";
+            case TRANSFER -> "TRF";
+            case PICKING -> "PCK";
+            case DELIVERY -> "DLV";
+            default -> throw new IllegalArgumentException("Unexpected value: " + type);
+        };
+        return prefix + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
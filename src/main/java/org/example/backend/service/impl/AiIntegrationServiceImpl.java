@@ -2,12 +2,21 @@ package org.example.backend.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.backend.client.AiResultCache;
 import org.example.backend.client.AiServiceClient;
 import org.example.backend.dto.request.*;
+import org.example.backend.enums.ForecastEngine;
+import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.service.AiIntegrationService;
+import org.example.backend.service.DemandForecastService;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +26,8 @@ import java.util.Map;
 public class AiIntegrationServiceImpl implements AiIntegrationService {
 
     private final AiServiceClient aiServiceClient;
+    private final AiResultCache aiResultCache;
+    private final DemandForecastService demandForecastService;
 
     @Override
     public Map<String, Object> getAiHealth() {
@@ -34,26 +45,104 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> getModelInfo() {
         try {
-            return aiServiceClient.getModelInfo();
+            return aiResultCache.get(AiResultCache.Endpoint.MODEL_INFO, AiResultCache.NO_PARAMETERS, () -> {
+                Map<String, Object> modelInfo = aiServiceClient.getModelInfo();
+                aiResultCache.recordModelInfo(modelInfo);
+                return modelInfo;
+            });
         } catch (Exception e) {
             log.error("AI model-info failed: {}", e.getMessage());
             throw new RuntimeException("AI service unavailable: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Asks the AI service for its model on a schedule, so that cached
+     * predictions of a replaced model are dropped even when nobody reads
+     * model-info.
+     */
+    @Scheduled(fixedDelayString = "${cache.ai.model-info-poll-ms:60000}",
+            initialDelayString = "${cache.ai.model-info-poll-ms:60000}")
+    public void pollModelInfo() {
+        try {
+            aiResultCache.recordModelInfo(aiServiceClient.getModelInfo());
+        } catch (Exception e) {
+            log.warn("AI model-info poll failed: {}", e.getMessage());
+        }
+    }
+
     @Override
     public List<Map<String, Object>> predictDemand(AiForecastRequest request) {
+        return predictDemand(request, ForecastEngine.AUTO);
+    }
+
+    @Override
+    public List<Map<String, Object>> predictDemand(AiForecastRequest request, ForecastEngine engine) {
+        if (engine == ForecastEngine.LOCAL) {
+            return localForecast(request);
+        }
         try {
-            return aiServiceClient.predict(request);
+            return cachedPredict(request);
         } catch (WebClientResponseException e) {
+            // A rejected request is the caller's to fix; a failing AI service is not
+            if (engine == ForecastEngine.AUTO && e.getStatusCode().is5xxServerError()) {
+                log.warn("AI predict failed [{}], using the local forecaster", e.getStatusCode());
+                return localForecast(request);
+            }
             log.error("AI predict failed [{}]: {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("AI prediction failed: " + e.getResponseBodyAsString(), e);
         } catch (Exception e) {
+            if (engine == ForecastEngine.AUTO) {
+                log.warn("AI predict unavailable, using the local forecaster: {}", e.getMessage());
+                return localForecast(request);
+            }
             log.error("AI predict error: {}", e.getMessage());
             throw new RuntimeException("AI service unavailable: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * The AI service is asked for the normalized request, so that the same
+     * products in another order or with duplicates share a cache entry; the
+     * answer is then put back in the order of the request.
+     */
+    private List<Map<String, Object>> cachedPredict(AiForecastRequest request) {
+        if (request.getProductIds() == null) {
+            return aiServiceClient.predict(request);
+        }
+        AiResultCache.PredictKey key = AiResultCache.predictKey(request.getProductIds(), request.getDate());
+        List<Map<String, Object>> predictions = aiResultCache.get(AiResultCache.Endpoint.PREDICT, key,
+                () -> aiServiceClient.predict(new AiForecastRequest(key.productIds(), key.date())));
+        if (predictions == null) {
+            return null;
+        }
+        Map<Integer, Map<String, Object>> byProduct = new HashMap<>();
+        for (Map<String, Object> prediction : predictions) {
+            if (prediction.get("product_id") instanceof Number productId) {
+                byProduct.put(productId.intValue(), prediction);
+            }
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>();
+        for (Integer productId : request.getProductIds()) {
+            Map<String, Object> prediction = byProduct.get(productId);
+            if (prediction == null) {
+                return predictions;
+            }
+            ordered.add(prediction);
+        }
+        return ordered;
+    }
+
+    private List<Map<String, Object>> localForecast(AiForecastRequest request) {
+        LocalDate date;
+        try {
+            date = request.getDate() != null ? LocalDate.parse(request.getDate()) : LocalDate.now().plusDays(1);
+        } catch (DateTimeParseException e) {
+            throw new InvalidOperationException("date must be an ISO date: " + request.getDate());
+        }
+        return demandForecastService.forecast(request.getProductIds(), date);
+    }
+
     @Override
     public Map<String, Object> generateForecast(AiForecastGenerateRequest request) {
         try {
@@ -70,7 +159,9 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> assignStorage(AiStorageRequest request) {
         try {
-            return aiServiceClient.assignStorage(request);
+            Map<String, Object> result = aiServiceClient.assignStorage(request);
+            aiResultCache.invalidate(AiResultCache.Endpoint.WAREHOUSE_STATE);
+            return result;
         } catch (WebClientResponseException e) {
             log.error("AI assign-storage failed [{}]: {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("AI storage assignment failed: " + e.getResponseBodyAsString(), e);
@@ -96,7 +187,10 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> simulate(AiSimulationRequest request) {
         try {
-            return aiServiceClient.simulate(request);
+            Map<String, Object> result = aiServiceClient.simulate(request);
+            // A simulation replays its events on the AI warehouse state
+            aiResultCache.invalidate(AiResultCache.Endpoint.WAREHOUSE_STATE);
+            return result;
         } catch (WebClientResponseException e) {
             log.error("AI simulate failed [{}]: {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("AI simulation failed: " + e.getResponseBodyAsString(), e);
@@ -109,7 +203,9 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> explain(AiExplainRequest request) {
         try {
-            return aiServiceClient.explain(request);
+            return aiResultCache.get(AiResultCache.Endpoint.EXPLAIN,
+                    AiResultCache.explainKey(request.getProductId(), request.getDate()),
+                    () -> aiServiceClient.explain(request));
         } catch (WebClientResponseException e) {
             log.error("AI explain failed [{}]: {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("AI explainability failed: " + e.getResponseBodyAsString(), e);
@@ -135,7 +231,8 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> getWarehouseState() {
         try {
-            return aiServiceClient.getWarehouseState();
+            return aiResultCache.get(AiResultCache.Endpoint.WAREHOUSE_STATE, AiResultCache.NO_PARAMETERS,
+                    aiServiceClient::getWarehouseState);
         } catch (Exception e) {
             log.error("AI warehouse-state error: {}", e.getMessage());
             throw new RuntimeException("AI service unavailable: " + e.getMessage(), e);
@@ -145,10 +242,17 @@ public class AiIntegrationServiceImpl implements AiIntegrationService {
     @Override
     public Map<String, Object> resetWarehouse() {
         try {
-            return aiServiceClient.resetWarehouse();
+            Map<String, Object> result = aiServiceClient.resetWarehouse();
+            aiResultCache.invalidate(AiResultCache.Endpoint.WAREHOUSE_STATE);
+            return result;
         } catch (Exception e) {
             log.error("AI reset-warehouse error: {}", e.getMessage());
             throw new RuntimeException("AI service unavailable: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    public void invalidateCache() {
+        aiResultCache.invalidateAll();
+    }
 }
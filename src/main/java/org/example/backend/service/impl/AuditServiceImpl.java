@@ -1,27 +1,52 @@
 package org.example.backend.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.example.backend.entity.AuditLog;
 import org.example.backend.entity.User;
 import org.example.backend.repository.AuditLogRepository;
 import org.example.backend.service.AuditService;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Audit entries are written in their own transaction so that they survive a
+ * rollback of the audited operation. With {@code audit.write-behind.enabled}
+ * they are buffered instead and written in batches by a scheduled flush, one
+ * commit per batch rather than one per entry; entries still in the buffer when
+ * the process dies are lost.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuditServiceImpl implements AuditService {
 
     private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate requiresNew;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final Queue<AuditLog> buffer = new ConcurrentLinkedQueue<>();
+
+    public AuditServiceImpl(AuditLogRepository auditLogRepository, PlatformTransactionManager transactionManager,
+            @Value("${audit.write-behind.enabled:false}") boolean writeBehind,
+            @Value("${audit.write-behind.batch-size:500}") int batchSize) {
+        this.auditLogRepository = auditLogRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+    }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public AuditLog log(User user, String action, String entityType, UUID entityId,
             String oldValue, String newValue) {
         AuditLog auditLog = AuditLog.builder()
@@ -33,21 +58,45 @@ public class AuditServiceImpl implements AuditService {
                 .newValue(newValue)
                 .build();
 
-        AuditLog saved = auditLogRepository.save(auditLog);
+        if (writeBehind) {
+            buffer.add(auditLog);
+            return auditLog;
+        }
+
+        AuditLog saved = requiresNew.execute(status -> auditLogRepository.save(auditLog));
         log.debug("Audit log created: action={}, entity={}/{}, user={}",
                 action, entityType, entityId, user.getUsername());
         return saved;
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public AuditLog log(User user, String action, String entityType, UUID entityId) {
         return log(user, action, entityType, entityId, null, null);
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public AuditLog log(User user, String action) {
         return log(user, action, null, null, null, null);
     }
+
+    @Scheduled(fixedDelayString = "${audit.write-behind.flush-ms:200}")
+    @PreDestroy
+    public void flush() {
+        while (!buffer.isEmpty()) {
+            List<AuditLog> batch = new ArrayList<>(batchSize);
+            AuditLog next;
+            while (batch.size() < batchSize && (next = buffer.poll()) != null) {
+                batch.add(next);
+            }
+            try {
+                requiresNew.executeWithoutResult(status -> auditLogRepository.saveAll(batch));
+                log.debug("Flushed {} buffered audit log entries", batch.size());
+            } catch (RuntimeException e) {
+                // Keep them for the next flush
+                log.error("Failed to flush {} audit log entries: {}", batch.size(), e.getMessage());
+                buffer.addAll(batch);
+                return;
+            }
+        }
+    }
 }
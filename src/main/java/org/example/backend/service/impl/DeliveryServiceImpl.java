@@ -8,9 +8,13 @@ import org.example.backend.entity.User;
 import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.service.DeliveryService;
 import org.example.backend.service.StockLedgerService;
+import org.example.backend.service.StockReservationService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class DeliveryServiceImpl implements DeliveryService {
 
     private final StockLedgerService stockLedgerService;
+    private final StockReservationService stockReservationService;
 
     @Override
     public void processDeliveryLine(Transaction transaction, TransactionLine line, User performer) {
@@ -30,6 +35,9 @@ public class DeliveryServiceImpl implements DeliveryService {
                 line.getLineNumber(), line.getProduct().getSku(),
                 line.getQuantity(), line.getSourceLocation().getCode());
 
+        // The line's own reservation is consumed by this movement
+        stockReservationService.consume(line);
+
         // Validate stock availability at source location
         stockLedgerService.validateStockAvailability(
                 line.getProduct().getId(),
@@ -49,8 +57,18 @@ public class DeliveryServiceImpl implements DeliveryService {
     @Override
     public void processDelivery(Transaction transaction, User performer) {
         log.info("Processing full delivery transaction: {}", transaction.getReference());
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
         for (TransactionLine line : transaction.getTransactionLines()) {
-            processDeliveryLine(transaction, line, performer);
+            if (line.getSourceLocation() == null) {
+                throw new InvalidOperationException(
+                        "Delivery line " + line.getLineNumber()
+                                + " must have a source (picking/expedition) location");
+            }
+            stockReservationService.consume(line);
+            movements.add(StockLedgerService.Movement.out(
+                    line.getProduct(), line.getSourceLocation(), line.getQuantity(),
+                    transaction, line, performer));
         }
+        stockLedgerService.recordMovements(movements);
     }
 }
@@ -0,0 +1,213 @@
+package org.example.backend.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.config.CacheConfig;
+import org.example.backend.dto.projection.DemandObservation;
+import org.example.backend.dto.projection.ProductSku;
+import org.example.backend.enums.DemandSource;
+import org.example.backend.repository.DemandHistoryRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.service.DemandForecastService;
+import org.example.backend.service.forecast.DemandModel;
+import org.example.backend.service.forecast.DemandModelFitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Fits one model per product over the last {@code history-days} complete days
+ * of historique_demande and keeps the fitted parameters in a cache, so a
+ * forecast for an already fitted product is a few arithmetic operations.
+ *
+ * A day with a row built from the ledger uses it and ignores the imported
+ * rows of that day. Models are fitted in parallel on a dedicated fork-join
+ * pool; the AI service's integer product ids are matched to product SKUs.
+ */
+@Service
+@Slf4j
+public class DemandForecastServiceImpl implements DemandForecastService {
+
+    private static final int LOAD_CHUNK = 1000;
+    private static final double Z_95 = 1.96;
+    private static final String UNKNOWN_PRODUCT = "UNKNOWN_PRODUCT";
+
+    private final DemandHistoryRepository demandHistoryRepository;
+    private final ProductRepository productRepository;
+    private final Cache models;
+    private final int historyDays;
+    private final ForkJoinPool pool;
+
+    public DemandForecastServiceImpl(DemandHistoryRepository demandHistoryRepository,
+            ProductRepository productRepository,
+            CacheManager cacheManager,
+            @Value("${forecasting.local.history-days:365}") int historyDays,
+            @Value("${forecasting.local.parallelism:0}") int parallelism) {
+        this.demandHistoryRepository = demandHistoryRepository;
+        this.productRepository = productRepository;
+        this.models = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DEMAND_MODELS));
+        this.historyDays = historyDays;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public List<Map<String, Object>> forecast(List<Integer> productIds, LocalDate date) {
+        boolean catalog = productIds == null || productIds.isEmpty();
+        List<ProductSku> products = catalog
+                ? productRepository.findActiveSkus()
+                : productRepository.findSkusBySkuIn(productIds.stream().map(String::valueOf).collect(Collectors.toSet()));
+        Map<String, UUID> bySku = products.stream()
+                .collect(Collectors.toMap(ProductSku::sku, ProductSku::productId, (a, b) -> a));
+        Map<UUID, DemandModel> fitted = getModels(List.copyOf(bySku.values()));
+
+        List<Map<String, Object>> predictions = new ArrayList<>();
+        if (catalog) {
+            for (ProductSku product : products) {
+                predictions.add(toPrediction(aiProductId(product.sku()), product.sku(),
+                        fitted.get(product.productId()), date));
+            }
+        } else {
+            for (Integer productId : productIds) {
+                String sku = String.valueOf(productId);
+                UUID id = bySku.get(sku);
+                predictions.add(toPrediction(productId, sku, id != null ? fitted.get(id) : null, date));
+            }
+        }
+        return predictions;
+    }
+
+    @Override
+    public void evictModels() {
+        models.clear();
+        log.info("Local demand models evicted");
+    }
+
+    private Map<UUID, DemandModel> getModels(List<UUID> productIds) {
+        Map<UUID, DemandModel> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID productId : productIds) {
+            DemandModel model = models.get(productId, DemandModel.class);
+            if (model != null) {
+                result.put(productId, model);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        LocalDate lastDay = LocalDate.now().minusDays(1);
+        Map<UUID, double[]> series = loadSeries(missing, lastDay);
+        // Streams started from a task of the pool run their parts on that pool
+        List<DemandModel> newModels = pool.submit(() -> missing.parallelStream()
+                .map(productId -> DemandModelFitter.fit(productId,
+                        series.getOrDefault(productId, new double[0]), lastDay))
+                .toList())
+                .join();
+        for (DemandModel model : newModels) {
+            models.put(model.productId(), model);
+            result.put(model.productId(), model);
+        }
+        log.info("Fitted {} local demand models in {} ms", newModels.size(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Daily series per product, from its first day with demand up to lastDay.
+     */
+    private Map<UUID, double[]> loadSeries(List<UUID> productIds, LocalDate lastDay) {
+        Map<UUID, Map<LocalDate, Long>> ledger = new HashMap<>();
+        Map<UUID, Map<LocalDate, Long>> imported = new HashMap<>();
+        LocalDate from = lastDay.minusDays(historyDays - 1L);
+        for (int i = 0; i < productIds.size(); i += LOAD_CHUNK) {
+            List<UUID> chunk = productIds.subList(i, Math.min(i + LOAD_CHUNK, productIds.size()));
+            for (DemandObservation row : demandHistoryRepository.findObservations(chunk, from, lastDay)) {
+                Map<UUID, Map<LocalDate, Long>> target = row.source() == DemandSource.LEDGER ? ledger : imported;
+                target.computeIfAbsent(row.productId(), id -> new HashMap<>())
+                        .merge(row.day(), (long) row.quantity(), Long::sum);
+            }
+        }
+
+        Map<UUID, double[]> series = new HashMap<>();
+        for (UUID productId : productIds) {
+            Map<LocalDate, Long> days = new HashMap<>(imported.getOrDefault(productId, Map.of()));
+            days.putAll(ledger.getOrDefault(productId, Map.of()));
+            LocalDate first = days.entrySet().stream()
+                    .filter(day -> day.getValue() > 0)
+                    .map(Map.Entry::getKey)
+                    .min(LocalDate::compareTo)
+                    .orElse(null);
+            if (first == null) {
+                continue;
+            }
+            double[] values = new double[(int) ChronoUnit.DAYS.between(first, lastDay) + 1];
+            days.forEach((day, quantity) -> {
+                if (!day.isBefore(first)) {
+                    values[(int) ChronoUnit.DAYS.between(first, day)] = quantity;
+                }
+            });
+            series.put(productId, values);
+        }
+        return series;
+    }
+
+    /**
+     * A product id matching no SKU has no forecast: its figures are null, not
+     * a forecast of zero demand.
+     */
+    private Map<String, Object> toPrediction(Integer productId, String sku, DemandModel model, LocalDate date) {
+        Map<String, Object> prediction = new LinkedHashMap<>();
+        prediction.put("product_id", productId);
+        prediction.put("sku", sku);
+        prediction.put("forecast_date", date.toString());
+        if (model != null) {
+            double predicted = model.forecast(date);
+            double spread = Z_95 * model.residualStd();
+            prediction.put("predicted_demand", round(predicted));
+            prediction.put("probability", round(model.probability()));
+            prediction.put("confidence_low", round(Math.max(0, predicted - spread)));
+            prediction.put("confidence_high", round(predicted + spread));
+            prediction.put("model", model.method().name());
+        } else {
+            prediction.put("predicted_demand", null);
+            prediction.put("probability", null);
+            prediction.put("confidence_low", null);
+            prediction.put("confidence_high", null);
+            prediction.put("model", UNKNOWN_PRODUCT);
+        }
+        prediction.put("engine", "local");
+        return prediction;
+    }
+
+    private static Integer aiProductId(String sku) {
+        try {
+            return Integer.valueOf(sku);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
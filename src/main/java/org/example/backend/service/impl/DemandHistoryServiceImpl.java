@@ -0,0 +1,337 @@
+package org.example.backend.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.dto.projection.ProductDayDemand;
+import org.example.backend.entity.RollupWatermark;
+import org.example.backend.enums.DemandSource;
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.TransactionType;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.RollupWatermarkRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.service.DemandForecastService;
+import org.example.backend.service.DemandHistoryService;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.example.backend.service.ledger.ArchivedLedgerEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Demand history maintained by a watermark job, like the report rollups.
+ *
+ * A window recomputes whole days: the ledger rows of the days it touches are
+ * deleted and inserted again from a grouped query over [start of the first
+ * day, window end), in one transaction with the watermark. The day holding the
+ * watermark is therefore rebuilt by every run until it is over, and re-running
+ * any window gives the same rows. Each run also starts {@code overlap-minutes}
+ * below the watermark, so the previous day is rebuilt once more after midnight
+ * for movements that committed late or were written behind. Only rows with source LEDGER are written;
+ * imported rows are left alone.
+ */
+@Service
+@Slf4j
+public class DemandHistoryServiceImpl implements DemandHistoryService {
+
+    static final String WATERMARK = "demand-history";
+
+    private static final Set<TransactionType> DEMAND_TYPES = EnumSet.of(TransactionType.DELIVERY,
+            TransactionType.PICKING);
+    private static final String DELETE_DAYS = """
+            DELETE FROM historique_demande WHERE source = 'LEDGER' AND date >= ? AND date <= ?
+            """;
+    private static final String INSERT_DEMAND = """
+            INSERT INTO historique_demande (id, date, id_produit, quantite_demande, source, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+    private static final int LOOKUP_CHUNK = 500;
+
+    private record DemandKey(UUID productId, LocalDate day) {
+    }
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final StockLedgerArchiveService archiveService;
+    private final DemandForecastService demandForecastService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long safetyLagMinutes;
+    private final long overlapMinutes;
+    private final int windowDays;
+    private final int shardDays;
+    private final int backfillParallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger shardsDone = new AtomicInteger();
+    private volatile int shardsTotal;
+    private volatile boolean backfilling;
+
+    public DemandHistoryServiceImpl(StockLedgerRepository stockLedgerRepository,
+            RollupWatermarkRepository watermarkRepository,
+            StockLedgerArchiveService archiveService,
+            DemandForecastService demandForecastService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${forecasting.demand-history.safety-lag-minutes:5}") long safetyLagMinutes,
+            @Value("${forecasting.demand-history.overlap-minutes:60}") long overlapMinutes,
+            @Value("${forecasting.demand-history.window-days:7}") int windowDays,
+            @Value("${forecasting.demand-history.backfill-shard-days:7}") int shardDays,
+            @Value("${forecasting.demand-history.backfill-parallelism:4}") int backfillParallelism) {
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.archiveService = archiveService;
+        this.demandForecastService = demandForecastService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.safetyLagMinutes = safetyLagMinutes;
+        this.overlapMinutes = overlapMinutes;
+        this.windowDays = Math.max(1, windowDays);
+        this.shardDays = Math.max(1, shardDays);
+        this.backfillParallelism = Math.max(1, backfillParallelism);
+    }
+
+    @Scheduled(fixedDelayString = "${forecasting.demand-history.interval-ms:900000}",
+            initialDelayString = "${forecasting.demand-history.initial-delay-ms:120000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Demand history refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int refresh() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Demand history refresh or backfill already running — skipping");
+            return 0;
+        }
+        try {
+            LocalDateTime target = completeUntil();
+            Optional<RollupWatermark> watermark = watermarkRepository.findById(WATERMARK);
+            // A new history starts with the current day; older days come from a backfill
+            LocalDateTime from = watermark.map(RollupWatermark::getWatermark)
+                    .orElse(target.truncatedTo(ChronoUnit.DAYS));
+            LocalDateTime coveredFrom = watermark.map(RollupWatermark::getCoveredFrom).orElse(from);
+            if (watermark.isPresent()) {
+                LocalDateTime rescanFrom = from.minusMinutes(overlapMinutes);
+                from = rescanFrom.isBefore(coveredFrom) ? coveredFrom : rescanFrom;
+            }
+
+            int windows = 0;
+            while (from.isBefore(target)) {
+                LocalDateTime windowStart = from.truncatedTo(ChronoUnit.DAYS);
+                LocalDateTime next = windowStart.plusDays(windowDays);
+                LocalDateTime windowEnd = next.isBefore(target) ? next : target;
+                transactionTemplate.executeWithoutResult(status -> {
+                    rebuildDays(windowStart, windowEnd);
+                    saveWatermark(coveredFrom, windowEnd);
+                });
+                from = windowEnd;
+                windows++;
+            }
+            if (watermark.isEmpty() && windows == 0) {
+                saveWatermark(coveredFrom, from);
+            }
+            if (windows > 0) {
+                log.info("Demand history advanced to {} ({} windows)", target, windows);
+            }
+            return windows;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public void startBackfill(LocalDate from) {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidOperationException("A demand history refresh or backfill is already running");
+        }
+        backfilling = true;
+        Thread backfill = new Thread(() -> {
+            try {
+                backfill(from.atStartOfDay());
+            } catch (Exception e) {
+                log.error("Demand history backfill from {} failed: {}", from, e.getMessage(), e);
+            } finally {
+                backfilling = false;
+                running.set(false);
+            }
+        }, "demand-history-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @Override
+    public BuildStatus getStatus() {
+        Optional<RollupWatermark> watermark = watermarkRepository.findById(WATERMARK);
+        return new BuildStatus(
+                watermark.map(RollupWatermark::getCoveredFrom).orElse(null),
+                watermark.map(RollupWatermark::getWatermark).orElse(null),
+                backfilling, shardsDone.get(), shardsTotal);
+    }
+
+    /**
+     * Date shards run concurrently, each in its own transaction; they cover
+     * disjoint days, so they never write the same rows. The covered range is
+     * only extended once every shard has committed.
+     */
+    private void backfill(LocalDateTime from) throws InterruptedException {
+        Optional<RollupWatermark> watermark = watermarkRepository.findById(WATERMARK);
+        LocalDateTime end = watermark.map(RollupWatermark::getWatermark).orElse(completeUntil());
+        LocalDateTime coveredFrom = watermark.map(RollupWatermark::getCoveredFrom)
+                .filter(covered -> covered.isBefore(from))
+                .orElse(from);
+
+        List<LocalDateTime[]> shards = new ArrayList<>();
+        for (LocalDateTime start = from; start.isBefore(end); start = start.plusDays(shardDays)) {
+            LocalDateTime next = start.plusDays(shardDays);
+            shards.add(new LocalDateTime[] { start, next.isBefore(end) ? next : end });
+        }
+        shardsTotal = shards.size();
+        shardsDone.set(0);
+
+        long startMs = System.currentTimeMillis();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(backfillParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "demand-history-shard-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (LocalDateTime[] shard : shards) {
+                results.add(pool.submit(() -> {
+                    Integer rows = transactionTemplate.execute(status -> rebuildDays(shard[0], shard[1]));
+                    shardsDone.incrementAndGet();
+                    return rows;
+                }));
+            }
+            long rows = 0;
+            for (Future<Integer> result : results) {
+                try {
+                    rows += result.get();
+                } catch (ExecutionException e) {
+                    pool.shutdownNow();
+                    throw new IllegalStateException("Demand history shard failed", e.getCause());
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> saveWatermark(coveredFrom, end));
+            // The models were fitted on the history that has just been rewritten
+            demandForecastService.evictModels();
+            log.info("Demand history backfilled from {} to {}: {} shards, {} rows in {} ms",
+                    from, end, shards.size(), rows, System.currentTimeMillis() - startMs);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Replace the ledger demand of every day in [from, to) with the grouped
+     * movements. Caller holds the transaction.
+     *
+     * @return rows written
+     */
+    private int rebuildDays(LocalDateTime from, LocalDateTime to) {
+        Map<DemandKey, Long> demand = new HashMap<>();
+        for (ProductDayDemand row : stockLedgerRepository.sumDemandByDay(DEMAND_TYPES, from, to)) {
+            demand.merge(new DemandKey(row.productId(), row.day()), row.quantity(), Long::sum);
+        }
+        addArchivedDemand(demand, from, to);
+
+        jdbcTemplate.update(DELETE_DAYS, Date.valueOf(from.toLocalDate()),
+                Date.valueOf(to.minusNanos(1).toLocalDate()));
+        List<Map.Entry<DemandKey, Long>> rows = demand.entrySet().stream()
+                .filter(row -> row.getValue() > 0)
+                .toList();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_DEMAND, rows, 500, (ps, row) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setDate(2, Date.valueOf(row.getKey().day()));
+            ps.setObject(3, row.getKey().productId());
+            ps.setInt(4, (int) Math.min(row.getValue(), Integer.MAX_VALUE));
+            ps.setString(5, DemandSource.LEDGER.name());
+            ps.setTimestamp(6, now);
+        });
+        return rows.size();
+    }
+
+    /**
+     * Months already moved to the archive files are only there; their
+     * transactions are still in the database and give the type.
+     */
+    private void addArchivedDemand(Map<DemandKey, Long> demand, LocalDateTime from, LocalDateTime to) {
+        Optional<LocalDateTime> archivedUntil = archiveService.getArchivedUntil();
+        if (archivedUntil.isEmpty() || !archivedUntil.get().isAfter(from)) {
+            return;
+        }
+        List<ArchivedLedgerEntry> outs = new ArrayList<>();
+        archiveService.scanArchived(from, to, entry -> {
+            if (entry.movementType() == MovementType.OUT && entry.performedAt().isBefore(to)) {
+                outs.add(entry);
+            }
+        });
+        Set<UUID> demandTransactions = demandTransactions(outs.stream()
+                .map(ArchivedLedgerEntry::transactionId)
+                .distinct()
+                .toList());
+        for (ArchivedLedgerEntry entry : outs) {
+            if (demandTransactions.contains(entry.transactionId())) {
+                demand.merge(new DemandKey(entry.productId(), entry.performedAt().toLocalDate()),
+                        (long) entry.quantity(), Long::sum);
+            }
+        }
+    }
+
+    private Set<UUID> demandTransactions(List<UUID> transactionIds) {
+        Set<UUID> found = new HashSet<>();
+        for (int i = 0; i < transactionIds.size(); i += LOOKUP_CHUNK) {
+            List<UUID> chunk = transactionIds.subList(i, Math.min(i + LOOKUP_CHUNK, transactionIds.size()));
+            String sql = "SELECT id_transaction FROM transactions WHERE type_transaction IN ('DELIVERY', 'PICKING') "
+                    + "AND id_transaction IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            found.addAll(jdbcTemplate.queryForList(sql, UUID.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    /**
+     * Everything before this is built; movements committed later than the
+     * safety lag are picked up by the overlap.
+     */
+    private LocalDateTime completeUntil() {
+        return LocalDateTime.now().minusMinutes(safetyLagMinutes).truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private void saveWatermark(LocalDateTime coveredFrom, LocalDateTime watermark) {
+        watermarkRepository.save(RollupWatermark.builder()
+                .name(WATERMARK)
+                .coveredFrom(coveredFrom)
+                .watermark(watermark)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.example.backend.service.InventoryExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exports the stock_balance projection in keyset pages, like /stock/ledger.
+ *
+ * Each page is read in its own short read-only transaction and written out
+ * after the connection is back in the pool, so an export never holds a
+ * connection while the client reads at its own pace. Memory use is bounded by
+ * one page. Every page is consistent in itself; the export as a whole is not
+ * one snapshot, a pair that moves during it shows the quantity of the moment
+ * its page was read.
+ */
+@Service
+@Slf4j
+public class InventoryExportServiceImpl implements InventoryExportService {
+
+    /** A grouped or flat query with a %s slot for the keyset condition, and its unique sort key. */
+    private record PagedQuery(String sql, String keyExpression, String... keyLabels) {
+
+        String page(boolean first, int pageSize) {
+            String condition = first ? "" : "AND (" + keyExpression + ") > ("
+                    + String.join(", ", Collections.nCopies(keyLabels.length, "?")) + ")";
+            return sql.formatted(condition) + " LIMIT " + pageSize;
+        }
+    }
+
+    private static final PagedQuery BY_PRODUCT = new PagedQuery("""
+            SELECT p.id AS product_id, p.sku, p.name, p.category, p.unit_of_measure,
+                   COALESCE(SUM(b.quantity), 0) AS quantity
+            FROM products p
+            LEFT JOIN stock_balance b ON b.product_id = p.id
+            WHERE p.active = true %s
+            GROUP BY p.id, p.sku, p.name, p.category, p.unit_of_measure
+            ORDER BY p.sku
+            """, "p.sku", "sku");
+    private static final PagedQuery BY_WAREHOUSE = new PagedQuery("""
+            SELECT p.id AS product_id, p.sku, p.name, p.category, p.unit_of_measure,
+                   w.id_entrepot AS warehouse_id, w.code_entrepot AS warehouse_code,
+                   SUM(b.quantity) AS quantity
+            FROM stock_balance b
+            JOIN products p ON p.id = b.product_id
+            JOIN emplacements l ON l.id_emplacement = b.location_id
+            JOIN entrepot w ON w.id_entrepot = l.id_entrepot
+            WHERE b.quantity > 0 %s
+            GROUP BY p.id, p.sku, p.name, p.category, p.unit_of_measure, w.id_entrepot, w.code_entrepot
+            ORDER BY p.sku, w.code_entrepot
+            """, "p.sku, w.code_entrepot", "sku", "warehouse_code");
+    private static final PagedQuery BY_LOCATION = new PagedQuery("""
+            SELECT p.id AS product_id, p.sku, p.name, p.category, p.unit_of_measure,
+                   w.code_entrepot AS warehouse_code, l.id_emplacement AS location_id,
+                   l.code_emplacement AS location_code, b.quantity, b.last_movement_at
+            FROM stock_balance b
+            JOIN products p ON p.id = b.product_id
+            JOIN emplacements l ON l.id_emplacement = b.location_id
+            JOIN entrepot w ON w.id_entrepot = l.id_entrepot
+            WHERE b.quantity > 0 %s
+            ORDER BY p.sku, l.code_emplacement
+            """, "p.sku, l.code_emplacement", "sku", "location_code");
+
+    private record Page(String[] labels, List<Object[]> rows) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate pageTransaction;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    public InventoryExportServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper, @Value("${inventory.export.page-size:5000}") int pageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageTransaction = new TransactionTemplate(transactionManager);
+        this.pageTransaction.setReadOnly(true);
+        this.pageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    @Override
+    public long export(Format format, Breakdown breakdown, OutputStream out) throws IOException {
+        PagedQuery query = switch (breakdown) {
+            case NONE -> BY_PRODUCT;
+            case WAREHOUSE -> BY_WAREHOUSE;
+            case LOCATION -> BY_LOCATION;
+        };
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        long count = 0;
+        int pages = 0;
+
+        Object[] after = null;
+        Page page;
+        do {
+            page = readPage(query, after);
+            if (pages++ == 0) {
+                rows.header(page.labels());
+            }
+            for (Object[] row : page.rows()) {
+                rows.row(row);
+            }
+            count += page.rows().size();
+            after = page.rows().isEmpty() ? null : keyOf(query, page, page.rows().get(page.rows().size() - 1));
+        } while (page.rows().size() == pageSize);
+        rows.finish();
+        writer.flush();
+
+        log.info("Inventory export ({}, breakdown={}): {} rows in {} pages, {} ms",
+                format, breakdown, count, pages, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * The page after the given key, or the first page without one.
+     */
+    private Page readPage(PagedQuery query, Object[] after) {
+        return pageTransaction.execute(status -> jdbcTemplate.query(query.page(after == null, pageSize), rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            String[] labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+            }
+            List<Object[]> rows = new ArrayList<>(pageSize);
+            while (rs.next()) {
+                Object[] row = new Object[labels.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+            return new Page(labels, rows);
+        }, after != null ? after : new Object[0]));
+    }
+
+    private static Object[] keyOf(PagedQuery query, Page page, Object[] row) {
+        List<String> labels = Arrays.asList(page.labels());
+        Object[] key = new Object[query.keyLabels().length];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = row[labels.indexOf(query.keyLabels()[i])];
+        }
+        return key;
+    }
+
+    private interface RowWriter {
+        void header(String[] labels) throws IOException;
+
+        void row(Object[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final CSVPrinter printer;
+
+        private CsvRowWriter(Writer writer) throws IOException {
+            this.printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
+        }
+
+        @Override
+        public void header(String[] labels) throws IOException {
+            printer.printRecord((Object[]) labels);
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            printer.printRecord(values);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator json;
+        private String[] labels;
+
+        private NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            // One object per line, nothing between them; flushing is left to the buffered writer
+            this.json.setRootValueSeparator(null);
+            this.json.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+        }
+
+        @Override
+        public void header(String[] labels) {
+            this.labels = labels;
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < labels.length; i++) {
+                json.writeFieldName(labels[i]);
+                json.writeObject(values[i]);
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+}
@@ -1,4 +1,208 @@
 package org.example.backend.service.impl;
 
-public class InventoryServiceImpl {
+import org.example.backend.config.CacheConfig;
+import org.example.backend.dto.projection.LocationProductQuantity;
+import org.example.backend.dto.projection.LocationStockQuantity;
+import org.example.backend.dto.response.LocationContentsResponse;
+import org.example.backend.dto.response.StockResponse;
+import org.example.backend.entity.Location;
+import org.example.backend.entity.Product;
+import org.example.backend.exception.ResourceNotFoundException;
+import org.example.backend.repository.LocationRepository;
+import org.example.backend.repository.ProductBarcodeRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.StockBalanceRepository;
+import org.example.backend.service.InventoryService;
+import org.example.backend.service.ledger.LedgerGroupCommittedEvent;
+import org.example.backend.service.ledger.StockBalancesRebuiltEvent;
+import org.example.backend.service.ledger.StockKey;
+import org.example.backend.service.ledger.StockMovementEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Cached implementation of the inventory lookups.
+ *
+ * Entries are built from the stock_balance projection with one query each and
+ * kept in Caffeine. Ledger writes evict the product and the location they touch
+ * after commit; a load racing with an eviction is discarded by Caffeine, so a
+ * cached entry never predates the last committed movement. Not transactional on
+ * purpose: a cache hit does not take a connection.
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private static final double NEAR_FULL_RATIO = 0.9;
+
+    private final ProductRepository productRepository;
+    private final ProductBarcodeRepository productBarcodeRepository;
+    private final LocationRepository locationRepository;
+    private final StockBalanceRepository stockBalanceRepository;
+    private final Cache productStock;
+    private final Cache locationContents;
+    private final Cache skuIndex;
+    private final Cache locationCodes;
+
+    public InventoryServiceImpl(ProductRepository productRepository,
+            ProductBarcodeRepository productBarcodeRepository, LocationRepository locationRepository,
+            StockBalanceRepository stockBalanceRepository, CacheManager cacheManager) {
+        this.productRepository = productRepository;
+        this.productBarcodeRepository = productBarcodeRepository;
+        this.locationRepository = locationRepository;
+        this.stockBalanceRepository = stockBalanceRepository;
+        this.productStock = Objects.requireNonNull(cacheManager.getCache(CacheConfig.PRODUCT_STOCK));
+        this.locationContents = Objects.requireNonNull(cacheManager.getCache(CacheConfig.LOCATION_CONTENTS));
+        this.skuIndex = Objects.requireNonNull(cacheManager.getCache(CacheConfig.SKU_INDEX));
+        this.locationCodes = Objects.requireNonNull(cacheManager.getCache(CacheConfig.LOCATION_CODES));
+    }
+
+    @Override
+    public StockResponse getProductStock(UUID productId) {
+        return load(productStock, productId, () -> loadProductStock(productId));
+    }
+
+    @Override
+    public StockResponse getProductStockBySku(String sku) {
+        UUID productId = skuIndex.get(sku, UUID.class);
+        if (productId == null) {
+            productId = productRepository.findBySku(sku)
+                    .map(Product::getId)
+                    .or(() -> productBarcodeRepository.findByBarcode(sku).map(b -> b.getProduct().getId()))
+                    .orElseThrow(() -> new ResourceNotFoundException("No product with SKU or barcode: " + sku));
+            skuIndex.put(sku, productId);
+        }
+        return getProductStock(productId);
+    }
+
+    @Override
+    public LocationContentsResponse getLocationContents(String location) {
+        UUID locationId = resolveLocation(location);
+        return load(locationContents, locationId, () -> loadLocationContents(locationId));
+    }
+
+    @TransactionalEventListener
+    public void onStockMovement(StockMovementEvent event) {
+        productStock.evict(event.productId());
+        locationContents.evict(event.locationId());
+    }
+
+    /**
+     * In write-behind mode the tables are written after the movement event; drop
+     * anything that was reloaded in between.
+     */
+    @EventListener
+    public void onLedgerGroupCommitted(LedgerGroupCommittedEvent event) {
+        for (StockKey key : event.keys()) {
+            productStock.evict(key.productId());
+            locationContents.evict(key.locationId());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBalancesRebuilt(StockBalancesRebuiltEvent event) {
+        productStock.clear();
+        locationContents.clear();
+    }
+
+    private StockResponse loadProductStock(UUID productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + productId));
+        List<LocationStockQuantity> stock = stockBalanceRepository.findLocationStock(List.of(productId));
+
+        return StockResponse.builder()
+                .productId(product.getId())
+                .productSku(product.getSku())
+                .productName(product.getName())
+                .unitOfMeasure(product.getUnitOfMeasure())
+                .totalStock(stock.stream().mapToLong(LocationStockQuantity::quantity).sum())
+                .locations(stock.stream()
+                        .map(s -> StockResponse.LocationQuantity.builder()
+                                .locationId(s.locationId())
+                                .locationCode(s.locationCode())
+                                .quantity(s.quantity())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private LocationContentsResponse loadLocationContents(UUID locationId) {
+        Location location = locationRepository.findById(locationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Location not found: " + locationId));
+        List<LocationProductQuantity> contents = stockBalanceRepository.findLocationContents(locationId);
+
+        return LocationContentsResponse.builder()
+                .locationId(location.getId())
+                .locationCode(location.getCode())
+                .zone(location.getZone())
+                .type(location.getType() != null ? location.getType().name() : null)
+                .products(contents.stream()
+                        .map(c -> LocationContentsResponse.ProductQuantity.builder()
+                                .productId(c.productId())
+                                .productSku(c.sku())
+                                .productName(c.name())
+                                .quantity(c.quantity())
+                                .build())
+                        .toList())
+                .capacityStatus(capacityStatus(location, contents))
+                .build();
+    }
+
+    /**
+     * EMPTY, NORMAL, NEAR_FULL or FULL from the volume of the stored units;
+     * UNKNOWN when the location or a stored product has no volume.
+     */
+    private String capacityStatus(Location location, List<LocationProductQuantity> contents) {
+        if (contents.isEmpty()) {
+            return "EMPTY";
+        }
+        if (location.getVolumeM3() == null || location.getVolumeM3() <= 0
+                || contents.stream().anyMatch(c -> c.volumePcs() == null)) {
+            return "UNKNOWN";
+        }
+        double used = contents.stream().mapToDouble(c -> c.volumePcs() * c.quantity()).sum();
+        double ratio = used / location.getVolumeM3();
+        if (ratio >= 1.0) {
+            return "FULL";
+        }
+        return ratio >= NEAR_FULL_RATIO ? "NEAR_FULL" : "NORMAL";
+    }
+
+    private UUID resolveLocation(String location) {
+        try {
+            return UUID.fromString(location);
+        } catch (IllegalArgumentException notAnId) {
+            // Handhelds scan the location code
+        }
+        UUID locationId = locationCodes.get(location, UUID.class);
+        if (locationId == null) {
+            locationId = locationRepository.findByCode(location)
+                    .map(Location::getId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Location not found: " + location));
+            locationCodes.put(location, locationId);
+        }
+        return locationId;
+    }
+
+    /**
+     * Cache-or-load that lets the loader's own exceptions (e.g. not found)
+     * through instead of Spring's wrapper.
+     */
+    private static <T> T load(Cache cache, Object key, Callable<T> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.LocationActivity;
+import org.example.backend.dto.projection.LocationStockTotal;
+import org.example.backend.dto.response.LocationRollupResponse;
+import org.example.backend.repository.StockBalanceRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.service.LocationAnalyticsService;
+import org.example.backend.util.LocationCodeParser;
+import org.example.backend.util.LongIntMap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Roll-ups computed from one row per location: the codes are parsed once per
+ * location into primitive keys and grouped by masking those keys, so no code
+ * is split or matched against a pattern per row.
+ */
+@Service
+@RequiredArgsConstructor
+public class LocationAnalyticsServiceImpl implements LocationAnalyticsService {
+
+    private final StockBalanceRepository stockBalanceRepository;
+    private final StockLedgerRepository stockLedgerRepository;
+    private final Map<UUID, ParsedCode> codeKeys = new ConcurrentHashMap<>();
+
+    private record ParsedCode(String code, long key) {
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LocationRollupResponse rollUp(Grouping grouping, UUID warehouseId, LocalDateTime from,
+            LocalDateTime to) {
+        List<LocationStockTotal> locations = stockBalanceRepository.findLocationTotals(warehouseId);
+
+        LongIntMap groupIndex = new LongIntMap(256);
+        List<Bucket> buckets = new ArrayList<>();
+        // Location id -> bucket, for the activity rows
+        Map<UUID, Bucket> bucketOfLocation = new HashMap<>(locations.size() * 2);
+        List<String> unparsed = new ArrayList<>();
+
+        for (LocationStockTotal location : locations) {
+            long key = codeKey(location.locationId(), location.locationCode());
+            if (key == LocationCodeParser.INVALID) {
+                unparsed.add(location.locationCode());
+                continue;
+            }
+            long groupKey = groupKey(grouping, key);
+            int index = groupIndex.getOrDefault(groupKey, -1);
+            if (index < 0) {
+                index = buckets.size();
+                buckets.add(new Bucket(groupKey));
+                groupIndex.put(groupKey, index);
+            }
+            Bucket bucket = buckets.get(index);
+            bucket.locations++;
+            if (location.quantity() > 0) {
+                bucket.occupiedLocations++;
+            }
+            bucket.quantity += location.quantity();
+            bucket.productSlots += location.products();
+            bucketOfLocation.put(location.locationId(), bucket);
+        }
+
+        for (LocationActivity activity : stockLedgerRepository.findLocationActivity(from, to)) {
+            Bucket bucket = bucketOfLocation.get(activity.locationId());
+            if (bucket == null) {
+                // Other warehouse, or unparsed code
+                continue;
+            }
+            bucket.movements += activity.movements();
+            bucket.unitsIn += activity.unitsIn();
+            bucket.unitsOut += activity.unitsOut();
+        }
+
+        // Keys sort by block, aisle, level
+        buckets.sort(Comparator.comparingLong(bucket -> bucket.groupKey));
+        unparsed.sort(null);
+
+        return LocationRollupResponse.builder()
+                .groupBy(grouping.name())
+                .activityFrom(from)
+                .activityTo(to)
+                .groups(buckets.stream().map(bucket -> toGroup(grouping, bucket)).toList())
+                .unparsedLocations(unparsed)
+                .build();
+    }
+
+    @Override
+    public long codeKey(UUID locationId, String code) {
+        ParsedCode parsed = codeKeys.get(locationId);
+        if (parsed == null || !parsed.code().equals(code)) {
+            parsed = new ParsedCode(code, LocationCodeParser.parse(code));
+            codeKeys.put(locationId, parsed);
+        }
+        return parsed.key();
+    }
+
+    private static long groupKey(Grouping grouping, long key) {
+        return switch (grouping) {
+            case BLOCK -> LocationCodeParser.blockKey(key);
+            case AISLE -> LocationCodeParser.aisleKey(key);
+            case LEVEL -> LocationCodeParser.levelKey(key);
+        };
+    }
+
+    private static LocationRollupResponse.Group toGroup(Grouping grouping, Bucket bucket) {
+        boolean withAisle = grouping != Grouping.BLOCK;
+        boolean withLevel = grouping == Grouping.LEVEL;
+        long key = bucket.groupKey;
+        return LocationRollupResponse.Group.builder()
+                .group(LocationCodeParser.appendGroupLabel(new StringBuilder(12), key, withAisle, withLevel)
+                        .toString())
+                .block(LocationCodeParser.block(key))
+                .aisle(withAisle ? String.valueOf(LocationCodeParser.aisle(key)) : null)
+                .level(withLevel ? LocationCodeParser.level(key) : null)
+                .locations(bucket.locations)
+                .occupiedLocations(bucket.occupiedLocations)
+                .quantity(bucket.quantity)
+                .productSlots(bucket.productSlots)
+                .movements(bucket.movements)
+                .unitsIn(bucket.unitsIn)
+                .unitsOut(bucket.unitsOut)
+                .build();
+    }
+
+    private static final class Bucket {
+        private final long groupKey;
+        private int locations;
+        private int occupiedLocations;
+        private long quantity;
+        private long productSlots;
+        private long movements;
+        private long unitsIn;
+        private long unitsOut;
+
+        private Bucket(long groupKey) {
+            this.groupKey = groupKey;
+        }
+    }
+}
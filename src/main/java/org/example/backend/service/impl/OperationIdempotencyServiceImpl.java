@@ -0,0 +1,146 @@
+package org.example.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.entity.OperationLineExecution;
+import org.example.backend.entity.Transaction;
+import org.example.backend.exception.DuplicateResourceException;
+import org.example.backend.repository.OperationLineExecutionRepository;
+import org.example.backend.service.OperationIdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+@Transactional
+public class OperationIdempotencyServiceImpl implements OperationIdempotencyService {
+
+    private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    /** A completed execution with what it was executed for. */
+    private record Completed(String username, UUID transactionId, int lineNumber, Map<String, Object> response) {
+    }
+
+    private final OperationLineExecutionRepository executionRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Completed> responses;
+
+    public OperationIdempotencyServiceImpl(OperationLineExecutionRepository executionRepository,
+            ObjectMapper objectMapper,
+            @Value("${operations.idempotency.cache-size:10000}") long cacheSize,
+            @Value("${operations.idempotency.cache-ttl-minutes:1440}") long cacheTtlMinutes) {
+        this.executionRepository = executionRepository;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    @Override
+    public String resolveKey(String username, String clientKey, UUID transactionId, int lineNumber) {
+        if (clientKey != null && !clientKey.isBlank()) {
+            return "client:" + username + ":" + clientKey.trim();
+        }
+        return lineKey(transactionId, lineNumber);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> findCompleted(String key, String username, UUID transactionId,
+            int lineNumber) {
+        String lineKey = lineKey(transactionId, lineNumber);
+        Optional<Completed> completed = find(key, () -> executionRepository.findByIdempotencyKey(key))
+                .or(() -> find(lineKey,
+                        () -> executionRepository.findByTransaction_IdAndLineNumber(transactionId, lineNumber)));
+        return completed.map(execution -> {
+            if (!execution.transactionId().equals(transactionId) || execution.lineNumber() != lineNumber) {
+                throw new DuplicateResourceException("Idempotency-Key was already used for line "
+                        + execution.lineNumber() + " of transaction " + execution.transactionId());
+            }
+            if (!execution.username().equals(username)) {
+                throw new DuplicateResourceException("Line " + lineNumber + " of transaction " + transactionId
+                        + " was already executed by another user");
+            }
+            return execution.response();
+        });
+    }
+
+    private Optional<Completed> find(String key, Supplier<Optional<OperationLineExecution>> loader) {
+        Completed cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return loader.get()
+                .filter(execution -> execution.getResponseJson() != null)
+                .map(execution -> {
+                    Completed completed = new Completed(execution.getUsername(),
+                            execution.getTransaction().getId(), execution.getLineNumber(),
+                            readResponse(execution.getResponseJson()));
+                    cache(execution.getIdempotencyKey(), completed);
+                    return completed;
+                });
+    }
+
+    @Override
+    public OperationLineExecution claim(String key, Transaction transaction, int lineNumber, String username) {
+        return executionRepository.saveAndFlush(OperationLineExecution.builder()
+                .idempotencyKey(key)
+                .transaction(transaction)
+                .lineNumber(lineNumber)
+                .username(username)
+                .build());
+    }
+
+    @Override
+    public void complete(OperationLineExecution execution, Map<String, Object> response) {
+        try {
+            execution.setResponseJson(objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize operation line response", e);
+        }
+        executionRepository.save(execution);
+
+        // Serve replays from the stored JSON form, as a database hit would
+        Completed completed = new Completed(execution.getUsername(), execution.getTransaction().getId(),
+                execution.getLineNumber(), readResponse(execution.getResponseJson()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache(execution.getIdempotencyKey(), completed);
+            }
+        });
+    }
+
+    private void cache(String key, Completed completed) {
+        responses.put(key, completed);
+        responses.put(lineKey(completed.transactionId(), completed.lineNumber()), completed);
+    }
+
+    private Map<String, Object> readResponse(String json) {
+        try {
+            return Collections.unmodifiableMap(objectMapper.readValue(json, RESPONSE_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored operation line response is not valid JSON", e);
+        }
+    }
+
+    private static String lineKey(UUID transactionId, int lineNumber) {
+        return "line:" + transactionId + ":" + lineNumber;
+    }
+}
@@ -8,9 +8,13 @@ import org.example.backend.entity.User;
 import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.service.PickingService;
 import org.example.backend.service.StockLedgerService;
+import org.example.backend.service.StockReservationService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class PickingServiceImpl implements PickingService {
 
     private final StockLedgerService stockLedgerService;
+    private final StockReservationService stockReservationService;
 
     @Override
     public void processPickingLine(Transaction transaction, TransactionLine line, User performer) {
@@ -34,24 +39,19 @@ public class PickingServiceImpl implements PickingService {
                 line.getLineNumber(), line.getProduct().getSku(), line.getQuantity(),
                 line.getSourceLocation().getCode(), line.getDestinationLocation().getCode());
 
+        // The line's own reservation is consumed by this movement
+        stockReservationService.consume(line);
+
         // Validate stock availability at storage location
         stockLedgerService.validateStockAvailability(
                 line.getProduct().getId(),
                 line.getSourceLocation().getId(),
                 line.getQuantity());
 
-        // Stock OUT from storage location
-        stockLedgerService.recordStockOut(
+        // Stock OUT from storage location, stock IN at picking rack location
+        stockLedgerService.recordTransfer(
                 line.getProduct(),
                 line.getSourceLocation(),
-                line.getQuantity(),
-                transaction,
-                line,
-                performer);
-
-        // Stock IN at picking rack location
-        stockLedgerService.recordStockIn(
-                line.getProduct(),
                 line.getDestinationLocation(),
                 line.getQuantity(),
                 transaction,
@@ -62,8 +62,24 @@ public class PickingServiceImpl implements PickingService {
     @Override
     public void processPicking(Transaction transaction, User performer) {
         log.info("Processing full picking transaction: {}", transaction.getReference());
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
         for (TransactionLine line : transaction.getTransactionLines()) {
-            processPickingLine(transaction, line, performer);
+            if (line.getSourceLocation() == null) {
+                throw new InvalidOperationException(
+                        "Picking line " + line.getLineNumber() + " must have a source (storage) location");
+            }
+            if (line.getDestinationLocation() == null) {
+                throw new InvalidOperationException(
+                        "Picking line " + line.getLineNumber() + " must have a destination (picking rack) location");
+            }
+            stockReservationService.consume(line);
+            movements.add(StockLedgerService.Movement.out(
+                    line.getProduct(), line.getSourceLocation(), line.getQuantity(),
+                    transaction, line, performer));
+            movements.add(StockLedgerService.Movement.in(
+                    line.getProduct(), line.getDestinationLocation(), line.getQuantity(),
+                    transaction, line, performer));
         }
+        stockLedgerService.recordMovements(movements);
     }
 }
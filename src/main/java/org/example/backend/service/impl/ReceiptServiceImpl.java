@@ -11,6 +11,9 @@ import org.example.backend.service.StockLedgerService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -43,8 +46,16 @@ public class ReceiptServiceImpl implements ReceiptService {
     @Override
     public void processReceipt(Transaction transaction, User performer) {
         log.info("Processing full receipt transaction: {}", transaction.getReference());
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
         for (TransactionLine line : transaction.getTransactionLines()) {
-            processReceiptLine(transaction, line, performer);
+            if (line.getDestinationLocation() == null) {
+                throw new InvalidOperationException(
+                        "Receipt line " + line.getLineNumber() + " must have a destination location");
+            }
+            movements.add(StockLedgerService.Movement.in(
+                    line.getProduct(), line.getDestinationLocation(), line.getQuantity(),
+                    transaction, line, performer));
         }
+        stockLedgerService.recordMovements(movements);
     }
 }
@@ -0,0 +1,295 @@
+package org.example.backend.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.config.CacheConfig;
+import org.example.backend.enums.ReportPriority;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.exception.ResourceNotFoundException;
+import org.example.backend.service.ReportJobService;
+import org.example.backend.service.ReportService;
+import org.example.backend.service.report.ReportJob;
+import org.example.backend.service.report.ReportSpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs report jobs on a fixed pool of workers fed by a priority queue.
+ *
+ * Each job runs in a read-only transaction with a timeout, which Spring turns
+ * into a statement timeout on every query of the report, so a runaway report
+ * gives its connection back instead of holding it. Cancelling a running job
+ * interrupts its worker and discards whatever it returns. Completed results are
+ * cached by spec hash; a spec that is already queued or running is not queued
+ * again, its job is shared and only cancelled once a single submitter is left.
+ */
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final Comparator<PrioritizedJob> QUEUE_ORDER = Comparator
+            .comparing((PrioritizedJob task) -> task.job().getPriority())
+            .thenComparingLong(PrioritizedJob::sequence);
+
+    private final ReportService reportService;
+    private final TransactionTemplate reportTransaction;
+    private final Cache results;
+    private final int maxQueued;
+    private final long retentionMinutes;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final Map<UUID, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>();
+
+    public ReportJobServiceImpl(ReportService reportService,
+            PlatformTransactionManager transactionManager,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry,
+            @Value("${reporting.jobs.workers:2}") int workers,
+            @Value("${reporting.jobs.max-queued:50}") int maxQueued,
+            @Value("${reporting.jobs.timeout-seconds:300}") int timeoutSeconds,
+            @Value("${reporting.jobs.retention-minutes:60}") long retentionMinutes) {
+        this.reportService = reportService;
+        this.reportTransaction = new TransactionTemplate(transactionManager);
+        this.reportTransaction.setReadOnly(true);
+        this.reportTransaction.setTimeout(timeoutSeconds);
+        this.reportTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.results = Objects.requireNonNull(cacheManager.getCache(CacheConfig.REPORT_RESULTS));
+        this.maxQueued = maxQueued;
+        this.retentionMinutes = retentionMinutes;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(Math.max(1, maxQueued), (a, b) ->
+                        QUEUE_ORDER.compare((PrioritizedJob) a, (PrioritizedJob) b)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("reporting.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Report jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("reporting.jobs.running", running, AtomicInteger::get)
+                .description("Report jobs being computed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ReportJob submit(ReportSpec spec, ReportPriority priority, String requestedBy) {
+        purgeExpired();
+        // Parameters are checked now so that a bad request fails here, not in the job
+        Supplier<Map<String, Object>> report = bind(spec);
+        String hash = spec.hash();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> cachedResult = results.get(hash, Map.class);
+        if (cachedResult != null) {
+            ReportJob job = ReportJob.fromCache(spec, hash, requestedBy, cachedResult);
+            jobs.put(job.getId(), job);
+            return job;
+        }
+
+        synchronized (inFlight) {
+            ReportJob existing = inFlight.get(hash);
+            if (existing != null && existing.attach(requestedBy)) {
+                return existing;
+            }
+            if (executor.getQueue().size() >= maxQueued) {
+                throw new InvalidOperationException("Too many report jobs queued (" + maxQueued
+                        + "), retry later");
+            }
+            ReportJob job = new ReportJob(spec, hash, priority != null ? priority : ReportPriority.NORMAL,
+                    requestedBy);
+            jobs.put(job.getId(), job);
+            inFlight.put(hash, job);
+            job.getCompletion().whenComplete((done, error) -> inFlight.remove(hash, done));
+            executor.execute(new PrioritizedJob(job, sequence.incrementAndGet(), () -> execute(job, report)));
+            log.info("Report job {} queued: {} {} (priority {}, by {})",
+                    job.getId(), spec.type(), spec.parameters(), job.getPriority(), requestedBy);
+            return job;
+        }
+    }
+
+    @Override
+    public ReportJob getJob(UUID jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Report job not found: " + jobId);
+        }
+        return job;
+    }
+
+    @Override
+    public List<ReportJob> getJobs() {
+        purgeExpired();
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ReportJob::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    @Override
+    public ReportJob cancel(UUID jobId, String username) {
+        ReportJob job = getJob(jobId);
+        // Under the lock submit() attaches with, so nobody joins between the check and the cancel
+        synchronized (inFlight) {
+            if (job.isDone()) {
+                throw new InvalidOperationException("Report job " + jobId + " has already finished");
+            }
+            List<String> submitters = job.getSubmitters();
+            List<String> others = submitters.stream().filter(submitter -> !submitter.equals(username)).toList();
+            boolean submitted = others.size() < submitters.size();
+            if (submitted && !others.isEmpty()) {
+                job.detach(username);
+                log.info("{} detached from report job {}, still submitted by {}", username, jobId, others);
+                return job;
+            }
+            // Someone else's job may still be cancelled while it has a single submitter
+            if (others.size() > 1) {
+                throw new InvalidOperationException("Report job " + jobId + " is shared by " + others.size()
+                        + " submitters and cannot be cancelled");
+            }
+            if (!job.cancel()) {
+                throw new InvalidOperationException("Report job " + jobId + " has already finished");
+            }
+        }
+        // Free its queue slot; a running job is interrupted by cancel()
+        executor.getQueue().removeIf(task -> ((PrioritizedJob) task).job() == job);
+        log.info("Report job {} cancelled", jobId);
+        return job;
+    }
+
+    private void execute(ReportJob job, Supplier<Map<String, Object>> report) {
+        if (!job.start()) {
+            return;
+        }
+        running.incrementAndGet();
+        try {
+            Map<String, Object> result = reportTransaction.execute(status -> report.get());
+            if (job.getStatus() == ReportJob.Status.CANCELLED) {
+                return;
+            }
+            results.put(job.getSpecHash(), result);
+            job.complete(result);
+            log.info("Report job {} completed in {} ms", job.getId(),
+                    Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis());
+        } catch (RuntimeException e) {
+            job.fail(e.getMessage());
+            if (job.getStatus() == ReportJob.Status.FAILED) {
+                log.error("Report job {} failed: {}", job.getId(), e.getMessage(), e);
+            }
+        } finally {
+            running.decrementAndGet();
+            // A cancellation must not interrupt the next job of this worker
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Parse the parameters of the spec into a call of its report.
+     */
+    private Supplier<Map<String, Object>> bind(ReportSpec spec) {
+        return switch (spec.type()) {
+            case STOCK_MOVEMENTS -> {
+                LocalDate startDate = date(spec, "startDate");
+                LocalDate endDate = date(spec, "endDate");
+                UUID productId = uuid(spec, "productId");
+                String groupBy = spec.get("groupBy");
+                String cursor = spec.get("cursor");
+                int limit = integer(spec, "limit", 100);
+                yield () -> reportService.stockMovementReport(startDate, endDate, productId, groupBy, cursor,
+                        limit);
+            }
+            case USER_PRODUCTIVITY -> {
+                LocalDate startDate = date(spec, "startDate");
+                LocalDate endDate = date(spec, "endDate");
+                UUID userId = uuid(spec, "userId");
+                yield () -> reportService.userProductivityReport(startDate, endDate, userId);
+            }
+            case INVENTORY_SUMMARY -> {
+                String category = spec.get("category");
+                boolean lowStockOnly = Boolean.parseBoolean(spec.get("lowStockOnly"));
+                int page = integer(spec, "page", 0);
+                int size = integer(spec, "size", 50);
+                yield () -> reportService.inventorySummary(category, lowStockOnly, page, size);
+            }
+        };
+    }
+
+    private void purgeExpired() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt().isBefore(expiry));
+    }
+
+    private static LocalDate date(ReportSpec spec, String name) {
+        String value = spec.get(name);
+        if (value == null) {
+            throw new InvalidOperationException(name + " is required for " + spec.type());
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidOperationException(name + " must be an ISO date: " + value);
+        }
+    }
+
+    private static UUID uuid(ReportSpec spec, String name) {
+        String value = spec.get(name);
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException(name + " must be a UUID: " + value);
+        }
+    }
+
+    private static int integer(ReportSpec spec, String name, int defaultValue) {
+        String value = spec.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new InvalidOperationException(name + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Queue entry; ordered by priority, then by submission.
+     */
+    private record PrioritizedJob(ReportJob job, long sequence, Runnable action) implements Runnable {
+
+        @Override
+        public void run() {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.dto.projection.LedgerHourTotal;
+import org.example.backend.dto.projection.MovementBucket;
+import org.example.backend.dto.projection.TaskBucket;
+import org.example.backend.dto.projection.TaskHourTotal;
+import org.example.backend.entity.MovementRollupId;
+import org.example.backend.entity.RollupWatermark;
+import org.example.backend.entity.TaskRollupId;
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.MovementRollupRepository;
+import org.example.backend.repository.RollupWatermarkRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.repository.TaskRollupRepository;
+import org.example.backend.repository.TransactionRepository;
+import org.example.backend.service.ReportRollupService;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rollups maintained by a watermark job, like the balance checkpoints: an hour
+ * is aggregated once it is older than the safety lag, by which time movements
+ * of ordinary transactions have committed. Each window replaces its hour rows from a grouped
+ * query on the source table, then rebuilds the day rows of the days it touches
+ * from those hours, and moves the watermark in the same transaction. Re-running
+ * a window therefore gives the same rows, which is what lets every refresh
+ * aggregate the last {@code overlap-hours} below the watermark again: a
+ * movement stamped before its transaction committed, or written behind, can
+ * become visible in an hour that was already rolled up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportRollupServiceImpl implements ReportRollupService {
+
+    static final String MOVEMENTS = "movements";
+    static final String TASKS = "tasks";
+
+    /** Dimension id of the ALL rows. */
+    private static final UUID ALL_ID = new UUID(0L, 0L);
+
+    private static final String INSERT_MOVEMENT = """
+            INSERT INTO movement_rollup (granularity, bucket_start, dimension, dimension_id, movement_type,
+                movements, quantity)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String ROLL_UP_MOVEMENT_DAY = """
+            INSERT INTO movement_rollup (granularity, bucket_start, dimension, dimension_id, movement_type,
+                movements, quantity)
+            SELECT 'DAY', ?, dimension, dimension_id, movement_type, SUM(movements), SUM(quantity)
+            FROM movement_rollup WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY dimension, dimension_id, movement_type
+            """;
+    private static final String INSERT_TASK = """
+            INSERT INTO task_rollup (granularity, bucket_start, dimension, dimension_id, task_type,
+                tasks_completed, timed_tasks, total_seconds)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String ROLL_UP_TASK_DAY = """
+            INSERT INTO task_rollup (granularity, bucket_start, dimension, dimension_id, task_type,
+                tasks_completed, timed_tasks, total_seconds)
+            SELECT 'DAY', ?, dimension, dimension_id, task_type, SUM(tasks_completed), SUM(timed_tasks),
+                SUM(total_seconds)
+            FROM task_rollup WHERE granularity = 'HOUR' AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY dimension, dimension_id, task_type
+            """;
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final TransactionRepository transactionRepository;
+    private final MovementRollupRepository movementRollupRepository;
+    private final TaskRollupRepository taskRollupRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final StockLedgerArchiveService archiveService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${reporting.rollup.safety-lag-minutes:5}")
+    private long safetyLagMinutes;
+
+    @Value("${reporting.rollup.window-hours:24}")
+    private long windowHours;
+
+    @Value("${reporting.rollup.overlap-hours:1}")
+    private long overlapHours;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean rebuilding;
+
+    @Scheduled(fixedDelayString = "${reporting.rollup.interval-ms:300000}",
+            initialDelayString = "${reporting.rollup.initial-delay-ms:90000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Rollup refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int refresh() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Rollup refresh or rebuild already running — skipping");
+            return 0;
+        }
+        try {
+            LocalDateTime target = completeUntil();
+            int windows = advance(MOVEMENTS, target) + advance(TASKS, target);
+            if (windows > 0) {
+                log.info("Rollups advanced to {} ({} windows)", target, windows);
+            }
+            return windows;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public void startRebuild(LocalDate from) {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidOperationException("A rollup refresh or rebuild is already running");
+        }
+        rebuilding = true;
+        Thread rebuild = new Thread(() -> {
+            try {
+                LocalDateTime target = completeUntil();
+                rebuild(MOVEMENTS, from.atStartOfDay(), target);
+                rebuild(TASKS, from.atStartOfDay(), target);
+            } catch (Exception e) {
+                log.error("Rollup rebuild from {} failed: {}", from, e.getMessage(), e);
+            } finally {
+                rebuilding = false;
+                running.set(false);
+            }
+        }, "rollup-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    @Override
+    public boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RollupStatus> getStatus() {
+        return watermarkRepository.findAll().stream()
+                .map(w -> new RollupStatus(w.getName(), w.getCoveredFrom(), w.getWatermark()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<MovementBucket>> movementBuckets(RollupGranularity granularity,
+            RollupDimension dimension, UUID dimensionId, LocalDateTime from, LocalDateTime to) {
+        Optional<LocalDateTime> rolledUpUntil = rolledUpUntil(MOVEMENTS, from, to);
+        if (rolledUpUntil.isEmpty()) {
+            return Optional.empty();
+        }
+        LocalDateTime split = rolledUpUntil.get();
+
+        List<MovementBucket> buckets = new ArrayList<>();
+        if (from.isBefore(split)) {
+            LocalDateTime[] days = dayRange(granularity, from, split);
+            buckets.addAll(movementRollupRepository.findBuckets(dimension, dimensionId, from, days[0], days[1],
+                    split));
+        }
+        if (split.isBefore(to)) {
+            // Not rolled up yet: aggregate the raw hours of this dimension only
+            Map<MovementRollupId, long[]> tail = new HashMap<>();
+            for (LedgerHourTotal row : stockLedgerRepository.sumMovementsByHour(split, to)) {
+                UUID id = dimensionId(dimension, row);
+                if (id != null && (dimensionId == null || dimensionId.equals(id))) {
+                    addMovement(tail, hourOf(row.day(), row.hour()), dimension, id, row.movementType(),
+                            row.movements(), row.quantity());
+                }
+            }
+            tail.forEach((key, total) -> buckets.add(new MovementBucket(RollupGranularity.HOUR,
+                    key.getBucketStart(), key.getDimensionId(), key.getMovementType(), total[0], total[1])));
+        }
+        return Optional.of(buckets);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<TaskBucket>> taskBuckets(RollupGranularity granularity, RollupDimension dimension,
+            UUID dimensionId, LocalDateTime from, LocalDateTime to) {
+        if (dimension != RollupDimension.ALL && dimension != RollupDimension.EMPLOYEE) {
+            throw new InvalidOperationException("Task rollups exist per employee or in total only");
+        }
+        Optional<LocalDateTime> rolledUpUntil = rolledUpUntil(TASKS, from, to);
+        if (rolledUpUntil.isEmpty()) {
+            return Optional.empty();
+        }
+        LocalDateTime split = rolledUpUntil.get();
+
+        List<TaskBucket> buckets = new ArrayList<>();
+        if (from.isBefore(split)) {
+            LocalDateTime[] days = dayRange(granularity, from, split);
+            buckets.addAll(taskRollupRepository.findBuckets(dimension, dimensionId, from, days[0], days[1], split));
+        }
+        if (split.isBefore(to)) {
+            Map<TaskRollupId, long[]> tail = new HashMap<>();
+            for (TaskHourTotal row : transactionRepository.sumCompletedTasksByHour(split, to)) {
+                UUID id = dimension == RollupDimension.ALL ? ALL_ID : row.assigneeId();
+                if (id != null && (dimensionId == null || dimensionId.equals(id))) {
+                    addTask(tail, hourOf(row.day(), row.hour()), dimension, id, row);
+                }
+            }
+            tail.forEach((key, total) -> buckets.add(new TaskBucket(RollupGranularity.HOUR, key.getBucketStart(),
+                    key.getDimensionId(), key.getTaskType(), total[0], total[1], total[2])));
+        }
+        return Optional.of(buckets);
+    }
+
+    /**
+     * End of the rolled-up part of [from, to), or empty when the rollup does not
+     * cover {@code from}.
+     */
+    private Optional<LocalDateTime> rolledUpUntil(String name, LocalDateTime from, LocalDateTime to) {
+        if (!from.equals(from.truncatedTo(ChronoUnit.HOURS))) {
+            return Optional.empty();
+        }
+        return watermarkRepository.findById(name)
+                .filter(w -> !w.getCoveredFrom().isAfter(from))
+                .map(w -> w.getWatermark().isBefore(to) ? w.getWatermark() : to.truncatedTo(ChronoUnit.HOURS))
+                .map(split -> split.isBefore(from) ? from : split);
+    }
+
+    /**
+     * Whole days inside [from, to) to read as day rows; both ends collapse to
+     * {@code to} when there is none or hours were asked for.
+     */
+    private static LocalDateTime[] dayRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        if (granularity == RollupGranularity.HOUR) {
+            return new LocalDateTime[] { to, to };
+        }
+        LocalDateTime dayFrom = from.truncatedTo(ChronoUnit.DAYS);
+        if (dayFrom.isBefore(from)) {
+            dayFrom = dayFrom.plusDays(1);
+        }
+        LocalDateTime dayTo = to.truncatedTo(ChronoUnit.DAYS);
+        if (!dayFrom.isBefore(dayTo)) {
+            return new LocalDateTime[] { to, to };
+        }
+        return new LocalDateTime[] { dayFrom, dayTo };
+    }
+
+    /**
+     * Hours before this are aggregated; movements committed later than the
+     * safety lag are picked up by the overlap.
+     */
+    private LocalDateTime completeUntil() {
+        return LocalDateTime.now().minusMinutes(safetyLagMinutes).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private int advance(String name, LocalDateTime target) {
+        Optional<RollupWatermark> watermark = watermarkRepository.findById(name);
+        // A new rollup starts with the current day; older days come from a rebuild
+        LocalDateTime from = watermark.map(RollupWatermark::getWatermark)
+                .orElse(target.truncatedTo(ChronoUnit.DAYS));
+        LocalDateTime coveredFrom = watermark.map(RollupWatermark::getCoveredFrom).orElse(from);
+
+        LocalDateTime rescanFrom = from.minusHours(overlapHours);
+        LocalDateTime overlapStart = rescanFrom.isBefore(coveredFrom) ? coveredFrom : rescanFrom;
+        LocalDateTime overlapEnd = from;
+        if (watermark.isPresent() && overlapStart.isBefore(overlapEnd)) {
+            transactionTemplate.executeWithoutResult(status -> aggregate(name, overlapStart, overlapEnd));
+        }
+
+        int windows = 0;
+        while (from.isBefore(target)) {
+            LocalDateTime windowStart = from;
+            LocalDateTime next = from.plusHours(windowHours);
+            LocalDateTime windowEnd = next.isBefore(target) ? next : target;
+            transactionTemplate.executeWithoutResult(status -> {
+                aggregate(name, windowStart, windowEnd);
+                saveWatermark(name, coveredFrom, windowEnd);
+            });
+            from = windowEnd;
+            windows++;
+        }
+        if (watermark.isEmpty() && windows == 0) {
+            saveWatermark(name, coveredFrom, from);
+        }
+        return windows;
+    }
+
+    private void rebuild(String name, LocalDateTime from, LocalDateTime target) {
+        Optional<RollupWatermark> watermark = watermarkRepository.findById(name);
+        LocalDateTime end = watermark.map(RollupWatermark::getWatermark).orElse(target);
+        LocalDateTime coveredFrom = watermark.map(RollupWatermark::getCoveredFrom)
+                .filter(covered -> covered.isBefore(from))
+                .orElse(from);
+
+        long start = System.currentTimeMillis();
+        int windows = 0;
+        LocalDateTime windowStart = from;
+        while (windowStart.isBefore(end)) {
+            LocalDateTime next = windowStart.plusHours(windowHours);
+            LocalDateTime windowEnd = next.isBefore(end) ? next : end;
+            LocalDateTime window = windowStart;
+            transactionTemplate.executeWithoutResult(status -> aggregate(name, window, windowEnd));
+            windowStart = windowEnd;
+            windows++;
+        }
+        // Only now do readers trust the rebuilt range
+        transactionTemplate.executeWithoutResult(status -> saveWatermark(name, coveredFrom, end));
+        log.info("Rollup '{}' rebuilt from {} to {}: {} windows in {} ms", name, from, end, windows,
+                System.currentTimeMillis() - start);
+    }
+
+    private void saveWatermark(String name, LocalDateTime coveredFrom, LocalDateTime watermark) {
+        watermarkRepository.save(RollupWatermark.builder()
+                .name(name)
+                .coveredFrom(coveredFrom)
+                .watermark(watermark)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void aggregate(String name, LocalDateTime from, LocalDateTime to) {
+        if (MOVEMENTS.equals(name)) {
+            aggregateMovements(from, to);
+        } else {
+            aggregateTasks(from, to);
+        }
+    }
+
+    /**
+     * Replace the hour rows of [from, to) and the day rows of the days it
+     * touches. Caller holds the transaction.
+     */
+    private void aggregateMovements(LocalDateTime from, LocalDateTime to) {
+        Map<MovementRollupId, long[]> hours = new HashMap<>();
+        for (LedgerHourTotal row : stockLedgerRepository.sumMovementsByHour(from, to)) {
+            addMovementRow(hours, hourOf(row.day(), row.hour()), row.productId(), row.locationId(),
+                    row.warehouseId(), row.movementType(), row.performedById(), row.movements(), row.quantity());
+        }
+        addArchivedMovements(hours, from, to);
+
+        jdbcTemplate.update("DELETE FROM movement_rollup WHERE granularity = 'HOUR' " +
+                "AND bucket_start >= ? AND bucket_start < ?", Timestamp.valueOf(from), Timestamp.valueOf(to));
+        List<Map.Entry<MovementRollupId, long[]>> rows = new ArrayList<>(hours.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_MOVEMENT, rows, 500, (ps, row) -> {
+            MovementRollupId key = row.getKey();
+            ps.setString(1, RollupGranularity.HOUR.name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.getBucketStart()));
+            ps.setString(3, key.getDimension().name());
+            ps.setObject(4, key.getDimensionId());
+            ps.setString(5, key.getMovementType().name());
+            ps.setLong(6, row.getValue()[0]);
+            ps.setLong(7, row.getValue()[1]);
+        });
+        rollUpDays("movement_rollup", ROLL_UP_MOVEMENT_DAY, from, to);
+    }
+
+    /**
+     * Months already moved to the archive files are only there; a rebuild
+     * reaching back into them reads the files.
+     */
+    private void addArchivedMovements(Map<MovementRollupId, long[]> hours, LocalDateTime from, LocalDateTime to) {
+        Optional<LocalDateTime> archivedUntil = archiveService.getArchivedUntil();
+        if (archivedUntil.isEmpty() || !archivedUntil.get().isAfter(from)) {
+            return;
+        }
+        Map<UUID, UUID> warehouseOfLocation = new HashMap<>();
+        jdbcTemplate.query("SELECT id_emplacement, id_entrepot FROM emplacements", rs -> {
+            warehouseOfLocation.put(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class));
+        });
+        archiveService.scanArchived(from, to, entry -> {
+            if (entry.performedAt().isBefore(to)) {
+                addMovementRow(hours, entry.performedAt().truncatedTo(ChronoUnit.HOURS), entry.productId(),
+                        entry.locationId(), warehouseOfLocation.get(entry.locationId()), entry.movementType(),
+                        entry.performedById(), 1, entry.quantity());
+            }
+        });
+    }
+
+    private void aggregateTasks(LocalDateTime from, LocalDateTime to) {
+        Map<TaskRollupId, long[]> hours = new HashMap<>();
+        for (TaskHourTotal row : transactionRepository.sumCompletedTasksByHour(from, to)) {
+            LocalDateTime hour = hourOf(row.day(), row.hour());
+            addTask(hours, hour, RollupDimension.ALL, ALL_ID, row);
+            if (row.assigneeId() != null) {
+                addTask(hours, hour, RollupDimension.EMPLOYEE, row.assigneeId(), row);
+            }
+        }
+
+        jdbcTemplate.update("DELETE FROM task_rollup WHERE granularity = 'HOUR' " +
+                "AND bucket_start >= ? AND bucket_start < ?", Timestamp.valueOf(from), Timestamp.valueOf(to));
+        List<Map.Entry<TaskRollupId, long[]>> rows = new ArrayList<>(hours.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_TASK, rows, 500, (ps, row) -> {
+            TaskRollupId key = row.getKey();
+            ps.setString(1, RollupGranularity.HOUR.name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.getBucketStart()));
+            ps.setString(3, key.getDimension().name());
+            ps.setObject(4, key.getDimensionId());
+            ps.setString(5, key.getTaskType().name());
+            ps.setLong(6, row.getValue()[0]);
+            ps.setLong(7, row.getValue()[1]);
+            ps.setLong(8, row.getValue()[2]);
+        });
+        rollUpDays("task_rollup", ROLL_UP_TASK_DAY, from, to);
+    }
+
+    /**
+     * Recompute the day rows of every day overlapping [from, to) from its hour
+     * rows.
+     */
+    private void rollUpDays(String table, String rollUpSql, LocalDateTime from, LocalDateTime to) {
+        for (LocalDateTime day = from.truncatedTo(ChronoUnit.DAYS); day.isBefore(to); day = day.plusDays(1)) {
+            Timestamp dayStart = Timestamp.valueOf(day);
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE granularity = 'DAY' AND bucket_start = ?",
+                    dayStart);
+            jdbcTemplate.update(rollUpSql, dayStart, dayStart, Timestamp.valueOf(day.plusDays(1)));
+        }
+    }
+
+    /**
+     * One source row counts once in each dimension.
+     */
+    private static void addMovementRow(Map<MovementRollupId, long[]> rows, LocalDateTime hour, UUID productId,
+            UUID locationId, UUID warehouseId, MovementType movementType, UUID performedById, long movements,
+            long quantity) {
+        addMovement(rows, hour, RollupDimension.ALL, ALL_ID, movementType, movements, quantity);
+        addMovement(rows, hour, RollupDimension.PRODUCT, productId, movementType, movements, quantity);
+        addMovement(rows, hour, RollupDimension.LOCATION, locationId, movementType, movements, quantity);
+        if (warehouseId != null) {
+            addMovement(rows, hour, RollupDimension.WAREHOUSE, warehouseId, movementType, movements, quantity);
+        }
+        if (performedById != null) {
+            addMovement(rows, hour, RollupDimension.EMPLOYEE, performedById, movementType, movements, quantity);
+        }
+    }
+
+    private static void addMovement(Map<MovementRollupId, long[]> rows, LocalDateTime hour,
+            RollupDimension dimension, UUID dimensionId, MovementType movementType, long movements, long quantity) {
+        long[] total = rows.computeIfAbsent(
+                new MovementRollupId(RollupGranularity.HOUR, hour, dimension, dimensionId, movementType),
+                key -> new long[2]);
+        total[0] += movements;
+        total[1] += quantity;
+    }
+
+    private static void addTask(Map<TaskRollupId, long[]> rows, LocalDateTime hour, RollupDimension dimension,
+            UUID dimensionId, TaskHourTotal row) {
+        long[] total = rows.computeIfAbsent(
+                new TaskRollupId(RollupGranularity.HOUR, hour, dimension, dimensionId, row.taskType()),
+                key -> new long[3]);
+        total[0] += row.tasksCompleted();
+        total[1] += row.timedTasks();
+        total[2] += row.totalSeconds();
+    }
+
+    private static UUID dimensionId(RollupDimension dimension, LedgerHourTotal row) {
+        return switch (dimension) {
+            case ALL -> ALL_ID;
+            case PRODUCT -> row.productId();
+            case LOCATION -> row.locationId();
+            case WAREHOUSE -> row.warehouseId();
+            case EMPLOYEE -> row.performedById();
+        };
+    }
+
+    private static LocalDateTime hourOf(LocalDate day, Integer hour) {
+        return day.atTime(hour, 0);
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.LocationStockQuantity;
+import org.example.backend.dto.projection.MovementTypeTotal;
+import org.example.backend.dto.projection.ProductStockTotal;
+import org.example.backend.dto.projection.TaskBucket;
+import org.example.backend.dto.projection.UserDiscrepancyCount;
+import org.example.backend.dto.projection.UserTaskStats;
+import org.example.backend.entity.User;
+import org.example.backend.enums.Role;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.StockBalanceRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.repository.TaskDiscrepancyRepository;
+import org.example.backend.repository.TransactionRepository;
+import org.example.backend.repository.UserRepository;
+import org.example.backend.service.ReportRollupService;
+import org.example.backend.service.ReportService;
+import org.example.backend.service.StockMovementReportService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ReportServiceImpl implements ReportService {
+
+    private static final int MAX_MOVEMENT_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final TaskDiscrepancyRepository taskDiscrepancyRepository;
+    private final StockLedgerRepository stockLedgerRepository;
+    private final StockBalanceRepository stockBalanceRepository;
+    private final StockMovementReportService stockMovementReportService;
+    private final ReportRollupService reportRollupService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> stockMovementReport(LocalDate startDate, LocalDate endDate, UUID productId,
+            String groupBy, String cursor, int limit) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        if (limit < 1 || limit > MAX_MOVEMENT_PAGE_SIZE) {
+            throw new InvalidOperationException("limit must be between 1 and " + MAX_MOVEMENT_PAGE_SIZE);
+        }
+
+        long totalMovements = 0;
+        long totalIn = 0;
+        long totalOut = 0;
+        long netAdjustment = 0;
+        for (MovementTypeTotal total : stockMovementReportService.totalsByType(productId, start, end)) {
+            totalMovements += total.movements();
+            switch (total.movementType()) {
+                case IN -> totalIn = total.quantity();
+                case OUT -> totalOut = total.quantity();
+                case ADJUSTMENT -> netAdjustment = total.quantity();
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("totalMovements", totalMovements);
+        summary.put("totalIn", totalIn);
+        summary.put("totalOut", totalOut);
+        summary.put("netChange", totalIn - totalOut);
+        summary.put("netAdjustment", netAdjustment);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("period", startDate + " to " + endDate);
+        response.put("summary", summary);
+
+        if (groupBy != null) {
+            StockMovementReportService.Grouping grouping = parseGrouping(groupBy);
+            response.put("groupBy", grouping.name());
+            response.put("groups", stockMovementReportService.totals(grouping, productId, start, end));
+        }
+
+        StockMovementReportService.MovementPage page = stockMovementReportService.movements(
+                productId, start, end, cursor, limit);
+        response.put("movements", page.movements());
+        response.put("nextCursor", page.nextCursor());
+        return response;
+    }
+
+    /**
+     * Three grouped queries whatever the number of employees; task counts come
+     * from the task rollups when they cover the period.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> userProductivityReport(LocalDate startDate, LocalDate endDate, UUID userId) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+
+        List<User> employees;
+        if (userId != null) {
+            employees = userRepository.findById(userId).map(List::of).orElse(List.of());
+        } else {
+            employees = userRepository.findByRole(Role.EMPLOYEE);
+        }
+
+        Map<UUID, UserTaskStats> tasks = new HashMap<>();
+        Map<UUID, Long> lines = new HashMap<>();
+        Map<UUID, UserDiscrepancyCount> discrepancies = new HashMap<>();
+        if (!employees.isEmpty()) {
+            Set<UUID> userIds = employees.stream().map(User::getId).collect(Collectors.toSet());
+            reportRollupService.taskBuckets(RollupGranularity.DAY, RollupDimension.EMPLOYEE, userId, start, end)
+                    .map(buckets -> toTaskStats(buckets, userIds))
+                    .orElseGet(() -> transactionRepository.summarizeCompletedTasks(userIds, start, end))
+                    .forEach(stats -> tasks.put(stats.userId(), stats));
+            stockLedgerRepository.countLinesByUser(userIds, start, end)
+                    .forEach(count -> lines.put(count.userId(), count.linesExecuted()));
+            taskDiscrepancyRepository.countByReporter(userIds, start, end)
+                    .forEach(count -> discrepancies.put(count.userId(), count));
+        }
+
+        List<Map<String, Object>> userStats = employees.stream().map(user -> {
+            UserTaskStats taskStats = tasks.get(user.getId());
+            UserDiscrepancyCount discrepancyCount = discrepancies.get(user.getId());
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("userId", user.getId());
+            map.put("fullName", user.getFullName());
+            map.put("username", user.getUsername());
+            map.put("tasksCompleted", taskStats != null ? taskStats.tasksCompleted() : 0L);
+            map.put("averageTaskMinutes", taskStats != null && taskStats.averageTaskSeconds() != null
+                    ? Math.round(taskStats.averageTaskSeconds() / 6.0) / 10.0
+                    : null);
+            map.put("linesExecuted", lines.getOrDefault(user.getId(), 0L));
+            map.put("discrepanciesReported", discrepancyCount != null ? discrepancyCount.open() : 0L);
+            map.put("discrepanciesReportedInPeriod",
+                    discrepancyCount != null ? discrepancyCount.reportedInPeriod() : 0L);
+            return map;
+        }).collect(Collectors.toList());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("period", startDate + " to " + endDate);
+        response.put("users", userStats);
+        return response;
+    }
+
+    /**
+     * Totals, low-stock filter and count are computed in the database over the
+     * stock_balance projection.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> inventorySummary(String category, boolean lowStockOnly, int page, int size) {
+        Page<ProductStockTotal> products = stockBalanceRepository.findProductTotals(category, lowStockOnly,
+                PageRequest.of(page, size, Sort.by("sku")));
+        long lowStockCount = stockBalanceRepository.countLowStock(category);
+
+        Map<UUID, List<LocationStockQuantity>> locationsByProduct = products.isEmpty() ? Map.of()
+                : stockBalanceRepository.findLocationStock(products.getContent().stream()
+                        .map(ProductStockTotal::productId).toList()).stream()
+                        .collect(Collectors.groupingBy(LocationStockQuantity::productId));
+
+        List<Map<String, Object>> content = new ArrayList<>();
+        for (ProductStockTotal product : products.getContent()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", product.productId());
+            item.put("sku", product.sku());
+            item.put("name", product.name());
+            item.put("category", product.category());
+            item.put("price", product.price());
+            item.put("unitOfMeasure", product.unitOfMeasure());
+            item.put("totalStock", product.totalStock());
+            item.put("minStock", product.minStock());
+            item.put("maxStock", product.maxStock());
+            item.put("stockAlert", product.isLowStock());
+
+            List<Map<String, Object>> stockLocations = locationsByProduct
+                    .getOrDefault(product.productId(), List.of()).stream()
+                    .map(stock -> {
+                        Map<String, Object> locMap = new LinkedHashMap<>();
+                        locMap.put("locationCode", stock.locationCode());
+                        locMap.put("quantity", stock.quantity());
+                        return locMap;
+                    }).collect(Collectors.toList());
+            item.put("stockLocations", stockLocations);
+            content.add(item);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("content", content);
+        response.put("totalProducts", products.getTotalElements());
+        response.put("lowStockCount", lowStockCount);
+        return response;
+    }
+
+    private static StockMovementReportService.Grouping parseGrouping(String groupBy) {
+        String name = groupBy.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        try {
+            return StockMovementReportService.Grouping.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidOperationException("Unsupported groupBy: " + groupBy
+                    + ". Expected one of product, location, movementType, day");
+        }
+    }
+
+    private static List<UserTaskStats> toTaskStats(List<TaskBucket> buckets, Set<UUID> userIds) {
+        Map<UUID, long[]> totals = new HashMap<>();
+        for (TaskBucket bucket : buckets) {
+            if (userIds.contains(bucket.dimensionId())) {
+                long[] total = totals.computeIfAbsent(bucket.dimensionId(), id -> new long[3]);
+                total[0] += bucket.tasksCompleted();
+                total[1] += bucket.timedTasks();
+                total[2] += bucket.totalSeconds();
+            }
+        }
+        return totals.entrySet().stream()
+                .map(e -> new UserTaskStats(e.getKey(), e.getValue()[0],
+                        e.getValue()[1] > 0 ? (double) e.getValue()[2] / e.getValue()[1] : null))
+                .toList();
+    }
+}
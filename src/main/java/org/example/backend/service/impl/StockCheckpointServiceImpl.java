@@ -0,0 +1,205 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.dto.projection.ProductLocationQuantity;
+import org.example.backend.entity.StockBalanceCheckpoint;
+import org.example.backend.entity.StockCheckpointRun;
+import org.example.backend.repository.LocationRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.StockBalanceCheckpointRepository;
+import org.example.backend.repository.StockCheckpointRunRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.service.StockCheckpointService;
+import org.example.backend.service.ledger.StockKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockCheckpointServiceImpl implements StockCheckpointService {
+
+    /** Lower bound used when a pair has never been checkpointed. */
+    static final LocalDateTime LEDGER_EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final int PRODUCT_CHUNK_SIZE = 500;
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final StockBalanceCheckpointRepository checkpointRepository;
+    private final StockCheckpointRunRepository runRepository;
+    private final ProductRepository productRepository;
+    private final LocationRepository locationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stock.checkpoint.safety-lag-minutes:5}")
+    private long safetyLagMinutes;
+
+    @Value("${stock.checkpoint.window-hours:24}")
+    private long windowHours;
+
+    @Value("${stock.checkpoint.recheck-hours:24}")
+    private long recheckHours;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Scheduled(fixedDelayString = "${stock.checkpoint.interval-ms:900000}",
+            initialDelayString = "${stock.checkpoint.initial-delay-ms:60000}")
+    public void scheduledCheckpoint() {
+        try {
+            runCheckpoint();
+        } catch (Exception e) {
+            log.error("Stock checkpoint run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int runCheckpoint() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Stock checkpoint already running — skipping");
+            return 0;
+        }
+        try {
+            LocalDateTime target = LocalDateTime.now().minusMinutes(safetyLagMinutes);
+            rewindLateEntries(target.minusHours(recheckHours));
+            Optional<LocalDateTime> resumeFrom = runRepository.findTopByOrderByWatermarkDesc()
+                    .map(StockCheckpointRun::getWatermark)
+                    .or(() -> stockLedgerRepository.findEarliestPerformedAt().map(t -> t.minusSeconds(1)));
+            if (resumeFrom.isEmpty()) {
+                return 0;
+            }
+
+            int windows = 0;
+            LocalDateTime from = resumeFrom.get();
+            while (from.isBefore(target)) {
+                LocalDateTime windowStart = from;
+                LocalDateTime next = from.plusHours(windowHours);
+                LocalDateTime windowEnd = next.isBefore(target) ? next : target;
+                transactionTemplate.executeWithoutResult(status -> checkpointWindow(windowStart, windowEnd));
+                from = windowEnd;
+                windows++;
+            }
+            if (windows > 0) {
+                log.info("Stock checkpoint advanced to {} ({} windows)", from, windows);
+            }
+            return windows;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long calculateBalance(UUID productId, UUID locationId) {
+        return checkpointRepository.findLatest(productId, locationId, LocalDateTime.now())
+                .map(c -> c.getBalance()
+                        + stockLedgerRepository.calculateBalanceAfter(productId, locationId, c.getWatermark()))
+                .orElseGet(() -> stockLedgerRepository.calculateBalanceAfter(productId, locationId, LEDGER_EPOCH));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StockCheckpointRun> getLastRun() {
+        return runRepository.findTopByOrderByWatermarkDesc();
+    }
+
+    /**
+     * performedAt is set before the entry's transaction commits, and write-behind
+     * entries reach the table later still, so an entry can appear in a window
+     * that is already checkpointed. The windows ending after {@code since} are
+     * recounted against the count recorded with each; from the first one that
+     * changed on, checkpoints and runs are dropped so that the run computes them
+     * again. One count over the whole span settles the usual case.
+     */
+    private void rewindLateEntries(LocalDateTime since) {
+        List<StockCheckpointRun> runs = runRepository.findByWatermarkGreaterThanOrderByWatermarkAsc(since);
+        // Runs recorded before the count existed cannot be checked
+        int first = runs.size();
+        while (first > 0 && runs.get(first - 1).getLedgerEntries() != null) {
+            first--;
+        }
+        runs = runs.subList(first, runs.size());
+        if (runs.isEmpty()) {
+            return;
+        }
+        long recorded = runs.stream().mapToLong(StockCheckpointRun::getLedgerEntries).sum();
+        if (stockLedgerRepository.countPerformedBetween(runs.get(0).getPreviousWatermark(),
+                runs.get(runs.size() - 1).getWatermark()) == recorded) {
+            return;
+        }
+        for (StockCheckpointRun run : runs) {
+            long count = stockLedgerRepository.countPerformedBetween(run.getPreviousWatermark(), run.getWatermark());
+            if (count != run.getLedgerEntries()) {
+                log.warn("Stock checkpoint window ({}, {}] gained {} late ledger entries — recomputing from there",
+                        run.getPreviousWatermark(), run.getWatermark(), count - run.getLedgerEntries());
+                transactionTemplate.executeWithoutResult(status -> {
+                    checkpointRepository.deleteFromWatermark(run.getWatermark());
+                    runRepository.deleteFromWatermark(run.getWatermark());
+                });
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checkpoint the pairs that moved in (from, to] and record the new watermark
+     * in the same transaction.
+     */
+    private void checkpointWindow(LocalDateTime from, LocalDateTime to) {
+        long start = System.currentTimeMillis();
+        // Counted first: an entry committing in between is then in the deltas
+        // but not in the count, which only costs a recomputation later
+        long entries = stockLedgerRepository.countPerformedBetween(from, to);
+        List<ProductLocationQuantity> deltas = stockLedgerRepository.calculateBalanceDeltas(from, to);
+
+        Map<StockKey, Long> previous = loadLatestBalances(deltas.stream()
+                .map(ProductLocationQuantity::productId)
+                .collect(Collectors.toSet()));
+
+        List<StockBalanceCheckpoint> checkpoints = new ArrayList<>(deltas.size());
+        for (ProductLocationQuantity delta : deltas) {
+            StockKey key = new StockKey(delta.productId(), delta.locationId());
+            checkpoints.add(StockBalanceCheckpoint.builder()
+                    .product(productRepository.getReferenceById(delta.productId()))
+                    .location(locationRepository.getReferenceById(delta.locationId()))
+                    .balance(previous.getOrDefault(key, 0L) + delta.quantity())
+                    .watermark(to)
+                    .build());
+        }
+        checkpointRepository.saveAll(checkpoints);
+
+        runRepository.save(StockCheckpointRun.builder()
+                .previousWatermark(from)
+                .watermark(to)
+                .pairsUpdated(checkpoints.size())
+                .durationMs(System.currentTimeMillis() - start)
+                .ledgerEntries(entries)
+                .build());
+    }
+
+    private Map<StockKey, Long> loadLatestBalances(Set<UUID> productIds) {
+        Map<StockKey, Long> balances = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(productIds);
+        for (int i = 0; i < ids.size(); i += PRODUCT_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(i, Math.min(i + PRODUCT_CHUNK_SIZE, ids.size()));
+            for (ProductLocationQuantity balance : checkpointRepository.findLatestBalances(chunk)) {
+                balances.put(new StockKey(balance.productId(), balance.locationId()), balance.quantity());
+            }
+        }
+        return balances;
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.backend.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.enums.MovementType;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.service.StockIntegrityService;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.example.backend.service.StockLedgerService;
+import org.example.backend.service.ledger.IntegrityRun;
+import org.example.backend.service.ledger.IntegrityRun.Issue;
+import org.example.backend.service.ledger.IntegrityRun.IssueType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays the ledger product by product on a dedicated fork-join pool.
+ *
+ * Each product is read with a forward-only cursor ordered by location and time,
+ * so memory use is bounded by one chain at a time regardless of ledger size.
+ * The pool parallelism should stay below the connection pool size: every
+ * worker holds one connection while it streams its product. The projection
+ * and the ledger of a product are read in one REPEATABLE READ transaction, so
+ * both come from the same snapshot and a movement committing in between does
+ * not show up as a mismatch.
+ */
+@Service
+@Slf4j
+public class StockIntegrityServiceImpl implements StockIntegrityService {
+
+    private static final int PRODUCTS_PER_TASK = 8;
+
+    private final ProductRepository productRepository;
+    private final StockLedgerService stockLedgerService;
+    private final StockLedgerArchiveService archiveService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int parallelism;
+    private final int fetchSize;
+    private final int maxIssues;
+
+    private final AtomicReference<IntegrityRun> currentRun = new AtomicReference<>();
+
+    public StockIntegrityServiceImpl(ProductRepository productRepository,
+            StockLedgerService stockLedgerService,
+            StockLedgerArchiveService archiveService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${stock.integrity.parallelism:4}") int parallelism,
+            @Value("${stock.integrity.fetch-size:5000}") int fetchSize,
+            @Value("${stock.integrity.max-issues:1000}") int maxIssues) {
+        this.productRepository = productRepository;
+        this.stockLedgerService = stockLedgerService;
+        this.archiveService = archiveService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.parallelism = Math.max(1, parallelism);
+        this.fetchSize = fetchSize;
+        this.maxIssues = maxIssues;
+
+        Gauge.builder("stock.integrity.rows.scanned", currentRun,
+                        ref -> ref.get() != null ? ref.get().getRowsScanned().get() : 0)
+                .description("Ledger rows replayed by the current or last integrity run")
+                .register(meterRegistry);
+        Gauge.builder("stock.integrity.progress", currentRun,
+                        ref -> ref.get() != null ? ref.get().getProgress() : 0)
+                .description("Fraction of products verified by the current or last integrity run")
+                .register(meterRegistry);
+        Gauge.builder("stock.integrity.throughput", currentRun,
+                        ref -> ref.get() != null ? ref.get().getRowsPerSecond() : 0)
+                .description("Ledger rows replayed per second by the current or last integrity run")
+                .baseUnit("rows/s")
+                .register(meterRegistry);
+        Gauge.builder("stock.integrity.issues", currentRun,
+                        ref -> ref.get() != null ? ref.get().getTotalIssues() : 0)
+                .description("Issues found by the current or last integrity run")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public IntegrityRun startVerification(boolean rebuildProjection) {
+        IntegrityRun run = new IntegrityRun(rebuildProjection, maxIssues);
+        IntegrityRun previous = currentRun.get();
+        if ((previous != null && previous.isRunning()) || !currentRun.compareAndSet(previous, run)) {
+            throw new InvalidOperationException("A ledger integrity verification is already running");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pool.execute(() -> {
+            try {
+                execute(run);
+            } finally {
+                pool.shutdown();
+            }
+        });
+        log.info("Ledger integrity verification {} started (parallelism={}, rebuild={})",
+                run.getId(), parallelism, rebuildProjection);
+        return run;
+    }
+
+    @Override
+    public Optional<IntegrityRun> getLastRun() {
+        return Optional.ofNullable(currentRun.get());
+    }
+
+    private void execute(IntegrityRun run) {
+        try {
+            List<UUID> productIds = productRepository.findAllIds();
+            run.setProductsTotal(productIds.size());
+            // Below the archive boundary the start of each chain is no longer in the database
+            boolean seedFromFirstEntry = archiveService.getArchivedUntil().isPresent();
+
+            new VerifyProducts(run, productIds, 0, productIds.size(), seedFromFirstEntry).invoke();
+
+            Integer rebuilt = run.isRebuildProjection() ? stockLedgerService.rebuildBalances() : null;
+            run.complete(rebuilt);
+            log.info("Ledger integrity verification {} completed: {} rows, {} chains, {} issues in {} s",
+                    run.getId(), run.getRowsScanned().get(), run.getChainsVerified().get(), run.getTotalIssues(),
+                    run.getElapsed().toSeconds());
+        } catch (Exception e) {
+            run.fail(e.getMessage());
+            log.error("Ledger integrity verification {} failed: {}", run.getId(), e.getMessage(), e);
+        }
+    }
+
+    private final class VerifyProducts extends RecursiveAction {
+        private final IntegrityRun run;
+        private final List<UUID> productIds;
+        private final int from;
+        private final int to;
+        private final boolean seedFromFirstEntry;
+
+        VerifyProducts(IntegrityRun run, List<UUID> productIds, int from, int to, boolean seedFromFirstEntry) {
+            this.run = run;
+            this.productIds = productIds;
+            this.from = from;
+            this.to = to;
+            this.seedFromFirstEntry = seedFromFirstEntry;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PRODUCTS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    verifyProduct(run, productIds.get(i), seedFromFirstEntry);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VerifyProducts(run, productIds, from, mid, seedFromFirstEntry),
+                    new VerifyProducts(run, productIds, mid, to, seedFromFirstEntry));
+        }
+    }
+
+    private void verifyProduct(IntegrityRun run, UUID productId, boolean seedFromFirstEntry) {
+        Map<UUID, Long> projected = new HashMap<>();
+        ChainReplay replay = new ChainReplay(run, productId, projected, seedFromFirstEntry);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT location_id, quantity FROM stock_balance WHERE product_id = ?",
+                    rs -> {
+                        projected.put(rs.getObject("location_id", UUID.class), rs.getLong("quantity"));
+                    }, productId);
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(
+                        "SELECT id, location_id, movement_type, quantity, running_balance, performed_at " +
+                                "FROM stock_ledger WHERE product_id = ? " +
+                                "ORDER BY location_id, performed_at, created_at, id");
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, productId);
+                return statement;
+            }, rs -> {
+                replay.accept(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("location_id", UUID.class),
+                        MovementType.valueOf(rs.getString("movement_type")),
+                        rs.getInt("quantity"),
+                        rs.getInt("running_balance"),
+                        rs.getObject("performed_at", LocalDateTime.class));
+            });
+        });
+        replay.finish();
+
+        // Projection rows without any ledger entry should be empty
+        projected.forEach((locationId, quantity) -> {
+            if (quantity != 0) {
+                run.report(new Issue(IssueType.PROJECTION_MISMATCH, productId, locationId, null, null, 0, quantity));
+            }
+        });
+        run.productVerified(replay.rows, replay.chains);
+    }
+
+    /**
+     * Replays the chains of one product. Rows arrive grouped by location, so only
+     * the state of the current chain is kept.
+     */
+    private static final class ChainReplay {
+        private final IntegrityRun run;
+        private final UUID productId;
+        private final Map<UUID, Long> projected;
+        private final boolean seedFromFirstEntry;
+
+        private UUID locationId;
+        private long recomputed;
+        private long lastStored;
+        private boolean negative;
+        private long rows;
+        private long chains;
+
+        ChainReplay(IntegrityRun run, UUID productId, Map<UUID, Long> projected, boolean seedFromFirstEntry) {
+            this.run = run;
+            this.productId = productId;
+            this.projected = projected;
+            this.seedFromFirstEntry = seedFromFirstEntry;
+        }
+
+        void accept(UUID id, UUID location, MovementType type, int quantity, int runningBalance,
+                LocalDateTime performedAt) {
+            long signed = type == MovementType.OUT ? -quantity : quantity;
+            if (!location.equals(locationId)) {
+                finish();
+                locationId = location;
+                chains++;
+                negative = false;
+                recomputed = seedFromFirstEntry ? runningBalance - signed : 0;
+                lastStored = recomputed;
+            }
+            rows++;
+
+            long expectedStored = lastStored + signed;
+            if (runningBalance != expectedStored) {
+                run.report(new Issue(IssueType.GAP, productId, location, id, performedAt, expectedStored,
+                        runningBalance));
+            }
+            recomputed += signed;
+            if (recomputed < 0 && !negative) {
+                run.report(new Issue(IssueType.NEGATIVE_EXCURSION, productId, location, id, performedAt, 0,
+                        recomputed));
+            }
+            negative = recomputed < 0;
+            lastStored = runningBalance;
+        }
+
+        void finish() {
+            if (locationId == null) {
+                return;
+            }
+            Long projection = projected.remove(locationId);
+            long actual = projection != null ? projection : 0L;
+            if (actual != recomputed) {
+                run.report(new Issue(IssueType.PROJECTION_MISMATCH, productId, locationId, null, null, recomputed,
+                        actual));
+            }
+            locationId = null;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.example.backend.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.example.backend.entity.StockCheckpointRun;
+import org.example.backend.enums.MovementType;
+import org.example.backend.repository.StockCheckpointRunRepository;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.example.backend.service.ledger.ArchivedLedgerEntry;
+import org.example.backend.service.ledger.LedgerArchiveEntry;
+import org.example.backend.service.ledger.StockLedgerPartitionManager;
+import org.example.backend.service.ledger.StockLedgerPartitionManager.Partition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockLedgerArchiveServiceImpl implements StockLedgerArchiveService {
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String[] COLUMNS = {
+            "id", "product_id", "location_id", "transaction_id", "transaction_line_id", "movement_type",
+            "quantity", "running_balance", "performed_by_id", "performed_at", "created_at", "version" };
+
+    private final StockLedgerPartitionManager partitionManager;
+    private final StockCheckpointRunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stock.ledger.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock.ledger.archive.horizon-months:12}")
+    private int horizonMonths;
+
+    @Value("${stock.ledger.archive.directory:./data/ledger-archive}")
+    private String directory;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile List<LedgerArchiveEntry> manifest;
+    /** Archive files whose checksum matched, with the modification time they had then. */
+    private final Map<String, FileTime> verifiedFiles = new ConcurrentHashMap<>();
+
+    @Scheduled(cron = "${stock.ledger.archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        try {
+            archiveColdPartitions();
+        } catch (Exception e) {
+            log.error("Stock ledger archival failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int archiveColdPartitions() {
+        if (!enabled || !partitionManager.isEnabled()) {
+            return 0;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("Stock ledger archival already running — skipping");
+            return 0;
+        }
+        try {
+            // Balances are rebuilt from checkpoints once rows leave the database, so only checkpointed months go
+            Optional<LocalDateTime> checkpointed = runRepository.findTopByOrderByWatermarkDesc()
+                    .map(StockCheckpointRun::getWatermark);
+            if (checkpointed.isEmpty()) {
+                log.info("No stock checkpoint yet — nothing can be archived");
+                return 0;
+            }
+            LocalDateTime horizon = YearMonth.now().minusMonths(horizonMonths).atDay(1).atStartOfDay();
+            LocalDateTime cutoff = checkpointed.get().isBefore(horizon) ? checkpointed.get() : horizon;
+
+            List<Partition> attached = partitionManager.listPartitions();
+            completeInterruptedArchives(attached);
+
+            int archived = 0;
+            for (Partition partition : attached) {
+                if (partition.to().isAfter(cutoff)) {
+                    break;
+                }
+                LedgerArchiveEntry entry = export(partition);
+                // Read back what reached the disk before the only other copy goes
+                verifyChecksum(entry);
+                saveEntry(entry);
+                transactionTemplate.executeWithoutResult(status -> partitionManager.detachAndDrop(partition));
+                saveEntry(entry.withStatus(LedgerArchiveEntry.Status.ARCHIVED));
+                log.info("Archived stock ledger partition {}: {} rows to {}",
+                        partition.name(), entry.rows(), entry.file());
+                archived++;
+            }
+            return archived;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public List<LedgerArchiveEntry> getManifest() {
+        return loadManifest();
+    }
+
+    @Override
+    public Optional<LocalDateTime> getArchivedUntil() {
+        return loadManifest().stream()
+                .filter(e -> e.status() == LedgerArchiveEntry.Status.ARCHIVED)
+                .map(LedgerArchiveEntry::to)
+                .max(Comparator.naturalOrder());
+    }
+
+    @Override
+    public void scanArchived(LocalDateTime from, LocalDateTime to, Consumer<ArchivedLedgerEntry> consumer) {
+        for (LedgerArchiveEntry entry : loadManifest()) {
+            if (entry.status() != LedgerArchiveEntry.Status.ARCHIVED || !entry.overlaps(from, to)) {
+                continue;
+            }
+            verifyChecksum(entry);
+            Path file = archiveDirectory().resolve(entry.file());
+            try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+                    StandardCharsets.UTF_8);
+                    CSVParser parser = CSVFormat.DEFAULT.builder()
+                            .setHeader()
+                            .setSkipHeaderRecord(true)
+                            .build()
+                            .parse(reader)) {
+                for (CSVRecord record : parser) {
+                    LocalDateTime performedAt = LocalDateTime.parse(record.get("performed_at"));
+                    if (!performedAt.isBefore(from) && !performedAt.isAfter(to)) {
+                        consumer.accept(toEntry(record, performedAt));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read ledger archive " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Recompute the SHA-256 of an entry's file and compare it with the manifest,
+     * once per file and modification time. A file that does not match was
+     * damaged or replaced and is never read as ledger history.
+     */
+    private void verifyChecksum(LedgerArchiveEntry entry) {
+        Path file = archiveDirectory().resolve(entry.file());
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(verifiedFiles.get(entry.file()))) {
+                return;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equalsIgnoreCase(entry.sha256())) {
+                verifiedFiles.remove(entry.file());
+                throw new IllegalStateException("Ledger archive " + file + " has SHA-256 " + actual
+                        + ", the manifest records " + entry.sha256());
+            }
+            verifiedFiles.put(entry.file(), modified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to verify ledger archive " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An EXPORTED entry whose partition is no longer attached was dropped but the
+     * manifest was not updated before a restart.
+     */
+    private void completeInterruptedArchives(List<Partition> attached) {
+        Set<String> attachedNames = attached.stream().map(Partition::name).collect(Collectors.toSet());
+        for (LedgerArchiveEntry entry : loadManifest()) {
+            if (entry.status() == LedgerArchiveEntry.Status.EXPORTED && !attachedNames.contains(entry.partition())) {
+                saveEntry(entry.withStatus(LedgerArchiveEntry.Status.ARCHIVED));
+                log.info("Completed interrupted archive of partition {}", entry.partition());
+            }
+        }
+    }
+
+    /**
+     * Write the partition to a gzip CSV file. The file is written under a
+     * temporary name, fsynced, checked against the partition row count and only
+     * then moved into place.
+     */
+    private LedgerArchiveEntry export(Partition partition) {
+        Path dir = archiveDirectory();
+        String fileName = partition.name() + ".csv.gz";
+        Path target = dir.resolve(fileName);
+        Path tmp = dir.resolve(fileName + ".tmp");
+
+        try {
+            Files.createDirectories(dir);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long rows;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest);
+                    Writer writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8);
+                    CSVPrinter printer = new CSVPrinter(writer,
+                            CSVFormat.DEFAULT.builder().setHeader(COLUMNS).build())) {
+                rows = transactionTemplate.execute(status -> copyRows(partition, printer));
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+
+            long expected = partitionManager.countRows(partition);
+            if (rows != expected) {
+                Files.deleteIfExists(tmp);
+                throw new IllegalStateException("Archive of " + partition.name() + " has " + rows
+                        + " rows, partition has " + expected);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            return new LedgerArchiveEntry(partition.name(), partition.from(), partition.to(), fileName, rows,
+                    HexFormat.of().formatHex(digest.digest()), LedgerArchiveEntry.Status.EXPORTED,
+                    LocalDateTime.now());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive partition " + partition.name(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long copyRows(Partition partition, CSVPrinter printer) {
+        long[] rows = { 0 };
+        jdbcTemplate.query(con -> {
+            var statement = con.prepareStatement("SELECT " + String.join(", ", COLUMNS) + " FROM "
+                    + partition.name() + " ORDER BY performed_at, created_at");
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            try {
+                printer.printRecord(
+                        rs.getString("id"),
+                        rs.getString("product_id"),
+                        rs.getString("location_id"),
+                        rs.getString("transaction_id"),
+                        rs.getString("transaction_line_id"),
+                        rs.getString("movement_type"),
+                        rs.getInt("quantity"),
+                        rs.getInt("running_balance"),
+                        rs.getString("performed_by_id"),
+                        rs.getObject("performed_at", LocalDateTime.class),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("version"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private ArchivedLedgerEntry toEntry(CSVRecord record, LocalDateTime performedAt) {
+        String version = record.get("version");
+        return new ArchivedLedgerEntry(
+                UUID.fromString(record.get("id")),
+                UUID.fromString(record.get("product_id")),
+                UUID.fromString(record.get("location_id")),
+                UUID.fromString(record.get("transaction_id")),
+                uuidOrNull(record.get("transaction_line_id")),
+                MovementType.valueOf(record.get("movement_type")),
+                Integer.parseInt(record.get("quantity")),
+                Integer.parseInt(record.get("running_balance")),
+                UUID.fromString(record.get("performed_by_id")),
+                performedAt,
+                LocalDateTime.parse(record.get("created_at")),
+                version.isEmpty() ? null : Long.valueOf(version));
+    }
+
+    private static UUID uuidOrNull(String value) {
+        return value == null || value.isEmpty() ? null : UUID.fromString(value);
+    }
+
+    private Path archiveDirectory() {
+        return Paths.get(directory);
+    }
+
+    private synchronized List<LedgerArchiveEntry> loadManifest() {
+        if (manifest == null) {
+            Path file = archiveDirectory().resolve(MANIFEST_FILE);
+            try {
+                manifest = Files.exists(file)
+                        ? List.copyOf(objectMapper.readValue(file.toFile(),
+                                new TypeReference<List<LedgerArchiveEntry>>() {
+                                }))
+                        : List.of();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read ledger archive manifest " + file, e);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Insert or replace the entry of a partition and rewrite the manifest
+     * atomically.
+     */
+    private synchronized void saveEntry(LedgerArchiveEntry entry) {
+        List<LedgerArchiveEntry> entries = new ArrayList<>(loadManifest());
+        entries.removeIf(e -> e.partition().equals(entry.partition()));
+        entries.add(entry);
+        entries.sort(Comparator.comparing(LedgerArchiveEntry::from));
+
+        Path dir = archiveDirectory();
+        Path file = dir.resolve(MANIFEST_FILE);
+        Path tmp = dir.resolve(MANIFEST_FILE + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), entries);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write ledger archive manifest " + file, e);
+        }
+        manifest = List.copyOf(entries);
+    }
+}
@@ -0,0 +1,335 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.backend.dto.projection.MovementBucket;
+import org.example.backend.dto.projection.MovementGroupTotal;
+import org.example.backend.dto.projection.MovementRow;
+import org.example.backend.dto.projection.MovementTypeTotal;
+import org.example.backend.entity.Location;
+import org.example.backend.entity.Product;
+import org.example.backend.entity.User;
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.RollupDimension;
+import org.example.backend.enums.RollupGranularity;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.LocationRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.repository.UserRepository;
+import org.example.backend.service.ReportRollupService;
+import org.example.backend.service.StockLedgerArchiveService;
+import org.example.backend.service.StockMovementReportService;
+import org.example.backend.service.ledger.ArchivedLedgerEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Movement report on grouped aggregates and keyset pages of flat rows.
+ *
+ * Totals come from the hourly/daily rollups whenever they cover the period,
+ * so a long period costs one row per day and group; otherwise they are
+ * aggregated from stock_ledger.
+ *
+ * Periods reaching into archived months add the archive files to the result:
+ * totals are accumulated per group while the files stream, and a page that
+ * runs past the live ledger keeps only the rows it needs. That part of a
+ * report costs a scan of the archived range; the live part never does.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockMovementReportServiceImpl implements StockMovementReportService {
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+    private static final Comparator<ArchivedLedgerEntry> ARCHIVE_ORDER = Comparator
+            .comparing(ArchivedLedgerEntry::performedAt)
+            .thenComparing(ArchivedLedgerEntry::id);
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final StockLedgerArchiveService archiveService;
+    private final ProductRepository productRepository;
+    private final LocationRepository locationRepository;
+    private final UserRepository userRepository;
+    private final ReportRollupService reportRollupService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovementTypeTotal> totalsByType(UUID productId, LocalDateTime from, LocalDateTime to) {
+        Optional<List<MovementBucket>> buckets = productId == null
+                ? dailyBuckets(RollupDimension.ALL, null, from, to)
+                : dailyBuckets(RollupDimension.PRODUCT, productId, from, to);
+        if (buckets.isPresent()) {
+            Map<MovementType, long[]> totals = new EnumMap<>(MovementType.class);
+            buckets.get().forEach(bucket -> {
+                long[] total = totals.computeIfAbsent(bucket.movementType(), type -> new long[2]);
+                total[0] += bucket.movements();
+                total[1] += bucket.quantity();
+            });
+            return totals.entrySet().stream()
+                    .map(e -> new MovementTypeTotal(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                    .toList();
+        }
+
+        List<MovementTypeTotal> live = stockLedgerRepository.sumMovementsByType(productId, from, to);
+        if (!reachesArchive(from)) {
+            return live;
+        }
+
+        Map<MovementType, long[]> totals = new EnumMap<>(MovementType.class);
+        live.forEach(t -> totals.put(t.movementType(), new long[] { t.movements(), t.quantity() }));
+        scanArchived(productId, from, to, entry -> {
+            long[] total = totals.computeIfAbsent(entry.movementType(), type -> new long[2]);
+            total[0]++;
+            total[1] += entry.quantity();
+        });
+        return totals.entrySet().stream()
+                .map(e -> new MovementTypeTotal(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MovementGroupTotal> totals(Grouping grouping, UUID productId, LocalDateTime from,
+            LocalDateTime to) {
+        if (grouping == Grouping.MOVEMENT_TYPE) {
+            return totalsByType(productId, from, to).stream()
+                    .map(t -> new MovementGroupTotal(t.movementType().name(), t.movements(),
+                            t.movementType() == MovementType.IN ? t.quantity() : 0L,
+                            t.movementType() == MovementType.OUT ? t.quantity() : 0L))
+                    .toList();
+        }
+
+        Optional<Map<Object, long[]>> rolledUp = rolledUpTotals(grouping, productId, from, to);
+        if (rolledUp.isPresent()) {
+            return toGroupTotals(grouping, List.of(), rolledUp.get());
+        }
+
+        List<MovementGroupTotal> live = switch (grouping) {
+            case PRODUCT -> stockLedgerRepository.sumMovementsByProduct(productId, from, to);
+            case LOCATION -> stockLedgerRepository.sumMovementsByLocation(productId, from, to);
+            default -> stockLedgerRepository.sumMovementsByDay(productId, from, to);
+        };
+        if (!reachesArchive(from)) {
+            return live;
+        }
+        return mergeArchived(grouping, live, productId, from, to);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MovementPage movements(UUID productId, LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        LocalDateTime beforeAt = to;
+        UUID beforeId = FIRST_ID;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                beforeAt = LocalDateTime.parse(cursor.substring(0, separator));
+                beforeId = UUID.fromString(cursor.substring(separator + 1));
+            } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new InvalidOperationException("Invalid cursor: " + cursor);
+            }
+        }
+
+        List<MovementRow> rows = new ArrayList<>(stockLedgerRepository.findMovementRowsBefore(
+                productId, from, beforeAt, beforeId, Limit.of(limit)));
+        if (rows.size() < limit && reachesArchive(from)) {
+            rows.addAll(archivedPage(productId, from, beforeAt, beforeId, limit - rows.size()));
+        }
+
+        String nextCursor = null;
+        if (rows.size() == limit) {
+            MovementRow last = rows.get(rows.size() - 1);
+            nextCursor = last.performedAt() + "_" + last.id();
+        }
+        return new MovementPage(rows, nextCursor);
+    }
+
+    private Optional<List<MovementBucket>> dailyBuckets(RollupDimension dimension, UUID dimensionId,
+            LocalDateTime from, LocalDateTime to) {
+        return reportRollupService.movementBuckets(RollupGranularity.DAY, dimension, dimensionId, from, to);
+    }
+
+    private boolean reachesArchive(LocalDateTime from) {
+        Optional<LocalDateTime> archivedUntil = archiveService.getArchivedUntil();
+        return archivedUntil.isPresent() && archivedUntil.get().isAfter(from);
+    }
+
+    /**
+     * Archived entries performed in [from, to), of one product or all.
+     */
+    private void scanArchived(UUID productId, LocalDateTime from, LocalDateTime to,
+            Consumer<ArchivedLedgerEntry> consumer) {
+        archiveService.scanArchived(from, to, entry -> {
+            if (entry.performedAt().isBefore(to) && (productId == null || productId.equals(entry.productId()))) {
+                consumer.accept(entry);
+            }
+        });
+    }
+
+    private List<MovementGroupTotal> mergeArchived(Grouping grouping, List<MovementGroupTotal> live,
+            UUID productId, LocalDateTime from, LocalDateTime to) {
+        // Archive rows only carry ids: accumulate per id (or day), name the groups afterwards
+        Map<Object, long[]> archived = new HashMap<>();
+        scanArchived(productId, from, to, entry -> {
+            Object key = switch (grouping) {
+                case PRODUCT -> entry.productId();
+                case LOCATION -> entry.locationId();
+                default -> entry.performedAt().toLocalDate();
+            };
+            long[] total = archived.computeIfAbsent(key, k -> new long[3]);
+            total[0]++;
+            if (entry.movementType() == MovementType.IN) {
+                total[1] += entry.quantity();
+            } else if (entry.movementType() == MovementType.OUT) {
+                total[2] += entry.quantity();
+            }
+        });
+
+        return toGroupTotals(grouping, live, archived);
+    }
+
+    /**
+     * Totals per group key (product or location id, or day) from the rollups,
+     * when they cover the period and have the grouping.
+     */
+    private Optional<Map<Object, long[]>> rolledUpTotals(Grouping grouping, UUID productId, LocalDateTime from,
+            LocalDateTime to) {
+        Optional<List<MovementBucket>> buckets;
+        Function<MovementBucket, Object> key;
+        switch (grouping) {
+            case PRODUCT -> {
+                buckets = dailyBuckets(RollupDimension.PRODUCT, productId, from, to);
+                key = MovementBucket::dimensionId;
+            }
+            case LOCATION -> {
+                // Rolled up per location, not per product and location
+                buckets = productId == null
+                        ? dailyBuckets(RollupDimension.LOCATION, null, from, to)
+                        : Optional.empty();
+                key = MovementBucket::dimensionId;
+            }
+            default -> {
+                buckets = productId == null
+                        ? dailyBuckets(RollupDimension.ALL, null, from, to)
+                        : dailyBuckets(RollupDimension.PRODUCT, productId, from, to);
+                key = bucket -> bucket.bucketStart().toLocalDate();
+            }
+        }
+        return buckets.map(rows -> {
+            Map<Object, long[]> totals = new HashMap<>();
+            rows.forEach(bucket -> {
+                long[] total = totals.computeIfAbsent(key.apply(bucket), k -> new long[3]);
+                total[0] += bucket.movements();
+                if (bucket.movementType() == MovementType.IN) {
+                    total[1] += bucket.quantity();
+                } else if (bucket.movementType() == MovementType.OUT) {
+                    total[2] += bucket.quantity();
+                }
+            });
+            return totals;
+        });
+    }
+
+    /**
+     * Name the accumulated groups and merge them with the live ones, in group
+     * order.
+     */
+    private List<MovementGroupTotal> toGroupTotals(Grouping grouping, List<MovementGroupTotal> live,
+            Map<Object, long[]> accumulated) {
+        Map<Object, String[]> names = groupNames(grouping, accumulated.keySet());
+        TreeMap<String, MovementGroupTotal> merged = new TreeMap<>();
+        live.forEach(total -> merged.put(total.group(), total));
+        accumulated.forEach((key, total) -> {
+            String[] name = names.get(key);
+            if (name == null) {
+                return;
+            }
+            merged.merge(name[0], new MovementGroupTotal(name[0], name[1], total[0], total[1], total[2]),
+                    (a, b) -> new MovementGroupTotal(a.group(), a.label(), a.movements() + b.movements(),
+                            a.unitsIn() + b.unitsIn(), a.unitsOut() + b.unitsOut()));
+        });
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Group and label of each id or day key, as the live queries report them.
+     */
+    private Map<Object, String[]> groupNames(Grouping grouping, Set<Object> keys) {
+        Map<Object, String[]> names = new HashMap<>();
+        switch (grouping) {
+            case PRODUCT -> productRepository.findAllById(ids(keys))
+                    .forEach(p -> names.put(p.getId(), new String[] { p.getSku(), p.getName() }));
+            case LOCATION -> locationRepository.findAllById(ids(keys))
+                    .forEach(l -> names.put(l.getId(), new String[] { l.getCode(), l.getWarehouse().getCode() }));
+            default -> keys.forEach(day -> names.put(day, new String[] { day.toString(), null }));
+        }
+        return names;
+    }
+
+    private static List<UUID> ids(Set<Object> keys) {
+        return keys.stream().map(UUID.class::cast).toList();
+    }
+
+    /**
+     * The {@code count} newest archived entries before the cursor, as report
+     * rows. Only that many entries are kept while the files stream.
+     */
+    private List<MovementRow> archivedPage(UUID productId, LocalDateTime from, LocalDateTime beforeAt,
+            UUID beforeId, int count) {
+        PriorityQueue<ArchivedLedgerEntry> newest = new PriorityQueue<>(count + 1, ARCHIVE_ORDER);
+        scanArchived(productId, from, beforeAt.plusNanos(1), entry -> {
+            int vsCursor = entry.performedAt().compareTo(beforeAt);
+            if (vsCursor > 0 || (vsCursor == 0 && entry.id().compareTo(beforeId) >= 0)) {
+                return;
+            }
+            newest.add(entry);
+            if (newest.size() > count) {
+                newest.poll();
+            }
+        });
+        if (newest.isEmpty()) {
+            return List.of();
+        }
+
+        List<ArchivedLedgerEntry> entries = new ArrayList<>(newest);
+        entries.sort(ARCHIVE_ORDER.reversed());
+        Map<UUID, Product> products = byId(productRepository.findAllById(
+                entries.stream().map(ArchivedLedgerEntry::productId).collect(Collectors.toSet())), Product::getId);
+        Map<UUID, Location> locations = byId(locationRepository.findAllById(
+                entries.stream().map(ArchivedLedgerEntry::locationId).collect(Collectors.toSet())), Location::getId);
+        Map<UUID, User> users = byId(userRepository.findAllById(
+                entries.stream().map(ArchivedLedgerEntry::performedById).collect(Collectors.toSet())), User::getId);
+
+        return entries.stream().map(entry -> {
+            Product product = products.get(entry.productId());
+            Location location = locations.get(entry.locationId());
+            User user = users.get(entry.performedById());
+            return new MovementRow(entry.id(), entry.movementType(), entry.quantity(), entry.performedAt(),
+                    product != null ? product.getSku() : null,
+                    product != null ? product.getName() : null,
+                    location != null ? location.getCode() : null,
+                    user != null ? user.getFullName() : null);
+        }).toList();
+    }
+
+    private static <T> Map<UUID, T> byId(List<T> rows, Function<T, UUID> id) {
+        return rows.stream().collect(Collectors.toMap(id, row -> row));
+    }
+}
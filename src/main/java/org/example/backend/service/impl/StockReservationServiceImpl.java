@@ -0,0 +1,220 @@
+package org.example.backend.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.dto.projection.ProductLocationQuantity;
+import org.example.backend.entity.StockReservation;
+import org.example.backend.entity.Transaction;
+import org.example.backend.entity.TransactionLine;
+import org.example.backend.enums.ReservationStatus;
+import org.example.backend.exception.InsufficientStockException;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.repository.StockBalanceRepository;
+import org.example.backend.repository.StockReservationRepository;
+import org.example.backend.service.StockReservationService;
+import org.example.backend.service.ledger.BalanceIndex;
+import org.example.backend.service.ledger.ReservationHold;
+import org.example.backend.service.ledger.StockKey;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationRepository reservationRepository;
+    private final StockBalanceRepository stockBalanceRepository;
+    private final BalanceIndex balanceIndex;
+
+    private final ConcurrentHashMap<StockKey, AtomicLong> reserved = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadActiveReservations() {
+        List<ProductLocationQuantity> active = reservationRepository.sumActiveByPair();
+        for (ProductLocationQuantity pair : active) {
+            counter(new StockKey(pair.productId(), pair.locationId())).addAndGet(pair.quantity());
+        }
+        log.info("Loaded active stock reservations for {} product/location pairs", active.size());
+    }
+
+    @Override
+    public ReservationHold hold(List<TransactionLine> lines) {
+        Map<StockKey, Long> required = new TreeMap<>();
+        Map<StockKey, TransactionLine> sample = new HashMap<>();
+        for (TransactionLine line : lines) {
+            if (line.getSourceLocation() == null) {
+                throw new InvalidOperationException(
+                        "Line " + line.getLineNumber() + " must have a source location to reserve stock");
+            }
+            StockKey key = new StockKey(line.getProduct().getId(), line.getSourceLocation().getId());
+            required.merge(key, (long) line.getQuantity(), Long::sum);
+            sample.putIfAbsent(key, line);
+        }
+
+        Map<StockKey, Long> acquired = new HashMap<>();
+        for (Map.Entry<StockKey, Long> entry : required.entrySet()) {
+            StockKey key = entry.getKey();
+            long quantity = entry.getValue();
+            long available = tryReserve(key, quantity);
+            if (available >= 0) {
+                releaseCounters(acquired);
+                TransactionLine line = sample.get(key);
+                throw new InsufficientStockException(String.format(
+                        "Insufficient available stock for product %s at location %s. Available: %d, Requested: %d",
+                        line.getProduct().getSku(), line.getSourceLocation().getCode(), available, quantity));
+            }
+            acquired.put(key, quantity);
+        }
+        return new ReservationHold(acquired, this::releaseCounters);
+    }
+
+    @Override
+    @Transactional
+    public void confirm(ReservationHold hold, Transaction transaction, List<TransactionLine> lines) {
+        // The counters already carry the hold; persisting anything else would drift from them on reload
+        Map<StockKey, Long> quantities = new HashMap<>();
+        for (TransactionLine line : lines) {
+            quantities.merge(new StockKey(line.getProduct().getId(), line.getSourceLocation().getId()),
+                    (long) line.getQuantity(), Long::sum);
+        }
+        if (!quantities.equals(hold.getQuantities())) {
+            throw new IllegalStateException("Lines of task " + transaction.getReference()
+                    + " do not match the reserved quantities " + hold.getQuantities());
+        }
+
+        List<StockReservation> reservations = new ArrayList<>(lines.size());
+        for (TransactionLine line : lines) {
+            reservations.add(StockReservation.builder()
+                    .product(line.getProduct())
+                    .location(line.getSourceLocation())
+                    .transaction(transaction)
+                    .transactionLine(line)
+                    .quantity(line.getQuantity())
+                    .status(ReservationStatus.ACTIVE)
+                    .build());
+        }
+        reservationRepository.saveAll(reservations);
+        log.info("Reserved stock for task {}: {} lines", transaction.getReference(), reservations.size());
+    }
+
+    @Override
+    @Transactional
+    public void consume(TransactionLine line) {
+        close(reservationRepository.findActiveByLineId(line.getId()), ReservationStatus.CONSUMED);
+    }
+
+    @Override
+    @Transactional
+    public int releaseForTransaction(UUID transactionId) {
+        List<StockReservation> active = reservationRepository.findByTransactionIdAndStatus(transactionId,
+                ReservationStatus.ACTIVE);
+        close(active, ReservationStatus.RELEASED);
+        if (!active.isEmpty()) {
+            log.info("Released {} stock reservations of task {}", active.size(), transactionId);
+        }
+        return active.size();
+    }
+
+    @Override
+    public void holdUntilCompletion(List<TransactionLine> lines) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Holding stock until completion requires a transaction");
+        }
+        ReservationHold hold = hold(lines);
+        // After the commit listeners, so the index already shows the moved stock when the hold goes
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                hold.release();
+            }
+        });
+    }
+
+    @Override
+    public Availability getAvailability(UUID productId, UUID locationId) {
+        StockKey key = new StockKey(productId, locationId);
+        long onHand = onHand(key);
+        AtomicLong counter = reserved.get(key);
+        long reservedQuantity = counter != null ? counter.get() : 0L;
+        return new Availability(onHand, reservedQuantity, Math.max(0, onHand - reservedQuantity));
+    }
+
+    /**
+     * Add to the reserved counter if it stays within the on-hand quantity.
+     *
+     * @return -1 if reserved, otherwise the quantity that was available
+     */
+    private long tryReserve(StockKey key, long quantity) {
+        AtomicLong counter = counter(key);
+        while (true) {
+            long current = counter.get();
+            long available = onHand(key) - current;
+            if (available < quantity) {
+                return Math.max(0, available);
+            }
+            if (counter.compareAndSet(current, current + quantity)) {
+                return -1;
+            }
+        }
+    }
+
+    private void releaseCounters(Map<StockKey, Long> quantities) {
+        quantities.forEach((key, quantity) -> counter(key).updateAndGet(v -> Math.max(0, v - quantity)));
+    }
+
+    /**
+     * Close the reservations now; give their quantities back to the counters
+     * once the surrounding transaction commits.
+     */
+    private void close(List<StockReservation> reservations, ReservationStatus status) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        Map<StockKey, Long> quantities = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockReservation reservation : reservations) {
+            reservation.setStatus(status);
+            reservation.setClosedAt(now);
+            quantities.merge(new StockKey(reservation.getProduct().getId(), reservation.getLocation().getId()),
+                    (long) reservation.getQuantity(), Long::sum);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseCounters(quantities);
+                }
+            });
+        } else {
+            releaseCounters(quantities);
+        }
+    }
+
+    private long onHand(StockKey key) {
+        if (balanceIndex.isReady()) {
+            return balanceIndex.get(key.productId(), key.locationId());
+        }
+        return stockBalanceRepository.findQuantity(key.productId(), key.locationId()).orElse(0);
+    }
+
+    private AtomicLong counter(StockKey key) {
+        return reserved.computeIfAbsent(key, k -> new AtomicLong());
+    }
+}
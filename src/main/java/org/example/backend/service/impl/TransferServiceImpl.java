@@ -7,10 +7,14 @@ import org.example.backend.entity.TransactionLine;
 import org.example.backend.entity.User;
 import org.example.backend.exception.InvalidOperationException;
 import org.example.backend.service.StockLedgerService;
+import org.example.backend.service.StockReservationService;
 import org.example.backend.service.TransferService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class TransferServiceImpl implements TransferService {
 
     private final StockLedgerService stockLedgerService;
+    private final StockReservationService stockReservationService;
 
     @Override
     public void processTransferLine(Transaction transaction, TransactionLine line, User performer) {
@@ -34,24 +39,13 @@ public class TransferServiceImpl implements TransferService {
                 line.getLineNumber(), line.getProduct().getSku(), line.getQuantity(),
                 line.getSourceLocation().getCode(), line.getDestinationLocation().getCode());
 
-        // Validate stock availability at source before moving
-        stockLedgerService.validateStockAvailability(
-                line.getProduct().getId(),
-                line.getSourceLocation().getId(),
-                line.getQuantity());
+        // Stock reserved by pending tasks is off limits; held until commit so concurrent transfers see it taken
+        stockReservationService.holdUntilCompletion(List.of(line));
 
-        // Stock OUT from source location
-        stockLedgerService.recordStockOut(
+        // Stock OUT from source location, stock IN at destination location
+        stockLedgerService.recordTransfer(
                 line.getProduct(),
                 line.getSourceLocation(),
-                line.getQuantity(),
-                transaction,
-                line,
-                performer);
-
-        // Stock IN at destination location
-        stockLedgerService.recordStockIn(
-                line.getProduct(),
                 line.getDestinationLocation(),
                 line.getQuantity(),
                 transaction,
@@ -62,8 +56,26 @@ public class TransferServiceImpl implements TransferService {
     @Override
     public void processTransfer(Transaction transaction, User performer) {
         log.info("Processing full transfer transaction: {}", transaction.getReference());
-        for (TransactionLine line : transaction.getTransactionLines()) {
-            processTransferLine(transaction, line, performer);
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
+        List<TransactionLine> lines = transaction.getTransactionLines();
+        for (TransactionLine line : lines) {
+            if (line.getSourceLocation() == null) {
+                throw new InvalidOperationException(
+                        "Transfer line " + line.getLineNumber() + " must have a source location");
+            }
+            if (line.getDestinationLocation() == null) {
+                throw new InvalidOperationException(
+                        "Transfer line " + line.getLineNumber() + " must have a destination location");
+            }
+            movements.add(StockLedgerService.Movement.out(
+                    line.getProduct(), line.getSourceLocation(), line.getQuantity(),
+                    transaction, line, performer));
+            movements.add(StockLedgerService.Movement.in(
+                    line.getProduct(), line.getDestinationLocation(), line.getQuantity(),
+                    transaction, line, performer));
         }
+        // Summed per product and source, so lines moving from the same pair are checked together
+        stockReservationService.holdUntilCompletion(lines);
+        stockLedgerService.recordMovements(movements);
     }
 }
@@ -0,0 +1,32 @@
+package org.example.backend.service.ledger;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A stock_ledger row in flat form, as stored in archive files and in the
+ * write-ahead log of the write-behind mode.
+ */
+public record ArchivedLedgerEntry(
+        UUID id,
+        UUID productId,
+        UUID locationId,
+        UUID transactionId,
+        UUID transactionLineId,
+        MovementType movementType,
+        int quantity,
+        int runningBalance,
+        UUID performedById,
+        LocalDateTime performedAt,
+        LocalDateTime createdAt,
+        Long version) {
+
+    /**
+     * Signed effect on the balance, matching the ledger sum queries.
+     */
+    public long signedQuantity() {
+        return movementType == MovementType.OUT ? -quantity : quantity;
+    }
+}
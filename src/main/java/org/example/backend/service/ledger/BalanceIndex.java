@@ -0,0 +1,213 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.util.LongIntMap;
+import org.example.backend.util.UuidIntMap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory copy of the stock_balance projection for lock-free reads.
+ *
+ * Products and locations are mapped to dense int ids; a balance is stored
+ * under {@code productIdx << 32 | locationIdx} in a primitive long-to-int map.
+ * Reads use an optimistic stamp and only fall back to a read lock when a
+ * write raced with them. The index is loaded once the application is ready
+ * and kept in sync from committed ledger writes; until it is loaded, callers
+ * read the database. The total of each product over all its locations is kept
+ * alongside, indexed by the dense product id.
+ *
+ * Callers pass UUIDs, so a lookup still hashes both of them to find the dense
+ * ids before the balance probe; only the pair map itself is UUID-free.
+ */
+@Component
+@Slf4j
+public class BalanceIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StampedLock lock = new StampedLock();
+    private final UuidIntMap productIndexes = new UuidIntMap(1024);
+    private final UuidIntMap locationIndexes = new UuidIntMap(1024);
+    private final LongIntMap balances = new LongIntMap(16384);
+    private long[] productTotals = new long[1024];
+    private volatile boolean ready;
+
+    public BalanceIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("stock.balance.index.pairs", this, BalanceIndex::size)
+                .description("Product/location pairs held in the in-memory balance index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Committed balance of a pair; 0 for a pair that has never moved. Only
+     * meaningful once {@link #isReady()}.
+     */
+    public int get(UUID productId, UUID locationId) {
+        long stamp = lock.tryOptimisticRead();
+        int balance = lookup(productId, locationId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                balance = lookup(productId, locationId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Committed on-hand quantity of a product summed over its locations.
+     */
+    public long getProductTotal(UUID productId) {
+        long stamp = lock.tryOptimisticRead();
+        long total = lookupTotal(productId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                total = lookupTotal(productId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    public int size() {
+        return balances.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        long stamp = lock.writeLock();
+        try {
+            balances.clear();
+            Arrays.fill(productTotals, 0L);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Entries written by committed movements while loading are newer than the scan, so they win
+        jdbcTemplate.query("SELECT product_id, location_id, quantity FROM stock_balance", rs -> {
+            UUID productId = rs.getObject("product_id", UUID.class);
+            UUID locationId = rs.getObject("location_id", UUID.class);
+            int quantity = rs.getInt("quantity");
+            long writeStamp = lock.writeLock();
+            try {
+                long key = keyOf(productId, locationId);
+                if (!balances.containsKey(key)) {
+                    balances.put(key, quantity);
+                    productTotals[productOf(key)] += quantity;
+                }
+            } finally {
+                lock.unlockWrite(writeStamp);
+            }
+        });
+        ready = true;
+        log.info("Balance index loaded: {} pairs in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    // Before the listeners that read the index
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStockMovement(StockMovementEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            long key = keyOf(event.productId(), event.locationId());
+            productTotals[productOf(key)] += event.balance() - balances.getOrDefault(key, 0);
+            balances.put(key, event.balance());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replace every balance with the rebuilt projection without leaving the
+     * ready state, so that writers keep the mode they run in; readers wait for
+     * the swap instead of seeing a partly loaded index. The rebuild holds every
+     * stock lock until this returns, so no movement is applied meanwhile.
+     */
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onBalancesRebuilt(StockBalancesRebuiltEvent event) {
+        record PairBalance(UUID productId, UUID locationId, int quantity) {
+        }
+        long start = System.currentTimeMillis();
+        List<PairBalance> rows = jdbcTemplate.query("SELECT product_id, location_id, quantity FROM stock_balance",
+                (rs, i) -> new PairBalance(rs.getObject("product_id", UUID.class),
+                        rs.getObject("location_id", UUID.class), rs.getInt("quantity")));
+        long stamp = lock.writeLock();
+        try {
+            balances.clear();
+            Arrays.fill(productTotals, 0L);
+            for (PairBalance row : rows) {
+                long key = keyOf(row.productId(), row.locationId());
+                balances.put(key, row.quantity());
+                productTotals[productOf(key)] += row.quantity();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Balance index reloaded after a rebuild: {} pairs in {} ms", size(),
+                System.currentTimeMillis() - start);
+    }
+
+    private int lookup(UUID productId, UUID locationId) {
+        int product = productIndexes.get(productId);
+        if (product == UuidIntMap.MISSING) {
+            return 0;
+        }
+        int location = locationIndexes.get(locationId);
+        if (location == UuidIntMap.MISSING) {
+            return 0;
+        }
+        return balances.getOrDefault(pack(product, location), 0);
+    }
+
+    private long lookupTotal(UUID productId) {
+        int product = productIndexes.get(productId);
+        long[] totals = productTotals;
+        return product == UuidIntMap.MISSING || product >= totals.length ? 0 : totals[product];
+    }
+
+    /**
+     * Key of a pair, registering its product and location. Caller holds the
+     * write lock.
+     */
+    private long keyOf(UUID productId, UUID locationId) {
+        int product = productIndexes.putIfAbsent(productId, productIndexes.size());
+        if (product >= productTotals.length) {
+            productTotals = Arrays.copyOf(productTotals, productTotals.length * 2);
+        }
+        int location = locationIndexes.putIfAbsent(locationId, locationIndexes.size());
+        return pack(product, location);
+    }
+
+    private static int productOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static long pack(int product, int location) {
+        return ((long) product << 32) | (location & 0xFFFFFFFFL);
+    }
+}
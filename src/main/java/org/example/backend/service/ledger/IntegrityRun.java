@@ -0,0 +1,140 @@
+package org.example.backend.service.ledger;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and findings of one ledger integrity verification. Updated
+ * concurrently by the replay workers and read by the status endpoint and the
+ * metrics gauges while the run is in progress.
+ */
+@Getter
+public class IntegrityRun {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    public enum IssueType {
+        /** running_balance does not follow from the previous entry of the chain. */
+        GAP,
+        /** The recomputed balance went below zero. */
+        NEGATIVE_EXCURSION,
+        /** The stock_balance projection differs from the recomputed balance. */
+        PROJECTION_MISMATCH
+    }
+
+    public record Issue(IssueType type, UUID productId, UUID locationId, UUID ledgerId,
+            LocalDateTime performedAt, long expected, long actual) {
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final boolean rebuildProjection;
+    private final int maxIssues;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile long finishNanos;
+    private volatile String error;
+    private volatile long productsTotal;
+    private volatile Integer pairsRebuilt;
+
+    private final AtomicLong productsVerified = new AtomicLong();
+    private final AtomicLong chainsVerified = new AtomicLong();
+    private final AtomicLong rowsScanned = new AtomicLong();
+    private final Map<IssueType, AtomicLong> issueCounts = new EnumMap<>(IssueType.class);
+    private final List<Issue> issues = Collections.synchronizedList(new ArrayList<>());
+
+    public IntegrityRun(boolean rebuildProjection, int maxIssues) {
+        this.rebuildProjection = rebuildProjection;
+        this.maxIssues = maxIssues;
+        for (IssueType type : IssueType.values()) {
+            issueCounts.put(type, new AtomicLong());
+        }
+    }
+
+    /**
+     * Count the issue; keep its details only while under the cap so a badly
+     * broken ledger cannot exhaust memory.
+     */
+    public void report(Issue issue) {
+        issueCounts.get(issue.type()).incrementAndGet();
+        synchronized (issues) {
+            if (issues.size() < maxIssues) {
+                issues.add(issue);
+            }
+        }
+    }
+
+    public void setProductsTotal(long productsTotal) {
+        this.productsTotal = productsTotal;
+    }
+
+    public void productVerified(long rows, long chains) {
+        rowsScanned.addAndGet(rows);
+        chainsVerified.addAndGet(chains);
+        productsVerified.incrementAndGet();
+    }
+
+    public void complete(Integer pairsRebuilt) {
+        this.pairsRebuilt = pairsRebuilt;
+        this.finishedAt = LocalDateTime.now();
+        this.finishNanos = System.nanoTime();
+        this.status = Status.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.finishNanos = System.nanoTime();
+        this.status = Status.FAILED;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    public long getIssueCount(IssueType type) {
+        return issueCounts.get(type).get();
+    }
+
+    public long getTotalIssues() {
+        return issueCounts.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public List<Issue> getIssues() {
+        synchronized (issues) {
+            return List.copyOf(issues);
+        }
+    }
+
+    public double getProgress() {
+        return productsTotal == 0 ? (isRunning() ? 0.0 : 1.0) : (double) productsVerified.get() / productsTotal;
+    }
+
+    public Duration getElapsed() {
+        long end = isRunning() ? System.nanoTime() : finishNanos;
+        return Duration.ofNanos(end - startNanos);
+    }
+
+    /**
+     * Ledger rows replayed per second since the start of the run.
+     */
+    public double getRowsPerSecond() {
+        double seconds = getElapsed().toNanos() / 1e9;
+        return seconds > 0 ? rowsScanned.get() / seconds : 0.0;
+    }
+}
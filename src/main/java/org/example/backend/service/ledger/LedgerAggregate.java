@@ -0,0 +1,20 @@
+package org.example.backend.service.ledger;
+
+import java.util.List;
+
+/**
+ * One group of a {@link LedgerQuery}. Key values follow the group-by
+ * dimensions: a UUID for products, locations, users and warehouses, the
+ * category name, the {@code MovementType}, a {@code LocalDateTime} for hours,
+ * days and weeks, an Integer for hour of day and day of week. A null UUID or
+ * category means the entry's product or location was not known to the store.
+ *
+ * @param labels readable form of each key value (SKU, location code,
+ *               username...), same order as the key
+ */
+public record LedgerAggregate(
+        List<Object> key,
+        List<String> labels,
+        long movements,
+        long quantity) {
+}
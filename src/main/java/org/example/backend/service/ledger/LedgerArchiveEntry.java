@@ -0,0 +1,37 @@
+package org.example.backend.service.ledger;
+
+import java.time.LocalDateTime;
+
+/**
+ * Manifest entry of one archived stock_ledger partition.
+ *
+ * An entry is EXPORTED once its file is written and verified, and ARCHIVED
+ * once the partition has been dropped from the database. Only ARCHIVED
+ * entries are read back, so a partition is never counted twice.
+ */
+public record LedgerArchiveEntry(
+        String partition,
+        LocalDateTime from,
+        LocalDateTime to,
+        String file,
+        long rows,
+        String sha256,
+        Status status,
+        LocalDateTime archivedAt) {
+
+    public enum Status {
+        EXPORTED,
+        ARCHIVED
+    }
+
+    public LedgerArchiveEntry withStatus(Status newStatus) {
+        return new LedgerArchiveEntry(partition, from, to, file, rows, sha256, newStatus, LocalDateTime.now());
+    }
+
+    /**
+     * Whether the archived range [from, to) overlaps [start, end].
+     */
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return !from.isAfter(end) && to.isAfter(start);
+    }
+}
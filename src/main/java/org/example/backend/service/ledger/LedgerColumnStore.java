@@ -0,0 +1,683 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.enums.MovementType;
+import org.example.backend.exception.InvalidOperationException;
+import org.example.backend.service.ledger.LedgerQuery.Dimension;
+import org.example.backend.util.LongIntMap;
+import org.example.backend.util.UuidIntMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Column-oriented copy of the recent stock ledger for ad-hoc analytics.
+ *
+ * Each entry is one row across primitive columns: dictionary codes of its
+ * product, location and user, the movement type ordinal, the quantity and the
+ * time in epoch seconds (wall-clock time taken as UTC, so hour and day
+ * buckets follow the local calendar). Rows live in fixed-size segments that
+ * are only ever appended to; a reader takes the published row count first and
+ * never looks past it, so queries run without locks while the write path
+ * appends. Product category and location warehouse are attributes of the
+ * dictionaries, refreshed periodically.
+ *
+ * Entries of the last {@code retention-days} are loaded in the background once
+ * the application is ready, oldest first; committed ledger writes are appended
+ * from then on. Movements committed during the load are held back and added
+ * afterwards unless the scan already returned them. A periodic compaction
+ * drops the leading segments whose newest row is past the retention; row
+ * numbers stay stable, readers start at the first row still held.
+ */
+@Component
+@Slf4j
+public class LedgerColumnStore {
+
+    private static final String LEDGER_SQL = """
+            SELECT id, product_id, location_id, performed_by_id, movement_type, quantity, performed_at
+            FROM stock_ledger
+            WHERE performed_at >= ?
+            ORDER BY performed_at
+            """;
+    private static final String PRODUCTS_SQL = "SELECT id, sku, category FROM products";
+    private static final String LOCATIONS_SQL = "SELECT id_emplacement, code_emplacement, id_entrepot FROM emplacements";
+    private static final String USERS_SQL = "SELECT id_utilisateur, username FROM users";
+
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int MIN_ROWS_PER_TASK = 1 << 15;
+    /** Longer than any ledger transaction: rows this recent may also arrive as events during the load. */
+    private static final int LOAD_OVERLAP_MINUTES = 30;
+    private static final int UNKNOWN = -1;
+    private static final MovementType[] MOVEMENT_TYPES = MovementType.values();
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int fetchSize;
+    private final ForkJoinPool pool;
+
+    private final Dictionary products = new Dictionary();
+    private final Dictionary locations = new Dictionary();
+    private final Dictionary users = new Dictionary();
+    private final Dictionary warehouses = new Dictionary();
+    private final List<String> categoryNames = new ArrayList<>();
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    /** Category code per product code, warehouse code per location code. */
+    private volatile int[] productCategories = new int[0];
+    private volatile int[] locationWarehouses = new int[0];
+
+    /**
+     * Appends write segments before size, compaction firstRow before segments:
+     * a reader takes size, then segments, then firstRow.
+     */
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int firstRow;
+    private volatile int size;
+    private volatile boolean ready;
+    private boolean loading;
+    private final List<StockMovementEvent> heldBack = new ArrayList<>();
+
+    /**
+     * One block of rows; columns are filled up to the store size.
+     */
+    private static final class Segment {
+        final int[] product = new int[SEGMENT_SIZE];
+        final int[] location = new int[SEGMENT_SIZE];
+        final int[] user = new int[SEGMENT_SIZE];
+        final byte[] movementType = new byte[SEGMENT_SIZE];
+        final int[] quantity = new int[SEGMENT_SIZE];
+        final long[] performedAt = new long[SEGMENT_SIZE];
+        long newest = Long.MIN_VALUE;
+    }
+
+    /**
+     * UUID to dense code, with a label per code. Written under the store lock;
+     * entries are complete before any row using their code is published.
+     */
+    private static final class Dictionary {
+        final UuidIntMap codes = new UuidIntMap(1024);
+        volatile UUID[] ids = new UUID[1024];
+        volatile String[] labels = new String[1024];
+
+        int code(UUID id) {
+            int code = codes.putIfAbsent(id, codes.size());
+            if (code >= ids.length) {
+                labels = Arrays.copyOf(labels, ids.length * 2);
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[code] = id;
+            return code;
+        }
+
+        int size() {
+            return codes.size();
+        }
+    }
+
+    public LedgerColumnStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${analytics.ledger-store.enabled:true}") boolean enabled,
+            @Value("${analytics.ledger-store.retention-days:400}") int retentionDays,
+            @Value("${analytics.ledger-store.parallelism:0}") int parallelism,
+            @Value("${analytics.ledger-store.fetch-size:5000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.fetchSize = fetchSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        Gauge.builder("ledger.column.store.rows", this, LedgerColumnStore::size)
+                .description("Ledger entries held by the in-memory column store")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Rows currently held.
+     */
+    public int size() {
+        return size - firstRow;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * Approximate heap used by the columns.
+     */
+    public long getColumnBytes() {
+        return (long) (segments.length - (firstRow >>> SEGMENT_BITS)) * SEGMENT_SIZE * (4 + 4 + 4 + 1 + 4 + 8);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            loading = true;
+        }
+        Thread loader = new Thread(this::loadLedger, "ledger-column-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @TransactionalEventListener
+    public void onStockMovement(StockMovementEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (ready) {
+                append(event.productId(), event.locationId(), event.performedById(), event.movementType(),
+                        event.quantity(), event.performedAt());
+            } else if (loading) {
+                heldBack.add(event);
+            }
+        }
+    }
+
+    /**
+     * Drop the full segments, from the first one on, whose newest row is older
+     * than the retention. The segment being appended to is always kept.
+     */
+    @Scheduled(fixedDelayString = "${analytics.ledger-store.compaction-interval-ms:3600000}",
+            initialDelayString = "${analytics.ledger-store.compaction-interval-ms:3600000}")
+    public void compact() {
+        if (!enabled || !ready) {
+            return;
+        }
+        long cutoff = LocalDateTime.now().minusDays(retentionDays).toEpochSecond(ZoneOffset.UTC);
+        int dropped;
+        int remaining;
+        synchronized (this) {
+            Segment[] current = segments;
+            int first = firstRow >>> SEGMENT_BITS;
+            int end = first;
+            while (end < (size >>> SEGMENT_BITS) && current[end].newest < cutoff) {
+                end++;
+            }
+            if (end == first) {
+                return;
+            }
+            Segment[] compacted = current.clone();
+            Arrays.fill(compacted, first, end, null);
+            firstRow = end << SEGMENT_BITS;
+            segments = compacted;
+            dropped = (end - first) << SEGMENT_BITS;
+            remaining = size - firstRow;
+        }
+        log.info("Ledger column store compacted: {} entries older than {} days dropped, {} held",
+                dropped, retentionDays, remaining);
+    }
+
+    /**
+     * Reload SKUs, location codes, usernames, categories and warehouses.
+     */
+    @Scheduled(fixedDelayString = "${analytics.ledger-store.dimension-refresh-ms:300000}",
+            initialDelayString = "${analytics.ledger-store.dimension-refresh-ms:300000}")
+    public void refreshDimensions() {
+        if (!enabled) {
+            return;
+        }
+        record ProductRow(UUID id, String sku, String category) {
+        }
+        record LocationRow(UUID id, String code, UUID warehouseId) {
+        }
+        record UserRow(UUID id, String username) {
+        }
+        List<ProductRow> productRows = jdbcTemplate.query(PRODUCTS_SQL, (rs, i) -> new ProductRow(
+                rs.getObject("id", UUID.class), rs.getString("sku"), rs.getString("category")));
+        List<LocationRow> locationRows = jdbcTemplate.query(LOCATIONS_SQL, (rs, i) -> new LocationRow(
+                rs.getObject("id_emplacement", UUID.class), rs.getString("code_emplacement"),
+                rs.getObject("id_entrepot", UUID.class)));
+        List<UserRow> userRows = jdbcTemplate.query(USERS_SQL, (rs, i) -> new UserRow(
+                rs.getObject("id_utilisateur", UUID.class), rs.getString("username")));
+
+        synchronized (this) {
+            for (ProductRow row : productRows) {
+                int code = products.code(row.id());
+                products.labels[code] = row.sku();
+                int[] categories = ensureCapacity(productCategories, code);
+                categories[code] = row.category() != null ? categoryCode(row.category()) : UNKNOWN;
+                productCategories = categories;
+            }
+            for (LocationRow row : locationRows) {
+                int code = locations.code(row.id());
+                locations.labels[code] = row.code();
+                int[] locationWarehouse = ensureCapacity(locationWarehouses, code);
+                locationWarehouse[code] = row.warehouseId() != null ? warehouses.code(row.warehouseId()) : UNKNOWN;
+                locationWarehouses = locationWarehouse;
+            }
+            for (UserRow row : userRows) {
+                users.labels[users.code(row.id())] = row.username();
+            }
+        }
+    }
+
+    /**
+     * Run a query over every core.
+     *
+     * @throws InvalidOperationException while the store is loading or
+     *                                   disabled, or for more than two
+     *                                   group-by dimensions
+     */
+    public List<LedgerAggregate> query(LedgerQuery query) {
+        if (!ready) {
+            throw new InvalidOperationException(enabled ? "The ledger column store is still loading"
+                    : "The ledger column store is disabled (analytics.ledger-store.enabled)");
+        }
+        List<Dimension> groupBy = query.groupBy() != null ? query.groupBy() : List.of();
+        if (groupBy.size() > LedgerQuery.MAX_GROUP_BY) {
+            throw new InvalidOperationException("At most " + LedgerQuery.MAX_GROUP_BY + " group-by dimensions");
+        }
+
+        // Row count first, the segments holding it next, then the first row still held by them
+        int rows = size;
+        Segment[] held = segments;
+        int from = Math.min(firstRow, rows);
+        Filter filter = new Filter(query);
+        Dimension first = !groupBy.isEmpty() ? groupBy.get(0) : null;
+        Dimension second = groupBy.size() > 1 ? groupBy.get(1) : null;
+        int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, (rows - from) / (pool.getParallelism() * 4));
+        Partial totals = pool.invoke(new Scan(held, filter, first, second, from, rows, rowsPerTask));
+
+        List<LedgerAggregate> result = new ArrayList<>(totals.size);
+        for (int slot = 0; slot < totals.size; slot++) {
+            long key = totals.keys[slot];
+            List<Object> values = new ArrayList<>(groupBy.size());
+            List<String> labels = new ArrayList<>(groupBy.size());
+            if (first != null) {
+                decode(first, (int) (key >> 32), values, labels);
+            }
+            if (second != null) {
+                decode(second, (int) key, values, labels);
+            }
+            result.add(new LedgerAggregate(values, labels, totals.counts[slot], totals.sums[slot]));
+        }
+
+        boolean timeOrdered = groupBy.stream().anyMatch(LedgerColumnStore::isTime);
+        result.sort(timeOrdered
+                ? Comparator.comparing((LedgerAggregate a) -> a.labels().toString())
+                : Comparator.comparingLong(LedgerAggregate::quantity).reversed()
+                        .thenComparing(Comparator.comparingLong(LedgerAggregate::movements).reversed()));
+        return query.limit() > 0 && result.size() > query.limit() ? result.subList(0, query.limit()) : result;
+    }
+
+    private void loadLedger() {
+        long start = System.currentTimeMillis();
+        try {
+            refreshDimensions();
+            LocalDateTime loadStart = LocalDateTime.now();
+            LocalDateTime recent = loadStart.minusMinutes(LOAD_OVERLAP_MINUTES);
+            Set<UUID> recentIds = new HashSet<>();
+
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(LEDGER_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(loadStart.minusDays(retentionDays)));
+                return ps;
+            }, rs -> {
+                LocalDateTime performedAt = rs.getTimestamp("performed_at").toLocalDateTime();
+                if (!performedAt.isBefore(recent)) {
+                    recentIds.add(rs.getObject("id", UUID.class));
+                }
+                synchronized (this) {
+                    append(rs.getObject("product_id", UUID.class), rs.getObject("location_id", UUID.class),
+                            rs.getObject("performed_by_id", UUID.class),
+                            MovementType.valueOf(rs.getString("movement_type")), rs.getInt("quantity"),
+                            performedAt);
+                }
+            }));
+
+            synchronized (this) {
+                for (StockMovementEvent event : heldBack) {
+                    if (!recentIds.contains(event.ledgerId())) {
+                        append(event.productId(), event.locationId(), event.performedById(),
+                                event.movementType(), event.quantity(), event.performedAt());
+                    }
+                }
+                heldBack.clear();
+                loading = false;
+                ready = true;
+            }
+            log.info("Ledger column store loaded: {} entries of the last {} days in {} ms",
+                    size, retentionDays, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                heldBack.clear();
+                loading = false;
+            }
+            log.error("Ledger column store failed to load: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Caller holds the store lock.
+     */
+    private void append(UUID productId, UUID locationId, UUID userId, MovementType movementType, int quantity,
+            LocalDateTime performedAt) {
+        int row = size;
+        int index = row >>> SEGMENT_BITS;
+        Segment[] current = segments;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[index] = new Segment();
+            segments = current;
+        }
+        Segment segment = current[index];
+        int offset = row & SEGMENT_MASK;
+        segment.product[offset] = products.code(productId);
+        segment.location[offset] = locations.code(locationId);
+        segment.user[offset] = userId != null ? users.code(userId) : UNKNOWN;
+        segment.movementType[offset] = (byte) movementType.ordinal();
+        segment.quantity[offset] = quantity;
+        segment.performedAt[offset] = performedAt.toEpochSecond(ZoneOffset.UTC);
+        segment.newest = Math.max(segment.newest, segment.performedAt[offset]);
+        // Publishes the row
+        size = row + 1;
+    }
+
+    private int categoryCode(String category) {
+        return categoryCodes.computeIfAbsent(category, name -> {
+            categoryNames.add(name);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private void decode(Dimension dimension, int value, List<Object> values, List<String> labels) {
+        switch (dimension) {
+            case PRODUCT -> decode(products, value, values, labels);
+            case LOCATION -> decode(locations, value, values, labels);
+            case USER -> decode(users, value, values, labels);
+            case WAREHOUSE -> {
+                UUID id = value != UNKNOWN ? warehouses.ids[value] : null;
+                values.add(id);
+                labels.add(String.valueOf(id));
+            }
+            case CATEGORY -> {
+                String name;
+                synchronized (this) {
+                    name = value != UNKNOWN ? categoryNames.get(value) : null;
+                }
+                values.add(name);
+                labels.add(String.valueOf(name));
+            }
+            case MOVEMENT_TYPE -> {
+                values.add(MOVEMENT_TYPES[value]);
+                labels.add(MOVEMENT_TYPES[value].name());
+            }
+            case HOUR -> addTime(LocalDateTime.ofEpochSecond((long) value * SECONDS_PER_HOUR, 0, ZoneOffset.UTC),
+                    values, labels);
+            case DAY -> addTime(LocalDateTime.ofEpochSecond((long) value * SECONDS_PER_DAY, 0, ZoneOffset.UTC),
+                    values, labels);
+            case WEEK -> addTime(LocalDateTime.ofEpochSecond(((long) value * 7 - 3) * SECONDS_PER_DAY, 0,
+                    ZoneOffset.UTC), values, labels);
+            case HOUR_OF_DAY, DAY_OF_WEEK -> {
+                values.add(value);
+                labels.add(String.format("%02d", value));
+            }
+        }
+    }
+
+    private static void decode(Dictionary dictionary, int code, List<Object> values, List<String> labels) {
+        UUID id = code != UNKNOWN ? dictionary.ids[code] : null;
+        String label = code != UNKNOWN ? dictionary.labels[code] : null;
+        values.add(id);
+        labels.add(label != null ? label : String.valueOf(id));
+    }
+
+    private static void addTime(LocalDateTime time, List<Object> values, List<String> labels) {
+        values.add(time);
+        labels.add(time.toString());
+    }
+
+    private static boolean isTime(Dimension dimension) {
+        return switch (dimension) {
+            case HOUR, DAY, WEEK, HOUR_OF_DAY, DAY_OF_WEEK -> true;
+            default -> false;
+        };
+    }
+
+    private static int[] ensureCapacity(int[] array, int index) {
+        if (index < array.length) {
+            return array;
+        }
+        int[] grown = Arrays.copyOf(array, Math.max(1024, Math.max(index + 1, array.length * 2)));
+        Arrays.fill(grown, array.length, grown.length, UNKNOWN);
+        return grown;
+    }
+
+    /**
+     * The query's filters as per-code masks; a null mask lets everything
+     * through.
+     */
+    private final class Filter {
+        final long from;
+        final long to;
+        final boolean[] movementTypes;
+        final boolean[] products;
+        final boolean[] locations;
+        final boolean[] users;
+        final int[] productCategories = LedgerColumnStore.this.productCategories;
+        final int[] locationWarehouses = LedgerColumnStore.this.locationWarehouses;
+
+        Filter(LedgerQuery query) {
+            this.from = query.from() != null ? query.from().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+            this.to = query.to() != null ? query.to().toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+            if (query.movementTypes() != null && !query.movementTypes().isEmpty()) {
+                movementTypes = new boolean[MOVEMENT_TYPES.length];
+                query.movementTypes().forEach(type -> movementTypes[type.ordinal()] = true);
+            } else {
+                movementTypes = null;
+            }
+            this.users = mask(LedgerColumnStore.this.users, query.userIds());
+
+            boolean[] byProduct = mask(LedgerColumnStore.this.products, query.productIds());
+            Set<Integer> categories = new HashSet<>();
+            if (query.categories() != null && !query.categories().isEmpty()) {
+                synchronized (LedgerColumnStore.this) {
+                    query.categories().forEach(name -> categories.add(categoryCodes.getOrDefault(name, UNKNOWN)));
+                }
+                byProduct = withAttribute(byProduct, LedgerColumnStore.this.products.size(), productCategories,
+                        categories);
+            }
+            this.products = byProduct;
+
+            boolean[] byLocation = mask(LedgerColumnStore.this.locations, query.locationIds());
+            if (query.warehouseIds() != null && !query.warehouseIds().isEmpty()) {
+                Set<Integer> warehouseCodes = new HashSet<>();
+                for (UUID id : query.warehouseIds()) {
+                    warehouseCodes.add(warehouses.codes.get(id));
+                }
+                byLocation = withAttribute(byLocation, LedgerColumnStore.this.locations.size(),
+                        locationWarehouses, warehouseCodes);
+            }
+            this.locations = byLocation;
+        }
+
+        boolean test(Segment segment, int offset) {
+            long at = segment.performedAt[offset];
+            return at >= from && at < to
+                    && (movementTypes == null || movementTypes[segment.movementType[offset]])
+                    && passes(products, segment.product[offset])
+                    && passes(locations, segment.location[offset])
+                    && passes(users, segment.user[offset]);
+        }
+
+        private static boolean passes(boolean[] mask, int code) {
+            return mask == null || (code >= 0 && code < mask.length && mask[code]);
+        }
+
+        private static boolean[] mask(Dictionary dictionary, Collection<UUID> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+            boolean[] mask = new boolean[dictionary.size()];
+            for (UUID id : ids) {
+                int code = dictionary.codes.get(id);
+                if (code != UuidIntMap.MISSING && code < mask.length) {
+                    mask[code] = true;
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * Narrow a mask (or everything, for null) to the codes whose attribute
+         * is one of the wanted values.
+         */
+        private static boolean[] withAttribute(boolean[] mask, int codes, int[] attributes, Set<Integer> wanted) {
+            boolean[] narrowed = new boolean[codes];
+            for (int code = 0; code < codes; code++) {
+                int attribute = code < attributes.length ? attributes[code] : UNKNOWN;
+                narrowed[code] = (mask == null || (code < mask.length && mask[code]))
+                        && attribute != UNKNOWN && wanted.contains(attribute);
+            }
+            return narrowed;
+        }
+
+        int value(Dimension dimension, Segment segment, int offset) {
+            return switch (dimension) {
+                case PRODUCT -> segment.product[offset];
+                case LOCATION -> segment.location[offset];
+                case USER -> segment.user[offset];
+                case MOVEMENT_TYPE -> segment.movementType[offset];
+                case CATEGORY -> attribute(productCategories, segment.product[offset]);
+                case WAREHOUSE -> attribute(locationWarehouses, segment.location[offset]);
+                case HOUR -> (int) Math.floorDiv(segment.performedAt[offset], SECONDS_PER_HOUR);
+                case DAY -> (int) Math.floorDiv(segment.performedAt[offset], SECONDS_PER_DAY);
+                // Epoch day 0 was a Thursday
+                case WEEK -> (int) Math.floorDiv(Math.floorDiv(segment.performedAt[offset], SECONDS_PER_DAY) + 3, 7);
+                case HOUR_OF_DAY -> (int) Math.floorMod(segment.performedAt[offset], SECONDS_PER_DAY)
+                        / SECONDS_PER_HOUR;
+                case DAY_OF_WEEK -> (int) Math.floorMod(
+                        Math.floorDiv(segment.performedAt[offset], SECONDS_PER_DAY) + 3, 7) + 1;
+            };
+        }
+
+        private static int attribute(int[] attributes, int code) {
+            return code >= 0 && code < attributes.length ? attributes[code] : UNKNOWN;
+        }
+    }
+
+    /**
+     * Group totals of a range of rows, keyed by the packed values of up to two
+     * dimensions.
+     */
+    private static final class Partial {
+        final LongIntMap slots = new LongIntMap(64);
+        long[] keys = new long[64];
+        long[] counts = new long[64];
+        long[] sums = new long[64];
+        int size;
+
+        void add(long key, long count, long sum) {
+            int slot = slots.getOrDefault(key, -1);
+            if (slot < 0) {
+                slot = size++;
+                if (slot == keys.length) {
+                    keys = Arrays.copyOf(keys, slot * 2);
+                    counts = Arrays.copyOf(counts, slot * 2);
+                    sums = Arrays.copyOf(sums, slot * 2);
+                }
+                slots.put(key, slot);
+                keys[slot] = key;
+            }
+            counts[slot] += count;
+            sums[slot] += sum;
+        }
+
+        Partial merge(Partial other) {
+            for (int slot = 0; slot < other.size; slot++) {
+                add(other.keys[slot], other.counts[slot], other.sums[slot]);
+            }
+            return this;
+        }
+    }
+
+    private static final class Scan extends RecursiveTask<Partial> {
+        private final Segment[] segments;
+        private final Filter filter;
+        private final Dimension first;
+        private final Dimension second;
+        private final int from;
+        private final int to;
+        private final int rowsPerTask;
+
+        Scan(Segment[] segments, Filter filter, Dimension first, Dimension second, int from, int to,
+                int rowsPerTask) {
+            this.segments = segments;
+            this.filter = filter;
+            this.first = first;
+            this.second = second;
+            this.from = from;
+            this.to = to;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > rowsPerTask) {
+                int middle = (from + to) >>> 1;
+                Scan left = new Scan(segments, filter, first, second, from, middle, rowsPerTask);
+                left.fork();
+                Partial right = new Scan(segments, filter, first, second, middle, to, rowsPerTask).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial();
+            for (int row = from; row < to; row++) {
+                Segment segment = segments[row >>> SEGMENT_BITS];
+                int offset = row & SEGMENT_MASK;
+                if (!filter.test(segment, offset)) {
+                    continue;
+                }
+                long high = first != null ? filter.value(first, segment, offset) : 0;
+                long low = second != null ? filter.value(second, segment, offset) : 0;
+                partial.add((high << 32) | (low & 0xFFFFFFFFL), 1, segment.quantity[offset]);
+            }
+            return partial;
+        }
+    }
+}
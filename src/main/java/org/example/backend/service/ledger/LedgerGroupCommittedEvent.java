@@ -0,0 +1,11 @@
+package org.example.backend.service.ledger;
+
+import java.util.Set;
+
+/**
+ * Published by the write-behind committer once a group is in stock_ledger and
+ * stock_balance. Caches filled from those tables drop the pairs here, as the
+ * earlier {@link StockMovementEvent} arrived before the tables were written.
+ */
+public record LedgerGroupCommittedEvent(Set<StockKey> keys) {
+}
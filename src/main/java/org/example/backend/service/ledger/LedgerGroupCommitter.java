@@ -0,0 +1,283 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer of the write-behind ledger mode.
+ *
+ * Committed batches are queued in commit order. The committer takes everything
+ * queued and writes it in one database transaction: the stock_ledger rows as a
+ * JDBC batch, the final balance of each touched pair into stock_balance, and
+ * the deletion of the batches' commit markers. A failed group is retried until
+ * it succeeds; the WAL and the markers cover a crash in the meantime.
+ *
+ * On startup, before the balance index is loaded, batches that have a commit
+ * marker but no stock_ledger rows yet are replayed from the WAL.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class LedgerGroupCommitter implements CommandLineRunner {
+
+    private static final String INSERT_LEDGER = """
+            INSERT INTO stock_ledger (id, version, product_id, location_id, transaction_id, transaction_line_id,
+                movement_type, quantity, running_balance, performed_by_id, performed_at, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String UPDATE_BALANCE = """
+            UPDATE stock_balance SET quantity = ?, last_movement_at = ?, updated_at = ?
+            WHERE product_id = ? AND location_id = ?
+            """;
+    private static final String INSERT_BALANCE = """
+            INSERT INTO stock_balance (id, product_id, location_id, quantity, last_movement_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerWriteAheadLog wal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxBatches;
+    private final long retryDelayMs;
+    private final DistributionSummary commitSizes;
+    private final BlockingQueue<WalBatch> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private Thread committer;
+    private volatile boolean running;
+
+    public LedgerGroupCommitter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            LedgerWriteAheadLog wal, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+            @Value("${stock.ledger.write-behind.enabled:false}") boolean enabled,
+            @Value("${stock.ledger.write-behind.max-commit-batches:200}") int maxBatches,
+            @Value("${stock.ledger.write-behind.retry-delay-ms:1000}") long retryDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.wal = wal;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxBatches = maxBatches;
+        this.retryDelayMs = retryDelayMs;
+        this.commitSizes = DistributionSummary.builder("stock.ledger.writebehind.commit.size")
+                .description("Ledger entries written by one group commit")
+                .register(meterRegistry);
+        Gauge.builder("stock.ledger.writebehind.pending", pending, AtomicLong::get)
+                .description("Committed ledger batches not yet written to stock_ledger")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays what a previous run left behind, then starts the committer. Runs
+     * even with the mode disabled so that switching it off never loses batches.
+     */
+    @Override
+    public void run(String... args) {
+        recover();
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        committer = new Thread(this::commitLoop, "ledger-group-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        committer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Queue a batch whose transaction has committed. Callers submit in commit
+     * order for a given pair, which is the order the balances are written in.
+     */
+    public void submit(WalBatch batch) {
+        pending.incrementAndGet();
+        queue.add(batch);
+    }
+
+    /**
+     * Wait until every submitted batch is in stock_ledger, e.g. before reading
+     * the whole projection back.
+     */
+    public void drain(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(
+                        "Timed out waiting for " + pending.get() + " write-behind ledger batches");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while draining the ledger committer", e);
+            }
+        }
+    }
+
+    private void recover() {
+        List<WalBatch> logged = wal.readAll();
+        Set<UUID> committed = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM ledger_wal_batch", UUID.class));
+        if (logged.isEmpty() && committed.isEmpty()) {
+            return;
+        }
+
+        // Batches without a marker either rolled back or are already in stock_ledger
+        List<WalBatch> replay = logged.stream()
+                .filter(batch -> committed.remove(batch.batchId()))
+                .toList();
+        for (int from = 0; from < replay.size(); from += maxBatches) {
+            write(replay.subList(from, Math.min(from + maxBatches, replay.size())));
+        }
+        if (!committed.isEmpty()) {
+            log.error("{} committed ledger batches have no WAL record and cannot be replayed: {}",
+                    committed.size(), committed);
+            jdbcTemplate.batchUpdate("DELETE FROM ledger_wal_batch WHERE id = ?",
+                    committed.stream().map(id -> new Object[] { id }).toList());
+        }
+        wal.discard();
+        log.info("Ledger WAL recovery: {} records read, {} batches replayed", logged.size(), replay.size());
+    }
+
+    private void commitLoop() {
+        List<WalBatch> group = new ArrayList<>(maxBatches);
+        while (running || !queue.isEmpty()) {
+            try {
+                WalBatch first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatches - 1);
+                commitWithRetry(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commitWithRetry(List<WalBatch> group) throws InterruptedException {
+        while (true) {
+            try {
+                write(group);
+                wal.resolved(group.size());
+                pending.addAndGet(-group.size());
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // Left to the startup replay
+                    log.error("Group commit of {} ledger batches failed during shutdown", group.size(), e);
+                    return;
+                }
+                log.error("Group commit of {} ledger batches failed, retrying in {} ms",
+                        group.size(), retryDelayMs, e);
+                Thread.sleep(retryDelayMs);
+            }
+        }
+    }
+
+    private void write(List<WalBatch> group) {
+        List<ArchivedLedgerEntry> entries = new ArrayList<>();
+        group.forEach(batch -> entries.addAll(batch.entries()));
+
+        // Entries are in commit order, so the last one of each pair holds its balance
+        Map<StockKey, ArchivedLedgerEntry> latest = new LinkedHashMap<>();
+        entries.forEach(entry -> latest.put(new StockKey(entry.productId(), entry.locationId()), entry));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_LEDGER, entries, 500, (ps, entry) -> {
+                ps.setObject(1, entry.id());
+                ps.setLong(2, entry.version() != null ? entry.version() : 0L);
+                ps.setObject(3, entry.productId());
+                ps.setObject(4, entry.locationId());
+                ps.setObject(5, entry.transactionId());
+                ps.setObject(6, entry.transactionLineId());
+                ps.setString(7, entry.movementType().name());
+                ps.setInt(8, entry.quantity());
+                ps.setInt(9, entry.runningBalance());
+                ps.setObject(10, entry.performedById());
+                ps.setTimestamp(11, Timestamp.valueOf(entry.performedAt()));
+                ps.setTimestamp(12, Timestamp.valueOf(entry.createdAt()));
+            });
+            writeBalances(latest);
+            jdbcTemplate.batchUpdate("DELETE FROM ledger_wal_batch WHERE id = ?",
+                    group.stream().map(batch -> new Object[] { batch.batchId() }).toList());
+        });
+        commitSizes.record(entries.size());
+        eventPublisher.publishEvent(new LedgerGroupCommittedEvent(Set.copyOf(latest.keySet())));
+        log.debug("Group commit: {} batches, {} ledger entries, {} balances",
+                group.size(), entries.size(), latest.size());
+    }
+
+    /**
+     * Only the committer writes stock_balance in this mode, so an update that
+     * finds no row can insert it without racing anyone.
+     */
+    private void writeBalances(Map<StockKey, ArchivedLedgerEntry> latest) {
+        List<ArchivedLedgerEntry> balances = new ArrayList<>(latest.values());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] updated = jdbcTemplate.batchUpdate(UPDATE_BALANCE, balances, 500, (ps, entry) -> {
+            ps.setInt(1, entry.runningBalance());
+            ps.setTimestamp(2, Timestamp.valueOf(entry.performedAt()));
+            ps.setTimestamp(3, now);
+            ps.setObject(4, entry.productId());
+            ps.setObject(5, entry.locationId());
+        });
+
+        List<ArchivedLedgerEntry> missing = new ArrayList<>();
+        int index = 0;
+        for (int[] chunk : updated) {
+            for (int rows : chunk) {
+                if (rows == 0) {
+                    missing.add(balances.get(index));
+                }
+                index++;
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BALANCE, missing, 500, (ps, entry) -> {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setObject(2, entry.productId());
+                ps.setObject(3, entry.locationId());
+                ps.setInt(4, entry.runningBalance());
+                ps.setTimestamp(5, Timestamp.valueOf(entry.performedAt()));
+                ps.setTimestamp(6, now);
+            });
+        }
+    }
+}
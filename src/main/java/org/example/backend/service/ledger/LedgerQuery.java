@@ -0,0 +1,51 @@
+package org.example.backend.service.ledger;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Filter, group-by and aggregate over the ledger entries held by the
+ * {@link LedgerColumnStore}. Null or empty filters match everything; the time
+ * range is half-open, [from, to).
+ *
+ * @param groupBy at most two dimensions; none for a single total
+ * @param limit   groups to return, largest quantity first (in time order when
+ *                grouped by a time dimension); 0 for all
+ */
+public record LedgerQuery(
+        LocalDateTime from,
+        LocalDateTime to,
+        Set<MovementType> movementTypes,
+        Set<UUID> productIds,
+        Set<UUID> locationIds,
+        Set<UUID> userIds,
+        Set<String> categories,
+        Set<UUID> warehouseIds,
+        List<Dimension> groupBy,
+        int limit) {
+
+    public static final int MAX_GROUP_BY = 2;
+
+    public enum Dimension {
+        PRODUCT,
+        LOCATION,
+        USER,
+        MOVEMENT_TYPE,
+        CATEGORY,
+        WAREHOUSE,
+        /** Start of the hour. */
+        HOUR,
+        /** Start of the day. */
+        DAY,
+        /** Monday of the week. */
+        WEEK,
+        /** 0 to 23, over all days. */
+        HOUR_OF_DAY,
+        /** 1 (Monday) to 7, over all weeks. */
+        DAY_OF_WEEK
+    }
+}
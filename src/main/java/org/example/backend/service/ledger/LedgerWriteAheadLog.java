@@ -0,0 +1,261 @@
+package org.example.backend.service.ledger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only local log of write-behind ledger batches, one JSON line each.
+ *
+ * Appenders queue their record and block until it is on disk. A single writer
+ * thread takes whatever is queued, writes it and issues one fsync for the whole
+ * group, so concurrent transactions share the cost of a flush. Once every
+ * record in the file is resolved (written to stock_ledger, or belonging to a
+ * transaction that rolled back) the file is truncated.
+ */
+@Component
+@Slf4j
+public class LedgerWriteAheadLog {
+
+    private static final String FILE_NAME = "ledger.wal";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path file;
+    private final int maxGroupSize;
+    private final Timer fsyncTimer;
+    private final DistributionSummary groupSizes;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong resolved = new AtomicLong();
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+
+    private record Append(byte[] record, CompletableFuture<Void> done) {
+    }
+
+    public LedgerWriteAheadLog(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${stock.ledger.write-behind.enabled:false}") boolean enabled,
+            @Value("${stock.ledger.write-behind.wal-directory:./data/ledger-wal}") String directory,
+            @Value("${stock.ledger.write-behind.max-group-size:256}") int maxGroupSize) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.file = Paths.get(directory).resolve(FILE_NAME);
+        this.maxGroupSize = maxGroupSize;
+        this.fsyncTimer = Timer.builder("stock.ledger.wal.fsync")
+                .description("Time to write and fsync one group of WAL records")
+                .register(meterRegistry);
+        this.groupSizes = DistributionSummary.builder("stock.ledger.wal.group.size")
+                .description("WAL records made durable by one fsync")
+                .register(meterRegistry);
+        Gauge.builder("stock.ledger.wal.unresolved", this, LedgerWriteAheadLog::getUnresolved)
+                .description("WAL records not yet written to stock_ledger")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        running = true;
+        writer = new Thread(this::writeLoop, "ledger-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Ledger WAL opened at {}", file.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        channel.close();
+    }
+
+    /**
+     * Append a batch and wait until it is durable.
+     */
+    public void append(WalBatch batch) {
+        if (!running) {
+            throw new IllegalStateException("Ledger WAL is not open");
+        }
+        byte[] record;
+        try {
+            record = (objectMapper.writeValueAsString(batch) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize ledger batch " + batch.batchId(), e);
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Append(record, done));
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger WAL", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ledger WAL write failed", e.getCause());
+        }
+    }
+
+    /**
+     * Records that {@code count} appended batches no longer need the log.
+     */
+    public void resolved(int count) {
+        resolved.addAndGet(count);
+    }
+
+    public long getUnresolved() {
+        return appended.get() - resolved.get();
+    }
+
+    /**
+     * Every batch in the file, in append order. A record torn by a crash can
+     * only be the last one and was never acknowledged, so it is skipped.
+     */
+    public List<WalBatch> readAll() {
+        List<WalBatch> batches = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return batches;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batches.add(objectMapper.readValue(line, WalBatch.class));
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping unreadable ledger WAL record ({} bytes)", line.length());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ledger WAL " + file, e);
+        }
+        return batches;
+    }
+
+    /**
+     * Drop the content of the log once startup recovery has applied it.
+     */
+    public synchronized void discard() {
+        try {
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(true);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate ledger WAL " + file, e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    truncateIfResolved();
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Ledger WAL writer error", e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private synchronized void writeGroup(List<Append> group) {
+        long start = System.nanoTime();
+        long position = -1;
+        try {
+            position = channel.size();
+            ByteBuffer[] buffers = new ByteBuffer[group.size()];
+            for (int i = 0; i < group.size(); i++) {
+                buffers[i] = ByteBuffer.wrap(group.get(i).record());
+            }
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("Ledger WAL write of {} records failed", group.size(), e);
+            rollBackTo(position);
+            group.forEach(append -> append.done().completeExceptionally(e));
+            return;
+        }
+        appended.addAndGet(group.size());
+        fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        groupSizes.record(group.size());
+        group.forEach(append -> append.done().complete(null));
+    }
+
+    /**
+     * Cut a partially written group so that later records stay on their own line.
+     */
+    private void rollBackTo(long position) {
+        if (position < 0) {
+            return;
+        }
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            log.error("Cannot truncate ledger WAL back to {}", position, e);
+        }
+    }
+
+    private synchronized void truncateIfResolved() {
+        try {
+            if (appended.get() == resolved.get() && channel.size() > 0) {
+                channel.truncate(0);
+                log.debug("Ledger WAL truncated: all {} records resolved", appended.get());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot truncate ledger WAL: {}", e.getMessage());
+        }
+    }
+}
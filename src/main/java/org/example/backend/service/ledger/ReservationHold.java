@@ -0,0 +1,39 @@
+package org.example.backend.service.ledger;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * In-memory reservation taken before a task is saved. It counts against
+ * available stock immediately; it is either confirmed (persisted with the
+ * task) or released if saving the task fails.
+ */
+public final class ReservationHold {
+
+    private final Map<StockKey, Long> quantities;
+    private final Consumer<Map<StockKey, Long>> releaser;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    public ReservationHold(Map<StockKey, Long> quantities, Consumer<Map<StockKey, Long>> releaser) {
+        this.quantities = Map.copyOf(quantities);
+        this.releaser = releaser;
+    }
+
+    public Map<StockKey, Long> getQuantities() {
+        return quantities;
+    }
+
+    public boolean isEmpty() {
+        return quantities.isEmpty();
+    }
+
+    /**
+     * Give the held quantities back. Safe to call more than once.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            releaser.accept(quantities);
+        }
+    }
+}
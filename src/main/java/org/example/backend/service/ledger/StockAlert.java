@@ -0,0 +1,44 @@
+package org.example.backend.service.ledger;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A product whose on-hand quantity is below one of its thresholds. Entered when
+ * the quantity first drops below a threshold; exited when it is back above all
+ * of them.
+ */
+public record StockAlert(
+        UUID productId,
+        String sku,
+        String name,
+        Level level,
+        long currentStock,
+        Integer minStock,
+        Integer stockSecurite,
+        LocalDateTime enteredAt,
+        LocalDateTime exitedAt) {
+
+    public enum Level {
+        /** Below {@code Product.minStock}. */
+        LOW_STOCK,
+        /** Below the safety stock of the reorder policy. */
+        BELOW_SAFETY_STOCK
+    }
+
+    /**
+     * Quantity missing to get back to the highest threshold that applies.
+     */
+    public long deficit() {
+        int threshold = Math.max(minStock != null ? minStock : 0, stockSecurite != null ? stockSecurite : 0);
+        return Math.max(0, threshold - currentStock);
+    }
+
+    StockAlert update(Level newLevel, long stock, Integer newMinStock, Integer newStockSecurite) {
+        return new StockAlert(productId, sku, name, newLevel, stock, newMinStock, newStockSecurite, enteredAt, null);
+    }
+
+    StockAlert exit(long stock, LocalDateTime at) {
+        return new StockAlert(productId, sku, name, level, stock, minStock, stockSecurite, enteredAt, at);
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.service.ledger.StockAlert.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current set of low-stock alerts, maintained incrementally.
+ *
+ * Product totals come from the {@link BalanceIndex}, which updates them from
+ * every committed ledger entry. After each movement the product is compared
+ * with its thresholds ({@code Product.minStock} and the reorder policy's
+ * {@code stockSecurite}) and enters or leaves the alert set. Thresholds are
+ * reloaded periodically, so edits to products and policies show up within one
+ * refresh interval. Reading the alerts costs O(alerts) and never touches the
+ * database, except until the engine is ready: then the same alerts are
+ * computed from stock_balance, without an entry time.
+ */
+@Component
+@Slf4j
+public class StockAlertEngine {
+
+    private static final String THRESHOLDS_SQL = """
+            SELECT p.id, p.sku, p.name, p.min_stock, r.stock_securite
+            FROM products p
+            LEFT JOIN politique_reapprovisionnement r ON r.id_produit = p.id
+            WHERE p.active = true AND (p.min_stock IS NOT NULL OR r.stock_securite IS NOT NULL)
+            """;
+    private static final String TOTALS_SQL = """
+            SELECT p.id, p.sku, p.name, p.min_stock, r.stock_securite, COALESCE(SUM(b.quantity), 0) AS stock
+            FROM products p
+            LEFT JOIN politique_reapprovisionnement r ON r.id_produit = p.id
+            LEFT JOIN stock_balance b ON b.product_id = p.id
+            WHERE p.active = true AND (p.min_stock IS NOT NULL OR r.stock_securite IS NOT NULL)
+            GROUP BY p.id, p.sku, p.name, p.min_stock, r.stock_securite
+            """;
+
+    private final BalanceIndex balanceIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final int historySize;
+    private final Map<UUID, StockAlert> active = new ConcurrentHashMap<>();
+    private final Deque<StockAlert> exited = new ArrayDeque<>();
+    private volatile Map<UUID, Threshold> thresholds = Map.of();
+    private volatile boolean ready;
+
+    private record Threshold(String sku, String name, Integer minStock, Integer stockSecurite) {
+
+        Level levelFor(long stock) {
+            if (stockSecurite != null && stock < stockSecurite) {
+                return Level.BELOW_SAFETY_STOCK;
+            }
+            if (minStock != null && stock < minStock) {
+                return Level.LOW_STOCK;
+            }
+            return null;
+        }
+    }
+
+    public StockAlertEngine(BalanceIndex balanceIndex, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${stock.alerts.history-size:500}") int historySize) {
+        this.balanceIndex = balanceIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.historySize = historySize;
+        Gauge.builder("stock.alerts.active", active, Map::size)
+                .description("Products currently below a stock threshold")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Active alerts, most recent first. Until the engine is ready they are
+     * read from the database, by SKU and with a null entry time.
+     */
+    public List<StockAlert> getActiveAlerts() {
+        if (!ready) {
+            return readAlerts();
+        }
+        List<StockAlert> alerts = new ArrayList<>(active.values());
+        alerts.sort(Comparator.comparing(StockAlert::enteredAt).reversed());
+        return alerts;
+    }
+
+    /**
+     * Alerts that were exited recently, most recent first.
+     */
+    public synchronized List<StockAlert> getExitedAlerts() {
+        return new ArrayList<>(exited);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${stock.alerts.refresh-ms:60000}",
+            initialDelayString = "${stock.alerts.refresh-ms:60000}")
+    public void refresh() {
+        if (!balanceIndex.isReady()) {
+            return;
+        }
+        Map<UUID, Threshold> loaded = new HashMap<>();
+        jdbcTemplate.query(THRESHOLDS_SQL, rs -> {
+            loaded.put(rs.getObject("id", UUID.class), new Threshold(
+                    rs.getString("sku"),
+                    rs.getString("name"),
+                    rs.getObject("min_stock", Integer.class),
+                    rs.getObject("stock_securite", Integer.class)));
+        });
+        thresholds = loaded;
+
+        // Products that lost their thresholds have to leave the set as well
+        Set<UUID> products = new HashSet<>(loaded.keySet());
+        products.addAll(active.keySet());
+        products.forEach(this::evaluate);
+        ready = true;
+        log.debug("Stock alerts refreshed: {} products with thresholds, {} active alerts",
+                loaded.size(), active.size());
+    }
+
+    @TransactionalEventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onStockMovement(StockMovementEvent event) {
+        if (ready) {
+            evaluate(event.productId());
+        }
+    }
+
+    @TransactionalEventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBalancesRebuilt(StockBalancesRebuiltEvent event) {
+        refresh();
+    }
+
+    private void evaluate(UUID productId) {
+        Threshold threshold = thresholds.get(productId);
+        // Serialized per product; the total is read inside so the last evaluation sees the last movement
+        active.compute(productId, (id, current) -> {
+            long stock = balanceIndex.getProductTotal(id);
+            Level level = threshold != null ? threshold.levelFor(stock) : null;
+            if (level == null) {
+                if (current != null) {
+                    log.info("Stock alert cleared: product={}, stock={}", current.sku(), stock);
+                    recordExit(current.exit(stock, LocalDateTime.now()));
+                }
+                return null;
+            }
+            if (current == null) {
+                log.info("Stock alert raised: product={}, level={}, stock={}", threshold.sku(), level, stock);
+                return new StockAlert(id, threshold.sku(), threshold.name(), level, stock,
+                        threshold.minStock(), threshold.stockSecurite(), LocalDateTime.now(), null);
+            }
+            return current.update(level, stock, threshold.minStock(), threshold.stockSecurite());
+        });
+    }
+
+    private List<StockAlert> readAlerts() {
+        List<StockAlert> alerts = new ArrayList<>();
+        jdbcTemplate.query(TOTALS_SQL, rs -> {
+            Threshold threshold = new Threshold(
+                    rs.getString("sku"),
+                    rs.getString("name"),
+                    rs.getObject("min_stock", Integer.class),
+                    rs.getObject("stock_securite", Integer.class));
+            long stock = rs.getLong("stock");
+            Level level = threshold.levelFor(stock);
+            if (level != null) {
+                alerts.add(new StockAlert(rs.getObject("id", UUID.class), threshold.sku(), threshold.name(), level,
+                        stock, threshold.minStock(), threshold.stockSecurite(), null, null));
+            }
+        });
+        alerts.sort(Comparator.comparing(StockAlert::sku));
+        return alerts;
+    }
+
+    private synchronized void recordExit(StockAlert alert) {
+        exited.addFirst(alert);
+        while (exited.size() > historySize) {
+            exited.removeLast();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.backend.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Row-level housekeeping of stock_balance that must hold across instances,
+ * where the in-JVM stripe locks do not reach.
+ */
+@Component
+@Slf4j
+public class StockBalanceRows {
+
+    private static final String INSERT_EMPTY = """
+            INSERT INTO stock_balance (id, product_id, location_id, quantity, updated_at)
+            VALUES (?, ?, ?, 0, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate savepoint;
+    private volatile Boolean postgres;
+
+    public StockBalanceRows(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    /**
+     * Create the empty balance row of a pair unless it exists. Two writers
+     * creating the same pair both get here; the second insert waits for the
+     * first to commit and then hits the unique constraint, which is rolled back
+     * to a savepoint so that the surrounding transaction stays usable (on
+     * PostgreSQL a failed statement would abort it). Either way the row exists
+     * afterwards and can be locked.
+     */
+    public void insertIfAbsent(UUID productId, UUID locationId) {
+        try {
+            savepoint.executeWithoutResult(status -> jdbcTemplate.update(INSERT_EMPTY,
+                    UUID.randomUUID(), productId, locationId, Timestamp.valueOf(LocalDateTime.now())));
+        } catch (DuplicateKeyException e) {
+            log.debug("Balance row of product={}, location={} created concurrently", productId, locationId);
+        }
+    }
+
+    /**
+     * Block every ledger writer until the current transaction ends: on
+     * PostgreSQL a table lock that conflicts with SELECT ... FOR UPDATE and with
+     * inserts, elsewhere (InnoDB, REPEATABLE READ) a locking scan of the whole
+     * table, whose next-key locks also keep new pairs out. Plain reads go on.
+     */
+    public void lockTable() {
+        if (isPostgres()) {
+            jdbcTemplate.execute("LOCK TABLE stock_balance IN EXCLUSIVE MODE");
+        } else {
+            jdbcTemplate.queryForList("SELECT id FROM stock_balance FOR UPDATE");
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres"));
+        }
+        return postgres;
+    }
+}
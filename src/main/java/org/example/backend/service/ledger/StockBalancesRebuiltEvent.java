@@ -0,0 +1,7 @@
+package org.example.backend.service.ledger;
+
+/**
+ * Published when the stock_balance projection has been rebuilt as a whole.
+ */
+public record StockBalancesRebuiltEvent(int pairs) {
+}
@@ -0,0 +1,21 @@
+package org.example.backend.service.ledger;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Identity of a stock balance: a product at a location. Ordered by product
+ * then location so that every component acquiring several balances does so
+ * in the same order.
+ */
+public record StockKey(UUID productId, UUID locationId) implements Comparable<StockKey> {
+
+    private static final Comparator<StockKey> ORDER = Comparator
+            .comparing(StockKey::productId)
+            .thenComparing(StockKey::locationId);
+
+    @Override
+    public int compareTo(StockKey other) {
+        return ORDER.compare(this, other);
+    }
+}
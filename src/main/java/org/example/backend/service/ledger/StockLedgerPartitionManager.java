@@ -0,0 +1,217 @@
+package org.example.backend.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitioning of stock_ledger on performed_at (PostgreSQL only).
+ *
+ * On first start with partitioning enabled the existing table is converted in
+ * place: rows are copied into a table partitioned by month and the primary key
+ * becomes (id, performed_at), as required for partitioned tables. Partitions
+ * for the current month and the next few months are created ahead of time; a
+ * default partition catches anything outside the pre-created range so inserts
+ * never fail. Queries filtered on performed_at only touch the matching months.
+ */
+@Component
+@Slf4j
+public class StockLedgerPartitionManager {
+
+    static final String TABLE = "stock_ledger";
+    private static final String UNPARTITIONED_TABLE = "stock_ledger_unpartitioned";
+    private static final String DEFAULT_PARTITION = "stock_ledger_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile("stock_ledger_p(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int premakeMonths;
+
+    public StockLedgerPartitionManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${stock.ledger.partitioning.enabled:false}") boolean enabled,
+            @Value("${stock.ledger.partitioning.premake-months:3}") int premakeMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.premakeMonths = premakeMonths;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!isPartitioned()) {
+                    convertToPartitioned();
+                }
+            });
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Stock ledger partitioning setup failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${stock.ledger.partitioning.maintenance-cron:0 30 2 * * *}")
+    public void scheduledMaintenance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Stock ledger partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create the partitions of the current month and the next premake-months
+     * months if they do not exist yet.
+     */
+    public void ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            createPartition(current.plusMonths(i));
+        }
+    }
+
+    /**
+     * Monthly partitions currently attached to stock_ledger, oldest first. The
+     * default partition is not included.
+     */
+    public List<Partition> listPartitions() {
+        if (!enabled) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = ?",
+                String.class, TABLE).stream()
+                .map(Partition::parse)
+                .flatMap(Optional::stream)
+                .sorted(Comparator.comparing(Partition::month))
+                .toList();
+    }
+
+    public long countRows(Partition partition) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition.name(), Long.class);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * Detach a partition and drop its table. Must run inside a transaction so
+     * both steps commit together.
+     */
+    public void detachAndDrop(Partition partition) {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.name());
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+        log.info("Dropped stock ledger partition {}", partition.name());
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, TABLE);
+        if (kinds.isEmpty()) {
+            throw new IllegalStateException("Table " + TABLE + " does not exist");
+        }
+        return "p".equals(kinds.get(0));
+    }
+
+    private void convertToPartitioned() {
+        log.info("Converting {} to a monthly partitioned table...", TABLE);
+        long start = System.currentTimeMillis();
+
+        // Index and FK names are schema-wide, so they are captured now and recreated once the old table is gone
+        List<String> indexDefinitions = jdbcTemplate.queryForList(
+                "SELECT pg_get_indexdef(indexrelid) FROM pg_index " +
+                        "WHERE indrelid = to_regclass(?) AND NOT indisprimary",
+                String.class, TABLE);
+        List<String[]> foreignKeys = jdbcTemplate.query(
+                "SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint " +
+                        "WHERE conrelid = to_regclass(?) AND contype = 'f'",
+                (rs, i) -> new String[] { rs.getString(1), rs.getString(2) }, TABLE);
+        LocalDateTime earliest = jdbcTemplate.queryForObject(
+                "SELECT MIN(performed_at) FROM " + TABLE, LocalDateTime.class);
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + UNPARTITIONED_TABLE +
+                " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (performed_at)");
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+
+        YearMonth month = earliest != null ? YearMonth.from(earliest) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(premakeMonths);
+        while (!month.isAfter(last)) {
+            createPartition(month);
+            month = month.plusMonths(1);
+        }
+
+        int rows = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("DROP TABLE " + UNPARTITIONED_TABLE);
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, performed_at)");
+        for (String[] foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + foreignKey[0] + " " + foreignKey[1]);
+        }
+        for (String indexDefinition : indexDefinitions) {
+            jdbcTemplate.execute(indexDefinition);
+        }
+
+        log.info("Converted {} to partitioned table: {} rows copied in {} ms",
+                TABLE, rows, System.currentTimeMillis() - start);
+    }
+
+    private void createPartition(YearMonth month) {
+        Partition partition = Partition.of(month);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition.name() + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + partition.from() + "') TO ('" + partition.to() + "')");
+    }
+
+    /**
+     * One monthly partition, covering performed_at in [from, to).
+     */
+    public record Partition(String name, YearMonth month) {
+
+        static Partition of(YearMonth month) {
+            return new Partition(String.format("%s_p%04d_%02d", TABLE, month.getYear(), month.getMonthValue()),
+                    month);
+        }
+
+        static Optional<Partition> parse(String name) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                return Optional.empty();
+            }
+            return Optional.of(of(YearMonth.of(Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)))));
+        }
+
+        public LocalDateTime from() {
+            return month.atDay(1).atStartOfDay();
+        }
+
+        public LocalDateTime to() {
+            return month.plusMonths(1).atDay(1).atStartOfDay();
+        }
+    }
+}
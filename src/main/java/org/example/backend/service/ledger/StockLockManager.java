@@ -0,0 +1,190 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.exception.StockLockTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-JVM striped lock manager for ledger writes.
+ *
+ * Each (product, location) pair maps to one of a fixed number of lock stripes.
+ * Writers take the stripes before touching the stock_balance rows, so
+ * contention between concurrent writers of the same balance is resolved in
+ * memory instead of in database lock queues. Locks are held until the
+ * surrounding transaction completes and, when several pairs are needed, are
+ * always acquired in ascending stripe order, which rules out cross-direction
+ * deadlocks between two-location moves.
+ *
+ * The order only holds within one call: an operation touching several pairs
+ * must collect all of them and call {@link #lockAll} once, and must not call
+ * {@link #lock} or {@link #lockAll} again while it already holds stripes. A
+ * later call that would need a stripe below one already held does not wait
+ * for it (that is how two such transactions would deadlock) but fails at once.
+ */
+@Component
+@Slf4j
+public class StockLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMillis;
+
+    private final Timer waitTimer;
+    private final Counter contentionCounter;
+    private final Counter timeoutCounter;
+    private final AtomicInteger heldStripes = new AtomicInteger();
+
+    public StockLockManager(MeterRegistry meterRegistry,
+            @Value("${stock.lock.stripes:1024}") int stripeCount,
+            @Value("${stock.lock.timeout-ms:10000}") long timeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMillis = timeoutMillis;
+
+        this.waitTimer = Timer.builder("stock.lock.wait")
+                .description("Time spent waiting for contended stock lock stripes")
+                .register(meterRegistry);
+        this.contentionCounter = Counter.builder("stock.lock.contention")
+                .description("Stock lock acquisitions that had to wait")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("stock.lock.timeouts")
+                .description("Stock lock acquisitions that timed out")
+                .register(meterRegistry);
+        Gauge.builder("stock.lock.held", heldStripes, AtomicInteger::get)
+                .description("Stock lock stripes currently held")
+                .register(meterRegistry);
+
+        log.info("Stock lock manager initialized with {} stripes", size);
+    }
+
+    /**
+     * Lock a single (product, location) pair until the current transaction
+     * completes. Not to be called while the transaction already holds a stripe;
+     * use {@link #lockAll} with every pair of the operation instead.
+     */
+    public void lock(StockKey key) {
+        acquire(new int[] { stripeOf(key) });
+    }
+
+    /**
+     * Lock several (product, location) pairs until the current transaction
+     * completes. Stripes are acquired in ascending order regardless of the order
+     * of the given keys.
+     */
+    public void lockAll(Collection<StockKey> keys) {
+        acquire(keys.stream().mapToInt(this::stripeOf).toArray());
+    }
+
+    /**
+     * Lock every stripe until the current transaction completes, once the
+     * transactions holding any of them have completed: no ledger writer of
+     * this instance runs alongside the caller. Must be the first stock lock of
+     * the transaction.
+     */
+    public void lockEverything() {
+        acquire(IntStream.rangeClosed(0, mask).toArray());
+    }
+
+    private void acquire(int[] stripeIndexes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock locks can only be taken inside a transaction");
+        }
+        HeldStripes held = currentHeldStripes();
+
+        int[] ordered = Arrays.stream(stripeIndexes).distinct().sorted().toArray();
+        for (int index : ordered) {
+            ReentrantLock lock = stripes[index];
+            if (lock.isHeldByCurrentThread()) {
+                continue;
+            }
+            if (!lock.tryLock()) {
+                contentionCounter.increment();
+                if (index < held.highest) {
+                    // Waiting here would take the stripes out of order
+                    throw new StockLockTimeoutException("Stock lock stripe " + index
+                            + " is busy and cannot be awaited after stripe " + held.highest
+                            + "; lock every pair of the operation in one call");
+                }
+                long start = System.nanoTime();
+                boolean acquired;
+                try {
+                    acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StockLockTimeoutException("Interrupted while waiting for stock lock", e);
+                } finally {
+                    waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                if (!acquired) {
+                    timeoutCounter.increment();
+                    throw new StockLockTimeoutException(
+                            "Timed out after " + timeoutMillis + " ms waiting for stock lock");
+                }
+            }
+            held.push(lock, index);
+            heldStripes.incrementAndGet();
+        }
+    }
+
+    private HeldStripes currentHeldStripes() {
+        HeldStripes held = (HeldStripes) TransactionSynchronizationManager.getResource(this);
+        if (held == null) {
+            held = new HeldStripes();
+            TransactionSynchronizationManager.bindResource(this, held);
+            TransactionSynchronizationManager.registerSynchronization(new ReleaseOnCompletion(held));
+        }
+        return held;
+    }
+
+    private int stripeOf(StockKey key) {
+        int h = key.productId().hashCode() * 31 + key.locationId().hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class HeldStripes {
+        private final Deque<ReentrantLock> locks = new ArrayDeque<>();
+        private int highest = -1;
+
+        void push(ReentrantLock lock, int index) {
+            locks.push(lock);
+            highest = Math.max(highest, index);
+        }
+    }
+
+    private final class ReleaseOnCompletion implements TransactionSynchronization {
+        private final HeldStripes held;
+
+        ReleaseOnCompletion(HeldStripes held) {
+            this.held = held;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StockLockManager.this);
+            while (!held.locks.isEmpty()) {
+                held.locks.pop().unlock();
+                heldStripes.decrementAndGet();
+            }
+        }
+    }
+}
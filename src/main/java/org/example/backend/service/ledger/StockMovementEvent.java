@@ -0,0 +1,23 @@
+package org.example.backend.service.ledger;
+
+import org.example.backend.enums.MovementType;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published by the ledger write path for every ledger entry. Listeners that
+ * mirror balances must use {@code @TransactionalEventListener} (after commit):
+ * the stock lock of the pair is still held at that point, so events of one pair
+ * are delivered in order and {@code balance} is its committed value.
+ */
+public record StockMovementEvent(
+        UUID ledgerId,
+        UUID productId,
+        UUID locationId,
+        MovementType movementType,
+        int quantity,
+        int balance,
+        UUID performedById,
+        LocalDateTime performedAt) {
+}
@@ -0,0 +1,11 @@
+package org.example.backend.service.ledger;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The ledger entries written by one transaction in write-behind mode; one
+ * line of the write-ahead log.
+ */
+public record WalBatch(UUID batchId, List<ArchivedLedgerEntry> entries) {
+}
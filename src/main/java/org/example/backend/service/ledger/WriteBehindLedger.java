@@ -0,0 +1,181 @@
+package org.example.backend.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.backend.entity.StockLedger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transaction side of the write-behind ledger mode.
+ *
+ * Ledger entries of a transaction are collected in memory instead of being
+ * inserted. Just before the transaction commits they are appended to the WAL
+ * and fsynced (grouped with other committing transactions); a commit marker
+ * row inserted in the same transaction records whether the batch counts. After
+ * commit the batch is handed to the {@link LedgerGroupCommitter}.
+ *
+ * The balance index is the source of truth for balances in this mode: the
+ * caller holds the stock locks of the pairs it writes, reads the committed
+ * balance from the index plus its own uncommitted entries, and the index is
+ * updated on commit before those locks are released. The mode only becomes
+ * active once the index is loaded; before that writes go to the database.
+ */
+@Component
+@Slf4j
+public class WriteBehindLedger {
+
+    private final BalanceIndex balanceIndex;
+    private final LedgerWriteAheadLog wal;
+    private final LedgerGroupCommitter committer;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Object modeKey = new Object();
+
+    public WriteBehindLedger(BalanceIndex balanceIndex, LedgerWriteAheadLog wal, LedgerGroupCommitter committer,
+            JdbcTemplate jdbcTemplate, @Value("${stock.ledger.write-behind.enabled:false}") boolean enabled) {
+        this.balanceIndex = balanceIndex;
+        this.wal = wal;
+        this.committer = committer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether ledger writes of the current transaction go through the WAL. The
+     * answer is fixed at the first call in a transaction so that a transaction
+     * running while the index finishes loading never mixes both modes.
+     */
+    public boolean isActive() {
+        if (!enabled) {
+            return false;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return balanceIndex.isReady();
+        }
+        Boolean active = (Boolean) TransactionSynchronizationManager.getResource(modeKey);
+        if (active == null) {
+            active = balanceIndex.isReady();
+            TransactionSynchronizationManager.bindResource(modeKey, active);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(modeKey);
+                }
+            });
+        }
+        return active;
+    }
+
+    /**
+     * Current balance of a pair as seen by this transaction. Caller holds the
+     * stock lock of the pair.
+     */
+    public int balance(StockKey key) {
+        Integer pending = currentBatch().balances.get(key);
+        return pending != null ? pending : balanceIndex.get(key.productId(), key.locationId());
+    }
+
+    /**
+     * Add a built (not persisted) entry to this transaction's batch. The entry
+     * gets its id here and is returned as the caller would get it from save().
+     */
+    public StockLedger append(StockLedger entry) {
+        PendingBatch batch = currentBatch();
+        LocalDateTime now = LocalDateTime.now();
+        entry.setId(UUID.randomUUID());
+        entry.setVersion(0L);
+        if (entry.getPerformedAt() == null) {
+            entry.setPerformedAt(now);
+        }
+        entry.setCreatedAt(now);
+
+        batch.entries.add(new ArchivedLedgerEntry(
+                entry.getId(),
+                entry.getProduct().getId(),
+                entry.getLocation().getId(),
+                entry.getTransaction().getId(),
+                entry.getTransactionLine() != null ? entry.getTransactionLine().getId() : null,
+                entry.getMovementType(),
+                entry.getQuantity(),
+                entry.getRunningBalance(),
+                entry.getPerformedBy().getId(),
+                entry.getPerformedAt(),
+                entry.getCreatedAt(),
+                entry.getVersion()));
+        batch.balances.put(new StockKey(entry.getProduct().getId(), entry.getLocation().getId()),
+                entry.getRunningBalance());
+        return entry;
+    }
+
+    private PendingBatch currentBatch() {
+        PendingBatch batch = (PendingBatch) TransactionSynchronizationManager.getResource(this);
+        if (batch != null) {
+            return batch;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Write-behind ledger writes require a transaction");
+        }
+
+        batch = new PendingBatch(UUID.randomUUID());
+        jdbcTemplate.update("INSERT INTO ledger_wal_batch (id, created_at) VALUES (?, ?)",
+                batch.id, LocalDateTime.now());
+        TransactionSynchronizationManager.bindResource(this, batch);
+        TransactionSynchronizationManager.registerSynchronization(new BatchSynchronization(batch));
+        return batch;
+    }
+
+    private static final class PendingBatch {
+        private final UUID id;
+        private final List<ArchivedLedgerEntry> entries = new ArrayList<>();
+        private final Map<StockKey, Integer> balances = new HashMap<>();
+        private boolean logged;
+
+        private PendingBatch(UUID id) {
+            this.id = id;
+        }
+    }
+
+    private final class BatchSynchronization implements TransactionSynchronization {
+
+        private final PendingBatch batch;
+
+        private BatchSynchronization(PendingBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Durable before the marker commits; a failure here rolls the transaction back
+            wal.append(new WalBatch(batch.id, List.copyOf(batch.entries)));
+            batch.logged = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            // Still under the stock locks, so batches of a pair are queued in commit order
+            committer.submit(new WalBatch(batch.id, List.copyOf(batch.entries)));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(WriteBehindLedger.this);
+            if (status != STATUS_COMMITTED && batch.logged) {
+                wal.resolved(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.backend.service.report;
+
+import lombok.Getter;
+import org.example.backend.enums.ReportPriority;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One report job, shared by every client that submitted the same spec while it
+ * was queued or running; each of them is attached as a submitter. Moved
+ * through its states by the job worker and by cancellation;
+ * {@link #getCompletion()} completes once it is done either way.
+ */
+@Getter
+public class ReportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final ReportSpec spec;
+    private final String specHash;
+    private final ReportPriority priority;
+    private final String requestedBy;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    /** Answered from the result cache without running. */
+    private final boolean cached;
+    private final CompletableFuture<ReportJob> completion = new CompletableFuture<>();
+
+    private volatile Status status;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    private volatile Map<String, Object> result;
+    private Thread worker;
+    private final Set<String> submitters = new LinkedHashSet<>();
+
+    public ReportJob(ReportSpec spec, String specHash, ReportPriority priority, String requestedBy) {
+        this.spec = spec;
+        this.specHash = specHash;
+        this.priority = priority;
+        this.requestedBy = requestedBy;
+        this.cached = false;
+        this.status = Status.QUEUED;
+        this.submitters.add(requestedBy);
+    }
+
+    private ReportJob(ReportSpec spec, String specHash, String requestedBy, Map<String, Object> result) {
+        this.spec = spec;
+        this.specHash = specHash;
+        this.priority = ReportPriority.NORMAL;
+        this.requestedBy = requestedBy;
+        this.cached = true;
+        this.result = result;
+        this.startedAt = submittedAt;
+        this.finishedAt = submittedAt;
+        this.status = Status.COMPLETED;
+        this.submitters.add(requestedBy);
+        completion.complete(this);
+    }
+
+    /**
+     * A job that is already complete with a cached result.
+     */
+    public static ReportJob fromCache(ReportSpec spec, String specHash, String requestedBy,
+            Map<String, Object> result) {
+        return new ReportJob(spec, specHash, requestedBy, result);
+    }
+
+    /**
+     * Users attached to the job, the first submitter first.
+     */
+    public synchronized List<String> getSubmitters() {
+        return List.copyOf(submitters);
+    }
+
+    /**
+     * Attach another submitter of the same spec.
+     *
+     * @return false if the job is already done
+     */
+    public synchronized boolean attach(String username) {
+        if (isDone()) {
+            return false;
+        }
+        submitters.add(username);
+        return true;
+    }
+
+    /**
+     * Detach a submitter without cancelling the job.
+     */
+    public synchronized void detach(String username) {
+        submitters.remove(username);
+    }
+
+    /**
+     * Claim the job for the calling thread; false if it was cancelled while
+     * queued.
+     */
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        worker = Thread.currentThread();
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+        return true;
+    }
+
+    public synchronized void complete(Map<String, Object> result) {
+        if (finish(Status.COMPLETED)) {
+            this.result = result;
+        }
+    }
+
+    public synchronized void fail(String error) {
+        if (finish(Status.FAILED)) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Cancel a queued job, or interrupt a running one; its result, if the
+     * worker still produces one, is discarded.
+     *
+     * @return false if the job had already finished
+     */
+    public synchronized boolean cancel() {
+        Thread running = worker;
+        if (!finish(Status.CANCELLED)) {
+            return false;
+        }
+        if (running != null) {
+            running.interrupt();
+        }
+        return true;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    private boolean finish(Status finalStatus) {
+        if (status != Status.QUEUED && status != Status.RUNNING) {
+            return false;
+        }
+        status = finalStatus;
+        finishedAt = LocalDateTime.now();
+        worker = null;
+        completion.complete(this);
+        return true;
+    }
+}
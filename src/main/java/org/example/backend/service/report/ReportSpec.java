@@ -0,0 +1,65 @@
+package org.example.backend.service.report;
+
+import org.example.backend.enums.ReportType;
+import org.example.backend.exception.InvalidOperationException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * What a report job computes: the report and its parameters. Two specs with
+ * the same hash produce the same result, whoever asks.
+ */
+public record ReportSpec(ReportType type, SortedMap<String, String> parameters) {
+
+    /**
+     * Spec with blank parameters dropped and values trimmed, so that requests
+     * that differ only in formatting share a hash.
+     *
+     * @throws InvalidOperationException for a parameter the report does not take
+     */
+    public static ReportSpec of(ReportType type, Map<String, String> parameters) {
+        SortedMap<String, String> normalized = new TreeMap<>();
+        if (parameters != null) {
+            parameters.forEach((name, value) -> {
+                if (!type.getParameters().contains(name)) {
+                    throw new InvalidOperationException("Unsupported parameter for " + type + ": " + name
+                            + ". Expected one of " + new TreeSet<>(type.getParameters()));
+                }
+                if (value != null && !value.isBlank()) {
+                    normalized.put(name, value.trim());
+                }
+            });
+        }
+        return new ReportSpec(type, Collections.unmodifiableSortedMap(normalized));
+    }
+
+    /**
+     * SHA-256 of the type and the sorted parameters, hex encoded. Values are
+     * length-prefixed, so a value containing the separators cannot pass for
+     * other parameters.
+     */
+    public String hash() {
+        StringBuilder canonical = new StringBuilder(type.name());
+        parameters.forEach((name, value) -> canonical.append('\n').append(name).append('=')
+                .append(value.length()).append(':').append(value));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public String get(String name) {
+        return parameters.get(name);
+    }
+}
@@ -1,4 +1,186 @@
 package org.example.backend.util;
 
-public class LocationCodeParser {
+/**
+ * Parser for rack location codes of the form {@code B07-N1-A3}: block 7, level
+ * (niveau) 1, slot A3 = aisle A, position 3. Letters are case-insensitive.
+ *
+ * A code is decoded in a single pass over its characters into a primitive
+ * key, without allocating. Fields are packed from the most to the least
+ * significant as block, aisle, level, position, so sorting keys orders
+ * locations by block, then aisle, then level, and masking the low fields
+ * ({@link #blockKey}, {@link #aisleKey}, {@link #levelKey}) gives the key of
+ * the group a location belongs to.
+ */
+public final class LocationCodeParser {
+
+    /** Returned for anything that is not a location code. */
+    public static final long INVALID = -1L;
+
+    private static final int BLOCK_SHIFT = 40;
+    private static final int AISLE_SHIFT = 32;
+    private static final int LEVEL_SHIFT = 24;
+    private static final long BLOCK_MASK = 0xFFFFL;
+    private static final long AISLE_MASK = 0xFFL;
+    private static final long LEVEL_MASK = 0xFFL;
+    private static final long POSITION_MASK = 0xFFFFFFL;
+
+    private static final int MAX_BLOCK = (int) BLOCK_MASK;
+    private static final int MAX_LEVEL = (int) LEVEL_MASK;
+    private static final int MAX_POSITION = (int) POSITION_MASK;
+
+    private LocationCodeParser() {
+    }
+
+    /**
+     * Key of a location code, or {@link #INVALID}.
+     */
+    public static long parse(CharSequence code) {
+        if (code == null) {
+            return INVALID;
+        }
+        int length = code.length();
+        int i = 0;
+
+        if (i >= length || upper(code.charAt(i)) != 'B') {
+            return INVALID;
+        }
+        i++;
+        int blockStart = i;
+        int block = 0;
+        while (i < length && isDigit(code.charAt(i))) {
+            block = block * 10 + (code.charAt(i) - '0');
+            if (block > MAX_BLOCK) {
+                return INVALID;
+            }
+            i++;
+        }
+        if (i == blockStart || i >= length || code.charAt(i) != '-') {
+            return INVALID;
+        }
+        i++;
+
+        if (i >= length || upper(code.charAt(i)) != 'N') {
+            return INVALID;
+        }
+        i++;
+        int levelStart = i;
+        int level = 0;
+        while (i < length && isDigit(code.charAt(i))) {
+            level = level * 10 + (code.charAt(i) - '0');
+            if (level > MAX_LEVEL) {
+                return INVALID;
+            }
+            i++;
+        }
+        if (i == levelStart || i >= length || code.charAt(i) != '-') {
+            return INVALID;
+        }
+        i++;
+
+        if (i >= length) {
+            return INVALID;
+        }
+        char aisle = upper(code.charAt(i));
+        if (aisle < 'A' || aisle > 'Z') {
+            return INVALID;
+        }
+        i++;
+        int positionStart = i;
+        int position = 0;
+        while (i < length && isDigit(code.charAt(i))) {
+            position = position * 10 + (code.charAt(i) - '0');
+            if (position > MAX_POSITION) {
+                return INVALID;
+            }
+            i++;
+        }
+        if (i == positionStart || i != length) {
+            return INVALID;
+        }
+
+        return pack(block, aisle - 'A' + 1, level, position);
+    }
+
+    public static boolean isValid(CharSequence code) {
+        return parse(code) != INVALID;
+    }
+
+    public static long pack(int block, int aisle, int level, int position) {
+        return ((long) block << BLOCK_SHIFT)
+                | ((long) aisle << AISLE_SHIFT)
+                | ((long) level << LEVEL_SHIFT)
+                | position;
+    }
+
+    public static int block(long key) {
+        return (int) ((key >>> BLOCK_SHIFT) & BLOCK_MASK);
+    }
+
+    /**
+     * Aisle letter, 'A' to 'Z'.
+     */
+    public static char aisle(long key) {
+        return (char) ('A' + ((key >>> AISLE_SHIFT) & AISLE_MASK) - 1);
+    }
+
+    public static int level(long key) {
+        return (int) ((key >>> LEVEL_SHIFT) & LEVEL_MASK);
+    }
+
+    public static int position(long key) {
+        return (int) (key & POSITION_MASK);
+    }
+
+    public static long blockKey(long key) {
+        return key & ~((1L << BLOCK_SHIFT) - 1);
+    }
+
+    public static long aisleKey(long key) {
+        return key & ~((1L << AISLE_SHIFT) - 1);
+    }
+
+    public static long levelKey(long key) {
+        return key & ~((1L << LEVEL_SHIFT) - 1);
+    }
+
+    /**
+     * Append the code of a location key, e.g. {@code B07-N1-A3}.
+     */
+    public static StringBuilder appendCode(StringBuilder out, long key) {
+        appendBlock(out, key).append("-N").append(level(key)).append('-').append(aisle(key));
+        return out.append(position(key));
+    }
+
+    /**
+     * Append a group label: {@code B07}, {@code B07-A} or {@code B07-A-N1}
+     * depending on which fields the grouping kept.
+     */
+    public static StringBuilder appendGroupLabel(StringBuilder out, long groupKey, boolean withAisle,
+            boolean withLevel) {
+        appendBlock(out, groupKey);
+        if (withAisle) {
+            out.append('-').append(aisle(groupKey));
+        }
+        if (withLevel) {
+            out.append("-N").append(level(groupKey));
+        }
+        return out;
+    }
+
+    private static StringBuilder appendBlock(StringBuilder out, long key) {
+        int block = block(key);
+        out.append('B');
+        if (block < 10) {
+            out.append('0');
+        }
+        return out.append(block);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
 }
@@ -0,0 +1,122 @@
+package org.example.backend.util;
+
+
+/**
+ * Open-addressing map from long to int (no boxing).
+ *
+ * Not thread-safe: callers synchronize externally. Like {@link UuidIntMap}, a
+ * racing reader may see a stale value but never fails.
+ */
+public class LongIntMap {
+
+    private volatile Table table;
+    private int size;
+
+    public LongIntMap(int expectedSize) {
+        this.table = new Table(UuidIntMap.capacityFor(expectedSize));
+    }
+
+    public int getOrDefault(long key, int defaultValue) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            if (!t.used[slot]) {
+                return defaultValue;
+            }
+            if (t.keys[slot] == key) {
+                return t.values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            if (!t.used[slot]) {
+                return false;
+            }
+            if (t.keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void put(long key, int value) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (t.used[slot]) {
+            if (t.keys[slot] == key) {
+                t.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((size + 1) * 2 > t.keys.length) {
+            resize();
+            put(key, value);
+            return;
+        }
+        t.keys[slot] = key;
+        t.values[slot] = value;
+        t.used[slot] = true;
+        size++;
+    }
+
+    public void putIfAbsent(long key, int value) {
+        if (!containsKey(key)) {
+            put(key, value);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        table = new Table(table.keys.length);
+        size = 0;
+    }
+
+    private void resize() {
+        Table old = table;
+        Table grown = new Table(old.keys.length * 2);
+        int mask = grown.keys.length - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.used[i]) {
+                int slot = hash(old.keys[i]) & mask;
+                while (grown.used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.keys[slot] = old.keys[i];
+                grown.values[slot] = old.values[i];
+                grown.used[slot] = true;
+            }
+        }
+        table = grown;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+        final boolean[] used;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.used = new boolean[capacity];
+        }
+    }
+}
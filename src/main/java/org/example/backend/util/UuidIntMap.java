@@ -0,0 +1,122 @@
+package org.example.backend.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing map from UUID to a non-negative int, stored as two long
+ * arrays and an int array (no boxing, no UUID objects kept).
+ *
+ * Not thread-safe: callers synchronize externally. A reader that races with a
+ * writer may see a stale or missing entry but never fails, so the map can be
+ * read under an optimistic lock that is validated afterwards.
+ */
+public class UuidIntMap {
+
+    public static final int MISSING = -1;
+
+    private volatile Table table;
+    private int size;
+
+    public UuidIntMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    public int get(UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public int get(long msb, long lsb) {
+        Table t = table;
+        int mask = t.values.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int value = t.values[slot];
+            if (value == MISSING) {
+                return MISSING;
+            }
+            if (t.msbs[slot] == msb && t.lsbs[slot] == lsb) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Store the value if the key is absent.
+     *
+     * @return the value now associated with the key
+     */
+    public int putIfAbsent(UUID key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int existing = get(msb, lsb);
+        if (existing != MISSING) {
+            return existing;
+        }
+        if ((size + 1) * 2 > table.values.length) {
+            resize();
+        }
+        insert(table, msb, lsb, value);
+        size++;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        table = new Table(table.values.length);
+        size = 0;
+    }
+
+    private void resize() {
+        Table old = table;
+        Table grown = new Table(old.values.length * 2);
+        for (int i = 0; i < old.values.length; i++) {
+            if (old.values[i] != MISSING) {
+                insert(grown, old.msbs[i], old.lsbs[i], old.values[i]);
+            }
+        }
+        table = grown;
+    }
+
+    private static void insert(Table t, long msb, long lsb, int value) {
+        int mask = t.values.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (t.values[slot] != MISSING) {
+            slot = (slot + 1) & mask;
+        }
+        t.msbs[slot] = msb;
+        t.lsbs[slot] = lsb;
+        t.values[slot] = value;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        return Math.max(16, capacity);
+    }
+
+    private static final class Table {
+        final long[] msbs;
+        final long[] lsbs;
+        final int[] values;
+
+        Table(int capacity) {
+            this.msbs = new long[capacity];
+            this.lsbs = new long[capacity];
+            this.values = new int[capacity];
+            Arrays.fill(values, MISSING);
+        }
+    }
+}
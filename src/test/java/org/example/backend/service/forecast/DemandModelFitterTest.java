@@ -0,0 +1,93 @@
+package org.example.backend.service.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DemandModelFitterTest {
+
+    private static final UUID PRODUCT = UUID.randomUUID();
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void emptyHistoryForecastsNothing() {
+        DemandModel model = DemandModelFitter.fit(PRODUCT, new double[30], LAST_DAY);
+
+        assertThat(model.method()).isEqualTo(DemandModel.Method.NONE);
+        assertThat(model.forecast(LAST_DAY.plusDays(1))).isZero();
+    }
+
+    @Test
+    void shortRegularSeriesUsesSimpleSmoothing() {
+        double[] series = new double[10];
+        Arrays.fill(series, 5);
+
+        DemandModel model = DemandModelFitter.fit(PRODUCT, series, LAST_DAY);
+
+        assertThat(model.method()).isEqualTo(DemandModel.Method.SES);
+        assertThat(model.forecast(LAST_DAY.plusDays(3))).isCloseTo(5, within(1e-9));
+    }
+
+    @Test
+    void holtWintersForecastsTheMatchingWeekday() {
+        double[] week = { 10, 2, 2, 2, 2, 2, 20 };
+        double[] series = new double[8 * DemandModelFitter.SEASON];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = week[t % DemandModelFitter.SEASON];
+        }
+
+        DemandModel model = DemandModelFitter.fit(PRODUCT, series, LAST_DAY);
+
+        assertThat(model.method()).isEqualTo(DemandModel.Method.HOLT_WINTERS);
+        // The series starts on a "10" day, so does the day after its last one
+        for (int horizon = 1; horizon <= 2 * DemandModelFitter.SEASON; horizon++) {
+            assertThat(model.forecast(LAST_DAY.plusDays(horizon)))
+                    .as("horizon %d", horizon)
+                    .isCloseTo(week[(horizon - 1) % DemandModelFitter.SEASON], within(1e-9));
+        }
+    }
+
+    @Test
+    void holtWintersSeasonFollowsTheSeriesLength() {
+        double[] week = { 10, 2, 2, 2, 2, 2, 20 };
+        // Three days past whole weeks: the day after the last one is week[3]
+        double[] series = new double[5 * DemandModelFitter.SEASON + 3];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = week[t % DemandModelFitter.SEASON];
+        }
+
+        DemandModel model = DemandModelFitter.fit(PRODUCT, series, LAST_DAY);
+
+        assertThat(model.forecast(LAST_DAY.plusDays(1))).isCloseTo(week[3], within(1e-9));
+        assertThat(model.forecast(LAST_DAY.plusDays(4))).isCloseTo(week[6], within(1e-9));
+    }
+
+    @Test
+    void intermittentDemandUsesSbaBelowTheCrostonRatio() {
+        // 10 units every fourth day: Croston's size / interval would be 2.5
+        double[] series = new double[60];
+        for (int t = 3; t < series.length; t += 4) {
+            series[t] = 10;
+        }
+
+        DemandModel model = DemandModelFitter.fit(PRODUCT, series, LAST_DAY);
+
+        assertThat(model.method()).isEqualTo(DemandModel.Method.SBA);
+        assertThat(model.level()).isCloseTo((1 - model.alpha() / 2) * 2.5, within(1e-9));
+        assertThat(model.forecast(LAST_DAY.plusDays(1))).isLessThan(2.5).isEqualTo(model.level());
+        assertThat(model.probability()).isCloseTo(0.25, within(1e-9));
+    }
+
+    @Test
+    void forecastIsNeverNegative() {
+        DemandModel model = new DemandModel(PRODUCT, DemandModel.Method.HOLT_WINTERS, LAST_DAY, 28, 1, -5,
+                new double[DemandModelFitter.SEASON], 0.5, 0.1, 0.1, 0, 1);
+
+        assertThat(model.forecast(LAST_DAY.plusDays(30))).isZero();
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.backend.entity.Location;
+import org.example.backend.entity.Product;
+import org.example.backend.entity.StockLedger;
+import org.example.backend.entity.Transaction;
+import org.example.backend.entity.User;
+import org.example.backend.entity.Warehouse;
+import org.example.backend.enums.LocationType;
+import org.example.backend.enums.MovementType;
+import org.example.backend.enums.Role;
+import org.example.backend.enums.TransactionStatus;
+import org.example.backend.enums.TransactionType;
+import org.example.backend.repository.LocationRepository;
+import org.example.backend.repository.ProductRepository;
+import org.example.backend.repository.StockLedgerRepository;
+import org.example.backend.repository.TransactionRepository;
+import org.example.backend.repository.UserRepository;
+import org.example.backend.repository.WarehouseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loads the store from the schema Hibernate generates for the entities, so
+ * that its plain SQL follows the mapped column names. Rows are committed:
+ * the load reads them on its own thread.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerColumnStoreTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private StockLedgerRepository stockLedgerRepository;
+
+    @AfterEach
+    void cleanUp() {
+        stockLedgerRepository.deleteAll();
+        transactionRepository.deleteAll();
+        locationRepository.deleteAll();
+        warehouseRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void loadsLedgerAndDimensionsFromTheSchema() throws InterruptedException {
+        User user = userRepository.save(User.builder()
+                .username("loader").email("loader@example.org").password("x").role(Role.EMPLOYEE).build());
+        Product product = productRepository.save(Product.builder()
+                .sku("MIXER-001").name("Mixer").unitOfMeasure("PCS").category("Kitchen")
+                .colisageFardeau(1).volumePcs(0.01).build());
+        Warehouse warehouse = warehouseRepository.save(Warehouse.builder().code("WH1").name("Main").build());
+        Location location = locationRepository.save(Location.builder()
+                .code("0A-01-01").warehouse(warehouse).type(LocationType.STORAGE).build());
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                .type(TransactionType.RECEIPT).reference("REC-1").status(TransactionStatus.COMPLETED)
+                .createdBy(user).build());
+        stockLedgerRepository.save(StockLedger.builder()
+                .product(product).location(location).transaction(transaction).movementType(MovementType.IN)
+                .quantity(12).runningBalance(12).performedBy(user).performedAt(LocalDateTime.now().minusDays(1))
+                .build());
+
+        LedgerColumnStore store = new LedgerColumnStore(jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), true, 400, 0, 100);
+        try {
+            store.load();
+            for (int i = 0; i < 100 && !store.isReady(); i++) {
+                Thread.sleep(100);
+            }
+
+            assertThat(store.isReady()).as("store loaded").isTrue();
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.query(groupedBy(LedgerQuery.Dimension.USER, LedgerQuery.Dimension.CATEGORY)))
+                    .singleElement().satisfies(aggregate -> {
+                        assertThat(aggregate.labels()).containsExactly("loader", "Kitchen");
+                        assertThat(aggregate.quantity()).isEqualTo(12);
+                    });
+            assertThat(store.query(groupedBy(LedgerQuery.Dimension.LOCATION, LedgerQuery.Dimension.WAREHOUSE)))
+                    .singleElement().satisfies(aggregate -> assertThat(aggregate.labels())
+                            .containsExactly("0A-01-01", warehouse.getId().toString()));
+        } finally {
+            store.stop();
+        }
+    }
+
+    private static LedgerQuery groupedBy(LedgerQuery.Dimension first, LedgerQuery.Dimension second) {
+        return new LedgerQuery(null, null, null, null, null, null, null, null, List.of(first, second), 0);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.backend.service.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.backend.exception.StockLockTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Each transaction runs on its own thread, as stripes are owned by the
+ * locking thread; transactions are simulated with bare synchronizations.
+ */
+class StockLockManagerTest {
+
+    private static final StockKey PAIR = new StockKey(UUID.randomUUID(), UUID.randomUUID());
+
+    private final StockLockManager manager = new StockLockManager(new SimpleMeterRegistry(), 16, 200);
+    private final ExecutorService rebuild = Executors.newSingleThreadExecutor();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void stop() {
+        rebuild.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    @Test
+    void writersWaitWhileEverythingIsLocked() throws Exception {
+        run(rebuild, () -> {
+            begin();
+            manager.lockEverything();
+        });
+
+        assertThatThrownBy(() -> run(writer, () -> {
+            begin();
+            try {
+                manager.lock(PAIR);
+            } finally {
+                complete();
+            }
+        })).isInstanceOf(StockLockTimeoutException.class);
+
+        run(rebuild, StockLockManagerTest::complete);
+        assertThatCode(() -> run(writer, () -> {
+            begin();
+            manager.lock(PAIR);
+            complete();
+        })).doesNotThrowAnyException();
+    }
+
+    @Test
+    void lockEverythingWaitsForRunningWriters() throws Exception {
+        run(writer, () -> {
+            begin();
+            manager.lock(PAIR);
+        });
+
+        assertThatThrownBy(() -> run(rebuild, () -> {
+            begin();
+            try {
+                manager.lockEverything();
+            } finally {
+                complete();
+            }
+        })).isInstanceOf(StockLockTimeoutException.class);
+
+        run(writer, StockLockManagerTest::complete);
+        assertThatCode(() -> run(rebuild, () -> {
+            begin();
+            manager.lockEverything();
+            complete();
+        })).doesNotThrowAnyException();
+    }
+
+    private static void run(ExecutorService thread, Runnable task) throws Exception {
+        try {
+            thread.submit(task).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_COMMITTED);
+    }
+}
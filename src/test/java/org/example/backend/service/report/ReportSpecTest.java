@@ -0,0 +1,79 @@
+package org.example.backend.service.report;
+
+import org.example.backend.enums.ReportType;
+import org.example.backend.exception.InvalidOperationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportSpecTest {
+
+    @Test
+    void hashIgnoresParameterOrder() {
+        Map<String, String> forward = new LinkedHashMap<>();
+        forward.put("startDate", "2024-01-01");
+        forward.put("endDate", "2024-01-31");
+        Map<String, String> backward = new LinkedHashMap<>();
+        backward.put("endDate", "2024-01-31");
+        backward.put("startDate", "2024-01-01");
+
+        assertThat(ReportSpec.of(ReportType.USER_PRODUCTIVITY, forward).hash())
+                .isEqualTo(ReportSpec.of(ReportType.USER_PRODUCTIVITY, backward).hash());
+    }
+
+    @Test
+    void hashIgnoresSurroundingWhitespaceAndBlankParameters() {
+        Map<String, String> padded = new HashMap<>();
+        padded.put("startDate", "  2024-01-01 ");
+        padded.put("userId", "   ");
+        padded.put("endDate", null);
+
+        ReportSpec spec = ReportSpec.of(ReportType.USER_PRODUCTIVITY, padded);
+
+        assertThat(spec.parameters()).containsExactly(Map.entry("startDate", "2024-01-01"));
+        assertThat(spec.hash())
+                .isEqualTo(ReportSpec.of(ReportType.USER_PRODUCTIVITY, Map.of("startDate", "2024-01-01")).hash());
+    }
+
+    @Test
+    void noParametersHashLikeEmptyParameters() {
+        assertThat(ReportSpec.of(ReportType.INVENTORY_SUMMARY, null).hash())
+                .isEqualTo(ReportSpec.of(ReportType.INVENTORY_SUMMARY, Map.of()).hash());
+    }
+
+    @Test
+    void hashDependsOnTypeAndValues() {
+        Map<String, String> parameters = Map.of("startDate", "2024-01-01", "endDate", "2024-01-31");
+        String hash = ReportSpec.of(ReportType.USER_PRODUCTIVITY, parameters).hash();
+
+        assertThat(hash).hasSize(64).matches("[0-9a-f]+");
+        assertThat(ReportSpec.of(ReportType.STOCK_MOVEMENTS, parameters).hash()).isNotEqualTo(hash);
+        assertThat(ReportSpec.of(ReportType.USER_PRODUCTIVITY,
+                Map.of("startDate", "2024-01-01", "endDate", "2024-02-29")).hash()).isNotEqualTo(hash);
+        // Values are compared as given, not as dates
+        assertThat(ReportSpec.of(ReportType.USER_PRODUCTIVITY,
+                Map.of("startDate", "2024-1-1", "endDate", "2024-01-31")).hash()).isNotEqualTo(hash);
+    }
+
+    @Test
+    void valueContainingSeparatorsDoesNotCollideWithSeparateParameters() {
+        String split = ReportSpec.of(ReportType.USER_PRODUCTIVITY,
+                Map.of("endDate", "2024-01-31", "startDate", "2024-01-01")).hash();
+        String embedded = ReportSpec.of(ReportType.USER_PRODUCTIVITY,
+                Map.of("endDate", "2024-01-31\nstartDate=2024-01-01")).hash();
+
+        assertThat(embedded).isNotEqualTo(split);
+    }
+
+    @Test
+    void rejectsParametersTheReportDoesNotTake() {
+        assertThatThrownBy(() -> ReportSpec.of(ReportType.USER_PRODUCTIVITY, Map.of("category", "food")))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessageContaining("category");
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationCodeParserTest {
+
+    @Test
+    void parsesEveryField() {
+        long key = LocationCodeParser.parse("B07-N1-A3");
+
+        assertThat(LocationCodeParser.block(key)).isEqualTo(7);
+        assertThat(LocationCodeParser.level(key)).isEqualTo(1);
+        assertThat(LocationCodeParser.aisle(key)).isEqualTo('A');
+        assertThat(LocationCodeParser.position(key)).isEqualTo(3);
+    }
+
+    @Test
+    void lettersAreCaseInsensitive() {
+        assertThat(LocationCodeParser.parse("b07-n1-a3")).isEqualTo(LocationCodeParser.parse("B07-N1-A3"));
+        assertThat(LocationCodeParser.parse("B12-n4-z9")).isEqualTo(LocationCodeParser.parse("B12-N4-Z9"));
+    }
+
+    @Test
+    void acceptsTheLargestValueOfEachField() {
+        long key = LocationCodeParser.parse("B65535-N255-Z16777215");
+
+        assertThat(LocationCodeParser.block(key)).isEqualTo(65535);
+        assertThat(LocationCodeParser.level(key)).isEqualTo(255);
+        assertThat(LocationCodeParser.aisle(key)).isEqualTo('Z');
+        assertThat(LocationCodeParser.position(key)).isEqualTo(16777215);
+    }
+
+    @Test
+    void rejectsFieldsThatOverflow() {
+        assertThat(LocationCodeParser.parse("B65536-N1-A1")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N256-A1")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A16777216")).isEqualTo(LocationCodeParser.INVALID);
+        // Long enough to wrap an int if the bound were only checked at the end
+        assertThat(LocationCodeParser.parse("B99999999999-N1-A1")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A99999999999")).isEqualTo(LocationCodeParser.INVALID);
+    }
+
+    @Test
+    void rejectsTrailingCharacters() {
+        assertThat(LocationCodeParser.parse("B07-N1-A3 ")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A3X")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A3-")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A3-N2")).isEqualTo(LocationCodeParser.INVALID);
+    }
+
+    @Test
+    void rejectsMalformedCodes() {
+        assertThat(LocationCodeParser.parse(null)).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse(" B07-N1-A3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B-N1-A3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N-A3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-A")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07-N1-3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("B07N1-A3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.parse("X07-N1-A3")).isEqualTo(LocationCodeParser.INVALID);
+        assertThat(LocationCodeParser.isValid("B07_N1_A3")).isFalse();
+    }
+
+    @Test
+    void keysSortByBlockThenAisleThenLevel() {
+        long b1 = LocationCodeParser.parse("B01-N9-Z9");
+        long b2a = LocationCodeParser.parse("B02-N9-A9");
+        long b2bLow = LocationCodeParser.parse("B02-N1-B1");
+        long b2bHigh = LocationCodeParser.parse("B02-N2-B1");
+
+        assertThat(b1).isLessThan(b2a);
+        assertThat(b2a).isLessThan(b2bLow);
+        assertThat(b2bLow).isLessThan(b2bHigh);
+    }
+
+    @Test
+    void groupKeysDropTheLowerFields() {
+        long key = LocationCodeParser.parse("B07-N1-A3");
+
+        assertThat(LocationCodeParser.levelKey(key)).isEqualTo(LocationCodeParser.parse("B07-N1-A9") & ~0xFFFFFFL);
+        assertThat(LocationCodeParser.aisleKey(key)).isEqualTo(LocationCodeParser.aisleKey(
+                LocationCodeParser.parse("B07-N5-A1")));
+        assertThat(LocationCodeParser.blockKey(key)).isEqualTo(LocationCodeParser.blockKey(
+                LocationCodeParser.parse("B07-N5-Q8")));
+        assertThat(LocationCodeParser.blockKey(key)).isNotEqualTo(LocationCodeParser.blockKey(
+                LocationCodeParser.parse("B08-N1-A3")));
+    }
+
+    @Test
+    void formatsCodesAndGroupLabels() {
+        long key = LocationCodeParser.parse("b7-n1-a3");
+
+        assertThat(LocationCodeParser.appendCode(new StringBuilder(), key)).hasToString("B07-N1-A3");
+        assertThat(LocationCodeParser.appendGroupLabel(new StringBuilder(), key, false, false)).hasToString("B07");
+        assertThat(LocationCodeParser.appendGroupLabel(new StringBuilder(), key, true, true))
+                .hasToString("B07-A-N1");
+    }
+}
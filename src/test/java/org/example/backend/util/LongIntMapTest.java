@@ -0,0 +1,87 @@
+package org.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntMapTest {
+
+    @Test
+    void matchesHashMapAcrossResizes() {
+        LongIntMap map = new LongIntMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // Small key range so that some keys are written more than once
+            long key = random.nextInt(8_000) - 4_000L;
+            int value = random.nextInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> {
+            assertThat(map.containsKey(key)).isTrue();
+            assertThat(map.getOrDefault(key, 0)).isEqualTo(value);
+        });
+        assertThat(map.containsKey(4_000L)).isFalse();
+        assertThat(map.getOrDefault(4_000L, -7)).isEqualTo(-7);
+    }
+
+    @Test
+    void findsKeysPastOccupiedSlots() {
+        // Packed (product, location) keys as the balance index builds them, in a table that is kept full
+        LongIntMap map = new LongIntMap(1);
+        for (int product = 0; product < 64; product++) {
+            for (int location = 0; location < 64; location++) {
+                map.put(((long) product << 32) | location, product * 64 + location);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(64 * 64);
+        for (int product = 0; product < 64; product++) {
+            for (int location = 0; location < 64; location++) {
+                assertThat(map.getOrDefault(((long) product << 32) | location, -1)).isEqualTo(product * 64 + location);
+            }
+        }
+        assertThat(map.containsKey(64L << 32)).isFalse();
+    }
+
+    @Test
+    void zeroAndNegativeKeysAreOrdinaryKeys() {
+        LongIntMap map = new LongIntMap(16);
+        map.put(0L, 1);
+        map.put(-1L, 2);
+        map.put(Long.MIN_VALUE, 3);
+
+        assertThat(map.getOrDefault(0L, 0)).isEqualTo(1);
+        assertThat(map.getOrDefault(-1L, 0)).isEqualTo(2);
+        assertThat(map.getOrDefault(Long.MIN_VALUE, 0)).isEqualTo(3);
+        assertThat(map.getOrDefault(Long.MAX_VALUE, 0)).isZero();
+    }
+
+    @Test
+    void putIfAbsentKeepsTheFirstValue() {
+        LongIntMap map = new LongIntMap(16);
+        map.putIfAbsent(5L, 1);
+        map.putIfAbsent(5L, 2);
+
+        assertThat(map.getOrDefault(5L, 0)).isEqualTo(1);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void clearDropsEveryEntry() {
+        LongIntMap map = new LongIntMap(16);
+        map.put(1L, 1);
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.containsKey(1L)).isFalse();
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UuidIntMapTest {
+
+    @Test
+    void keepsEveryEntryAcrossResizes() {
+        UuidIntMap map = new UuidIntMap(1);
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID key = UUID.randomUUID();
+            keys.add(key);
+            assertThat(map.putIfAbsent(key, i)).isEqualTo(i);
+        }
+
+        assertThat(map.size()).isEqualTo(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertThat(map.get(keys.get(i))).isEqualTo(i);
+        }
+        assertThat(map.get(UUID.randomUUID())).isEqualTo(UuidIntMap.MISSING);
+    }
+
+    @Test
+    void resolvesKeysWithTheSameHash() {
+        // msb ^ lsb is 0 for all of them, so they all start probing at the same slot
+        UuidIntMap map = new UuidIntMap(4);
+        for (int i = 0; i < 100; i++) {
+            map.putIfAbsent(new UUID(i, i), i);
+        }
+        // Same hash as (1, 2), different key
+        map.putIfAbsent(new UUID(2, 1), 1000);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(map.get(new UUID(i, i))).isEqualTo(i);
+        }
+        assertThat(map.get(new UUID(2, 1))).isEqualTo(1000);
+        assertThat(map.get(new UUID(1, 2))).isEqualTo(UuidIntMap.MISSING);
+        assertThat(map.get(new UUID(100, 100))).isEqualTo(UuidIntMap.MISSING);
+    }
+
+    @Test
+    void putIfAbsentKeepsTheFirstValue() {
+        UuidIntMap map = new UuidIntMap(16);
+        UUID key = UUID.randomUUID();
+
+        assertThat(map.putIfAbsent(key, 3)).isEqualTo(3);
+        assertThat(map.putIfAbsent(key, 7)).isEqualTo(3);
+        assertThat(map.get(key)).isEqualTo(3);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        UuidIntMap map = new UuidIntMap(16);
+
+        assertThatThrownBy(() -> map.putIfAbsent(UUID.randomUUID(), -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void clearDropsEveryEntry() {
+        UuidIntMap map = new UuidIntMap(16);
+        UUID key = UUID.randomUUID();
+        map.putIfAbsent(key, 1);
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(key)).isEqualTo(UuidIntMap.MISSING);
+    }
+}